@@ -0,0 +1,150 @@
+/**
+  Description: The AggregationBenchmark class compares filtered category sums computed the way
+			  the code did before the columnar store, by streaming Expense objects, with the
+			  same sums computed by ExpenseManager.getCategorySummary over a date range, which
+			  reads month aggregates and reduces partial months with the AggregationKernels.
+			  Because whole months dominate that query, a second case times the kernels
+			  alone against the stream over only the partial-month slices at the ends of
+			  the range. It is a plain program rather than a test: run it with
+			  java AggregationBenchmark [expenses] [rounds].
+*/
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class AggregationBenchmark {
+    private static final int DEFAULT_EXPENSES = 1_000_000;
+    private static final int DEFAULT_ROUNDS = 20;
+
+    /**
+    Runs the benchmark and prints the time per query of each approach.
+    @param args Optionally the number of expenses and the number of timed rounds.
+    */
+    public static void main(String[] args) {
+        int expenseCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EXPENSES;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        ExpenseManager expenseManager = new ExpenseManager();
+        List<String> categories = ExpenseManager.getPredefinedCategories();
+        Random random = new Random(42);
+        LocalDate first = LocalDate.of(2020, 1, 1);
+        List<Expense> expenses = new ArrayList<>(expenseCount);
+        for (int i = 0; i < expenseCount; i++) {
+            expenses.add(Expense.ofCents(first.plusDays(random.nextInt(4 * 365)),
+                categories.get(random.nextInt(categories.size())), 1 + random.nextInt(50_000), "Item " + i));
+        }
+        expenseManager.addExpenses(expenses);
+        List<Expense> all = expenseManager.getAllExpenses();
+
+        // A range with ragged ends, so both aggregates and kernels are used
+        LocalDate start = LocalDate.of(2021, 2, 17);
+        LocalDate end = LocalDate.of(2022, 11, 9);
+        long streamCents = 0L;
+        long kernelCents = 0L;
+        long streamNanos = 0L;
+        long kernelNanos = 0L;
+        for (int round = -rounds; round < rounds; round++) {
+            String category = categories.get(Math.floorMod(round, categories.size()));
+            long begin = System.nanoTime();
+            double streamTotal = all.stream()
+                .filter(expense -> expense.getCategory().equalsIgnoreCase(category))
+                .filter(expense -> !expense.getDate().isBefore(start) && !expense.getDate().isAfter(end))
+                .mapToDouble(Expense::getAmount)
+                .sum();
+            long middle = System.nanoTime();
+            CategorySummary summary = expenseManager.getCategorySummary(category, start, end);
+            long finish = System.nanoTime();
+            if (round >= 0) { // The first half of the rounds only warms up the JIT
+                streamNanos += middle - begin;
+                kernelNanos += finish - middle;
+                streamCents += Money.toCents(streamTotal);
+                kernelCents += Money.toCents(summary.getTotal());
+            }
+        }
+
+        // The partial months at the ends of the range, as columns like a partition's
+        List<Expense> sorted = new ArrayList<>(all);
+        sorted.sort(Comparator.comparing(Expense::getDate));
+        int rows = sorted.size();
+        long[] epochDays = new long[rows];
+        byte[] categoryIds = new byte[rows];
+        long[] cents = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            Expense expense = sorted.get(i);
+            epochDays[i] = expense.getDate().toEpochDay();
+            categoryIds[i] = (byte) categories.indexOf(expense.getCategory());
+            cents[i] = expense.getAmountCents();
+        }
+        LocalDate headEnd = start.withDayOfMonth(start.lengthOfMonth());
+        LocalDate tailStart = end.withDayOfMonth(1);
+        int headFrom = lowerBound(epochDays, start.toEpochDay());
+        int headTo = lowerBound(epochDays, headEnd.toEpochDay() + 1);
+        int tailFrom = lowerBound(epochDays, tailStart.toEpochDay());
+        int tailTo = lowerBound(epochDays, end.toEpochDay() + 1);
+        List<Expense> head = sorted.subList(headFrom, headTo);
+        List<Expense> tail = sorted.subList(tailFrom, tailTo);
+        long sliceStreamCents = 0L;
+        long sliceKernelCents = 0L;
+        long sliceStreamNanos = 0L;
+        long sliceKernelNanos = 0L;
+        for (int round = -rounds; round < rounds; round++) {
+            int categoryId = Math.floorMod(round, categories.size());
+            String category = categories.get(categoryId);
+            long begin = System.nanoTime();
+            double streamTotal = head.stream()
+                .filter(expense -> expense.getCategory().equalsIgnoreCase(category))
+                .filter(expense -> !expense.getDate().isBefore(start) && !expense.getDate().isAfter(headEnd))
+                .mapToDouble(Expense::getAmount)
+                .sum()
+                + tail.stream()
+                .filter(expense -> expense.getCategory().equalsIgnoreCase(category))
+                .filter(expense -> !expense.getDate().isBefore(tailStart) && !expense.getDate().isAfter(end))
+                .mapToDouble(Expense::getAmount)
+                .sum();
+            long middle = System.nanoTime();
+            long kernelTotal = AggregationKernels.sumWhere(categoryIds, cents, headFrom, headTo, categoryId)
+                + AggregationKernels.sumWhere(categoryIds, cents, tailFrom, tailTo, categoryId);
+            long finish = System.nanoTime();
+            if (round >= 0) {
+                sliceStreamNanos += middle - begin;
+                sliceKernelNanos += finish - middle;
+                sliceStreamCents += Money.toCents(streamTotal);
+                sliceKernelCents += kernelTotal;
+            }
+        }
+
+        System.out.printf("%d expenses, %d rounds%n", expenseCount, rounds);
+        System.out.printf("Expense stream:        %8.3f ms per query%n", streamNanos / 1e6 / rounds);
+        System.out.printf("Aggregates + kernels:  %8.3f ms per query%n", kernelNanos / 1e6 / rounds);
+        System.out.printf("Speedup:               %8.1fx%n", (double) streamNanos / Math.max(1L, kernelNanos));
+        System.out.printf("Totals match:          %s%n", streamCents == kernelCents);
+        System.out.printf("Partial months only, %d rows%n", head.size() + tail.size());
+        System.out.printf("Expense stream:        %8.3f ms per query%n", sliceStreamNanos / 1e6 / rounds);
+        System.out.printf("Kernels:               %8.3f ms per query%n", sliceKernelNanos / 1e6 / rounds);
+        System.out.printf("Speedup:               %8.1fx%n", (double) sliceStreamNanos / Math.max(1L, sliceKernelNanos));
+        System.out.printf("Totals match:          %s%n", sliceStreamCents == sliceKernelCents);
+    }
+
+    /**
+    Finds the first row on or after a day in a column sorted by day.
+    @param epochDays The day column, in ascending order.
+    @param epochDay The day to look for.
+    @return The index of the first row whose day is not before epochDay.
+    */
+    private static int lowerBound(long[] epochDays, long epochDay) {
+        int low = 0;
+        int high = epochDays.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
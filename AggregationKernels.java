@@ -0,0 +1,90 @@
+/**
+  Description: The AggregationKernels class holds the filtered reductions over the primitive
+			  columns of an expense partition: sum, count, minimum and maximum of the rows of
+			  one category within a slot range. Every kernel is a single counted loop with
+			  no early exit and no branch on the data; the filter is folded into a select,
+			  so HotSpot's C2 compiler can unroll the loop and turn the selects into
+			  conditional moves or vector blends. This keeps the kernels fast on every JDK
+			  without depending on the incubating jdk.incubator.vector module.
+			  Deleted rows are recognized by their zero id; their amount is zero as well.
+*/
+
+public final class AggregationKernels {
+
+    private AggregationKernels() {
+    }
+
+    /**
+    Sums the amounts of the rows of one category.
+    @param categoryIds The category id column.
+    @param cents The amount column in cents.
+    @param from The first slot, inclusive.
+    @param to The last slot, exclusive.
+    @param categoryId The category id to include.
+    @return The total in cents.
+    */
+    public static long sumWhere(byte[] categoryIds, long[] cents, int from, int to, int categoryId) {
+        byte target = (byte) categoryId;
+        long total = 0L;
+        for (int i = from; i < to; i++) {
+            total += categoryIds[i] == target ? cents[i] : 0L;
+        }
+        return total;
+    }
+
+    /**
+    Counts the live rows of one category.
+    @param categoryIds The category id column.
+    @param ids The id column, 0 for deleted rows.
+    @param from The first slot, inclusive.
+    @param to The last slot, exclusive.
+    @param categoryId The category id to include.
+    @return The number of matching rows.
+    */
+    public static int countWhere(byte[] categoryIds, long[] ids, int from, int to, int categoryId) {
+        byte target = (byte) categoryId;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            count += categoryIds[i] == target & ids[i] != 0L ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+    Finds the smallest amount among the live rows of one category.
+    @param categoryIds The category id column.
+    @param ids The id column, 0 for deleted rows.
+    @param cents The amount column in cents.
+    @param from The first slot, inclusive.
+    @param to The last slot, exclusive.
+    @param categoryId The category id to include.
+    @return The minimum in cents, or Long.MAX_VALUE if no row matches.
+    */
+    public static long minWhere(byte[] categoryIds, long[] ids, long[] cents, int from, int to, int categoryId) {
+        byte target = (byte) categoryId;
+        long minimum = Long.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            minimum = Math.min(minimum, categoryIds[i] == target & ids[i] != 0L ? cents[i] : Long.MAX_VALUE);
+        }
+        return minimum;
+    }
+
+    /**
+    Finds the largest amount among the live rows of one category.
+    @param categoryIds The category id column.
+    @param ids The id column, 0 for deleted rows.
+    @param cents The amount column in cents.
+    @param from The first slot, inclusive.
+    @param to The last slot, exclusive.
+    @param categoryId The category id to include.
+    @return The maximum in cents, or Long.MIN_VALUE if no row matches.
+    */
+    public static long maxWhere(byte[] categoryIds, long[] ids, long[] cents, int from, int to, int categoryId) {
+        byte target = (byte) categoryId;
+        long maximum = Long.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            maximum = Math.max(maximum, categoryIds[i] == target & ids[i] != 0L ? cents[i] : Long.MIN_VALUE);
+        }
+        return maximum;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+  Description: The BitmapIndex class maps every category id and every tag to a RoaringBitmap of
+			  the ids of the expenses that have it. It is kept up to date by the expense store
+			  as rows are added, changed and removed; ids never change when a row moves, so
+			  only changes to a row's category or tags touch the bitmaps. Filters combining
+			  categories and tags with AND, OR and NOT become bitmap algebra over these sets.
+*/
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BitmapIndex {
+    private RoaringBitmap[] categories; // Expense ids per dense category id, or null if unused
+    private final Map<String, RoaringBitmap> tags; // Expense ids per tag
+
+    /**
+    Constructs an empty index.
+    */
+    public BitmapIndex() {
+        this.categories = new RoaringBitmap[0];
+        this.tags = new HashMap<>();
+    }
+
+    /**
+    Records a row's category and tags.
+    @param id The expense id.
+    @param categoryId The dense category id of the row.
+    @param rowTags The row's tags.
+    */
+    public void add(long id, int categoryId, Collection<String> rowTags) {
+        if (categoryId >= categories.length) {
+            categories = Arrays.copyOf(categories, categoryId + 1);
+        }
+        if (categories[categoryId] == null) {
+            categories[categoryId] = new RoaringBitmap();
+        }
+        categories[categoryId].add(id);
+        for (String tag : rowTags) {
+            tags.computeIfAbsent(tag, key -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    /**
+    Forgets a row's category and tags.
+    @param id The expense id.
+    @param categoryId The dense category id the row had.
+    @param rowTags The tags the row had.
+    */
+    public void remove(long id, int categoryId, Collection<String> rowTags) {
+        categories[categoryId].remove(id);
+        for (String tag : rowTags) {
+            RoaringBitmap bitmap = tags.get(tag);
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                tags.remove(tag);
+            }
+        }
+    }
+
+    /**
+    Unites the bitmaps of several categories.
+    @param categoryIds The dense category ids.
+    @return A new bitmap of the ids in any of the categories.
+    */
+    public RoaringBitmap anyCategory(Collection<Integer> categoryIds) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (int id : categoryIds) {
+            if (id < categories.length && categories[id] != null) {
+                result = RoaringBitmap.or(result, categories[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+    Unites the bitmaps of every category, which gives every stored id.
+    @return A new bitmap of every id.
+    */
+    public RoaringBitmap all() {
+        RoaringBitmap result = new RoaringBitmap();
+        for (RoaringBitmap bitmap : categories) {
+            if (bitmap != null) {
+                result = RoaringBitmap.or(result, bitmap);
+            }
+        }
+        return result;
+    }
+
+    /**
+    Intersects the bitmaps of several tags.
+    @param tagNames The normalized tags; must not be empty.
+    @return A new bitmap of the ids that have every tag.
+    */
+    public RoaringBitmap allTags(Collection<String> tagNames) {
+        RoaringBitmap result = null;
+        for (String tag : tagNames) {
+            RoaringBitmap bitmap = tags.get(tag);
+            if (bitmap == null) {
+                return new RoaringBitmap();
+            }
+            result = result == null ? new RoaringBitmap(bitmap) : RoaringBitmap.and(result, bitmap);
+        }
+        return result;
+    }
+
+    /**
+    Unites the bitmaps of several tags.
+    @param tagNames The normalized tags.
+    @return A new bitmap of the ids that have any of the tags.
+    */
+    public RoaringBitmap anyTag(Collection<String> tagNames) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (String tag : tagNames) {
+            RoaringBitmap bitmap = tags.get(tag);
+            if (bitmap != null) {
+                result = RoaringBitmap.or(result, bitmap);
+            }
+        }
+        return result;
+    }
+}
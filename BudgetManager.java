@@ -1,20 +1,28 @@
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Primary Author: Advik Bargoti
  * Description: Manages budgets for different categories across various months.
  *              It interacts with an ExpenseManager.java to track expenses.
+ *              Budgets are kept in concurrent maps, so they can be read and set from any thread.
+ *              Each month holds an array of amounts in cents indexed by category id, which is replaced
+ *              on every change, so a renamed category keeps its budgets and totals are exact.
  */
 
 public class BudgetManager {
     // Encapsulation: Keeping budget data private to control access through public methods
-    private Map<String, Map<String, Double>> budgets; // Maps month to a map of categories and their budget amounts
+    private static final long UNSET = Long.MIN_VALUE; // Marks a category without a budget in a month's array
+    private Map<String, long[]> budgets; // Maps month to budget amounts in cents indexed by category id
     private ExpenseManager expenseManager; // Manages related expenses, showcasing the use of composition
-    private Runnable updateCallback; // Callback for notifying updates, illustrating dependency injection
+    private volatile Runnable updateCallback; // Callback for notifying updates, illustrating dependency injection
 
     /**
      * Constructs a BudgetManager with a linked ExpenseManager.
@@ -22,7 +30,7 @@ public class BudgetManager {
      */
     public BudgetManager(ExpenseManager expenseManager) {
         this.expenseManager = expenseManager;
-        this.budgets = new HashMap<>();
+        this.budgets = new ConcurrentHashMap<>();
         initializeDefaultBudgets();
     }
 
@@ -31,17 +39,23 @@ public class BudgetManager {
      */
     private void initializeDefaultBudgets() {
         try {
-            String currentMonth = YearMonth.now().toString();
-            budgets.put(currentMonth, new HashMap<>()); // Safe initialization of maps to avoid null pointers
-            for (String category : ExpenseManager.predefinedCategories) {
-                // Setting initial budget values, demonstrates default settings management
-                budgets.get(currentMonth).put(category, 1000.0);
-            }
+            long[] defaults = new long[ExpenseManager.predefinedCategories.size()];
+            // Setting initial budget values, demonstrates default settings management
+            Arrays.fill(defaults, 1000_00L);
+            budgets.put(YearMonth.now().toString(), defaults);
         } catch (Exception e) {
             System.err.println("Failed to initialize default budgets: " + e.getMessage());
         }
     }
 
+    /**
+     * Gets every category that can have a budget, in id order.
+     * @return A read-only list of category names.
+     */
+    public List<String> getCategories() {
+        return expenseManager.getCategories();
+    }
+
     /**
      * Sets a callback function that will be executed whenever the budget updates.
      * @param callback A Runnable callback to be triggered on budget updates.
@@ -55,14 +69,38 @@ public class BudgetManager {
      * @param category The budget category.
      * @param amount The budget amount.
      * @param month The month for which the budget is applicable.
+     * @throws IllegalArgumentException If the category is not registered.
      */
     public void setBudget(String category, double amount, YearMonth month) {
+        setBudgetCents(category, Money.toCents(amount), month);
+    }
+
+    /**
+     * Sets or updates the budget for a given category in a specific month, in cents.
+     * @param category The budget category.
+     * @param cents The budget amount in cents.
+     * @param month The month for which the budget is applicable.
+     * @throws IllegalArgumentException If the category is not registered.
+     */
+    public void setBudgetCents(String category, long cents, YearMonth month) {
         try {
             String monthKey = month.toString();
-            budgets.computeIfAbsent(monthKey, k -> new HashMap<>()); // Using computeIfAbsent for lazy map initialization
-            budgets.get(monthKey).put(category, amount);
-            if (updateCallback != null) {
-                updateCallback.run(); // Execute callback if set, showing dynamic behavior based on state
+            int id = expenseManager.getCategoryRegistry().idOf(Objects.requireNonNull(category));
+            if (id < 0) {
+                throw new IllegalArgumentException("Unknown category: " + category);
+            }
+            // Copy, change and replace the month's array; compute is atomic on the concurrent map
+            budgets.compute(monthKey, (key, current) -> {
+                int oldLength = current == null ? 0 : current.length;
+                long[] updated = Arrays.copyOf(current == null ? new long[0] : current, Math.max(id + 1, oldLength));
+                Arrays.fill(updated, oldLength, updated.length, UNSET);
+                updated[id] = cents;
+                return updated;
+            });
+            expenseManager.publishChange(ExpenseChangeEvent.budgetChanged(category, month));
+            Runnable callback = updateCallback;
+            if (callback != null) {
+                callback.run(); // Execute callback if set, showing dynamic behavior based on state
             }
         } catch (NullPointerException e) {
             System.err.println("Invalid category or month: " + e.getMessage()); // Exception handling to catch runtime errors
@@ -76,14 +114,41 @@ public class BudgetManager {
      * @return The budget amount, or 0.0 if no budget is set.
      */
     public double getBudget(String category, YearMonth month) {
+        return Money.toAmount(getBudgetCents(category, month));
+    }
+
+    /**
+     * Retrieves the budget amount in cents for a specified category and month.
+     * @param category The budget category.
+     * @param month The month for which the budget is queried.
+     * @return The budget amount in cents, or 0 if no budget is set.
+     */
+    public long getBudgetCents(String category, YearMonth month) {
         try {
-            String monthKey = month.toString();
-            // Safe retrieval with default values to prevent null pointers
-            return budgets.getOrDefault(monthKey, new HashMap<>()).getOrDefault(category, 0.0);
+            long[] amounts = budgets.get(month.toString());
+            int id = expenseManager.getCategoryRegistry().idOf(category);
+            // Unknown categories and unset budgets read as zero
+            return amounts == null || id < 0 || id >= amounts.length || amounts[id] == UNSET ? 0L : amounts[id];
         } catch (Exception e) {
             System.err.println("Error retrieving budget for " + category + ": " + e.getMessage());
         }
-        return 0.0;
+        return 0L;
+    }
+
+    /**
+     * Sums the budgets of every category in a month as exact integer cents.
+     * @param month The month to sum.
+     * @return The total budget in cents.
+     */
+    public long getTotalBudgetCents(YearMonth month) {
+        long[] amounts = budgets.get(month.toString());
+        long total = 0L;
+        if (amounts != null) {
+            for (long amount : amounts) {
+                total += amount == UNSET ? 0L : amount;
+            }
+        }
+        return total;
     }
 
     /**
@@ -92,9 +157,40 @@ public class BudgetManager {
      * @return A map of category names to their respective budget amounts.
      */
     public Map<String, Double> getAllBudgets(YearMonth month) {
-        String monthKey = month.toString();
-        // Return a new HashMap to encapsulate the original map and prevent external modifications
-        return new HashMap<>(budgets.getOrDefault(monthKey, new HashMap<>()));
+        // Return a new HashMap to encapsulate the original array and prevent external modifications
+        Map<String, Double> amounts = new HashMap<>();
+        toMap(budgets.get(month.toString()), expenseManager.getCategories())
+            .forEach((category, cents) -> amounts.put(category, Money.toAmount(cents)));
+        return amounts;
+    }
+
+    /**
+     * Copies every budget of every month, for use in snapshots.
+     * @return A map of month keys to maps of categories and their budget amounts in cents, independent of later changes.
+     */
+    public Map<String, Map<String, Long>> copyAllBudgetCents() {
+        List<String> names = expenseManager.getCategories();
+        Map<String, Map<String, Long>> copy = new HashMap<>();
+        budgets.forEach((monthKey, amounts) -> copy.put(monthKey, toMap(amounts, names)));
+        return copy;
+    }
+
+    /**
+     * Converts a month's budget array to a map of category names, leaving out unset budgets.
+     * @param amounts The budget amounts in cents indexed by category id, or null.
+     * @param names The category names indexed by id.
+     * @return A new map of category names to budget amounts in cents.
+     */
+    private static Map<String, Long> toMap(long[] amounts, List<String> names) {
+        Map<String, Long> map = new HashMap<>();
+        if (amounts != null) {
+            for (int id = 0; id < amounts.length && id < names.size(); id++) {
+                if (amounts[id] != UNSET) {
+                    map.put(names.get(id), amounts[id]);
+                }
+            }
+        }
+        return map;
     }
 
     /**
@@ -105,14 +201,8 @@ public class BudgetManager {
      */
     public double calculateTotalExpensesByCategory(String category, YearMonth month) {
         try {
-            double total = 0.0;
-            // Iterative calculation to sum expenses, uses safe navigation of data structures
-            for (Expense expense : expenseManager.filterByCategory(category)) {
-                if (YearMonth.from(expense.getDate()).equals(month)) {
-                    total += expense.getAmount();
-                }
-            }
-            return total;
+            // Reads the running monthly aggregate instead of rescanning every expense
+            return expenseManager.calculateMonthlyExpensesByCategory(category, month);
         } catch (Exception e) {
             System.err.println("Error calculating expenses for " + category + ": " + e.getMessage());
         }
@@ -127,9 +217,11 @@ public class BudgetManager {
     public Map<String, Double> calculateBudgetUtilization(YearMonth month) {
         Map<String, Double> utilization = new HashMap<>();
         try {
-            // Calculation logic demonstrating data retrieval and mathematical computation
-            for (String category : ExpenseManager.predefinedCategories) {
-                double expenses = calculateTotalExpensesByCategory(category, month);
+            // Reads every category total of the month in one pass over its aggregate
+            Map<String, Double> totals = expenseManager.getMonthlyTotalsByCategory(month);
+            for (Map.Entry<String, Double> entry : totals.entrySet()) {
+                String category = entry.getKey();
+                double expenses = entry.getValue();
                 double budget = getBudget(category, month);
                 double usage = budget > 0 ? (expenses / budget) * 100 : 0;
                 utilization.put(category, usage);
@@ -152,8 +244,7 @@ public class BudgetManager {
                 months.add(YearMonth.parse(monthKey));
             }
             // Ensuring no duplicate months are added, illustrates defensive programming
-            expenseManager.getAllExpenses().forEach(expense -> {
-                YearMonth expenseMonth = YearMonth.from(expense.getDate());
+            expenseManager.getExpenseMonths().forEach(expenseMonth -> {
                 if (!months.contains(expenseMonth)) {
                     months.add(expenseMonth);
                 }
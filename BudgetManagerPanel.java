@@ -3,6 +3,7 @@ import java.awt.*;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.List;
 
 /**
  * Primary Author: Advik Bargoti
@@ -16,6 +17,7 @@ public class BudgetManagerPanel extends JPanel {
     private Map<String, Boolean> warningShown;
     private JComboBox<String> monthSelector;
     private YearMonth selectedMonth;
+    private JPanel categoriesPanel; // Holds one budget panel per category
     private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MMMM yyyy");
 
     /**
@@ -29,10 +31,6 @@ public class BudgetManagerPanel extends JPanel {
         this.warningShown = new HashMap<>();
         this.selectedMonth = YearMonth.now();
         
-        for (String category : ExpenseManager.predefinedCategories) {
-            warningShown.put(category, false);
-        }
-        
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         
@@ -94,8 +92,8 @@ public class BudgetManagerPanel extends JPanel {
      * Initializes the panel for budget management.
      */
     private void initializeBudgetPanel() {
-        JPanel mainPanel = new JPanel(new GridLayout(0, 1, 0, 20));
-        mainPanel.setBorder(BorderFactory.createTitledBorder(
+        categoriesPanel = new JPanel(new GridLayout(0, 1, 0, 20));
+        categoriesPanel.setBorder(BorderFactory.createTitledBorder(
             BorderFactory.createCompoundBorder(
                 BorderFactory.createLineBorder(new Color(200, 200, 200)),
                 BorderFactory.createEmptyBorder(10, 10, 10, 10)
@@ -103,15 +101,28 @@ public class BudgetManagerPanel extends JPanel {
             "Budget Management"
         ));
 
-        for (String category : ExpenseManager.predefinedCategories) {
-            mainPanel.add(createCategoryPanel(category));
-        }
+        rebuildCategoryPanels();
 
-        JScrollPane scrollPane = new JScrollPane(mainPanel);
+        JScrollPane scrollPane = new JScrollPane(categoriesPanel);
         scrollPane.setBorder(null);
         add(scrollPane, BorderLayout.CENTER);
     }
 
+    /**
+     * Recreates the budget panel of every category, for example after a category is added or renamed.
+     */
+    public void rebuildCategoryPanels() {
+        categoriesPanel.removeAll();
+        progressBars.clear();
+        budgetFields.clear();
+        for (String category : budgetManager.getCategories()) {
+            warningShown.putIfAbsent(category, false);
+            categoriesPanel.add(createCategoryPanel(category));
+        }
+        categoriesPanel.revalidate();
+        categoriesPanel.repaint();
+    }
+
     /**
      * Creates a panel for managing budget of a specific category.
      * @param category The category for which to manage the budget.
@@ -293,16 +304,43 @@ public class BudgetManagerPanel extends JPanel {
      * Updates all progress bars based on the current budget and expenses.
      */
     public void updateAllProgressBars() {
-        for (String category : ExpenseManager.predefinedCategories) {
+        for (String category : budgetManager.getCategories()) {
             updateProgressBar(category);
         }
     }
 
+    /**
+     * Updates the progress bars of the categories touched by the given change events
+     * in the selected month. Events for other months are ignored, and a category change
+     * rebuilds every category panel.
+     * @param events The change events to apply.
+     */
+    public void applyChanges(List<ExpenseChangeEvent> events) {
+        if (events.stream().anyMatch(event -> event.getType() == ExpenseChangeEvent.Type.CATEGORY_CHANGED)) {
+            rebuildCategoryPanels();
+            return;
+        }
+        Set<String> affectedCategories = new LinkedHashSet<>();
+        for (ExpenseChangeEvent event : events) {
+            if (event.getMonth().equals(selectedMonth)) {
+                affectedCategories.add(event.getCategory());
+            }
+            if (event.getPreviousMonth().equals(selectedMonth)) {
+                affectedCategories.add(event.getPreviousCategory());
+            }
+        }
+        for (String category : affectedCategories) {
+            if (progressBars.containsKey(category)) {
+                updateProgressBar(category);
+            }
+        }
+    }
+
     /**
      * Resets the warning flags for all categories.
      */
     public void resetWarningFlags() {
-        for (String category : ExpenseManager.predefinedCategories) {
+        for (String category : budgetManager.getCategories()) {
             warningShown.put(category, false);
         }
     }
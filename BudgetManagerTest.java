@@ -42,6 +42,13 @@ class BudgetManagerTest {
         assertEquals(0.0, budgetManager.getBudget("NonexistentCategory", currentMonth));
     }
 
+    @Test
+    void testSetBudgetForUnknownCategory() {
+        assertThrows(IllegalArgumentException.class,
+            () -> budgetManager.setBudget("NonexistentCategory", 100.0, currentMonth));
+        assertFalse(expenseManager.getCategories().contains("NonexistentCategory"));
+    }
+
     @Test
     void testCalculateTotalExpensesByCategory() {
         LocalDate today = LocalDate.now();
@@ -0,0 +1,151 @@
+/**
+  Description: The CategoryRegistry class interns category names to dense integer ids, starting
+			  from 0 in registration order. Expenses, budgets and aggregates store the id, so
+			  comparing categories is an integer compare and per-category data fits in arrays
+			  indexed by id. Renaming a category only changes the name of its id, so every
+			  expense and budget of the category follows without being rewritten. Ids fit in
+			  one byte, which is what the expense partitions store per row.
+			  Reads are lock-free: the name list is replaced, never changed, on every update.
+			  Names cannot hold the separators of the saved data and statement files.
+*/
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CategoryRegistry {
+    public static final int MAX_CATEGORIES = 256; // Ids must fit in an unsigned byte
+    private static final String SEPARATORS = ",;\r\n"; // Field, tag and line separators of the data files
+
+    private volatile List<String> names; // Name of each id, replaced on every update
+    private final Map<String, Integer> ids; // Name to id, guarded by this
+
+    /**
+    Constructs a registry holding the given categories with ids in their order.
+    @param initialCategories The categories to register first.
+    */
+    public CategoryRegistry(List<String> initialCategories) {
+        this.names = Collections.emptyList();
+        this.ids = new HashMap<>();
+        for (String category : initialCategories) {
+            register(category);
+        }
+    }
+
+    /**
+    Gets the id of a category, registering it if it is new.
+    @param name The category name.
+    @return The category's id.
+    @throws IllegalArgumentException If the name is null or blank, or contains a comma, semicolon or line break.
+    @throws IllegalStateException If the registry is full.
+    */
+    public synchronized int register(String name) {
+        checkName(name);
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (names.size() >= MAX_CATEGORIES) {
+            throw new IllegalStateException("Too many distinct categories.");
+        }
+        List<String> updated = new ArrayList<>(names);
+        updated.add(name);
+        ids.put(name, updated.size() - 1);
+        names = Collections.unmodifiableList(updated);
+        return updated.size() - 1;
+    }
+
+    /**
+    Renames a category. The id stays the same.
+    @param oldName The current name.
+    @param newName The new name.
+    @return The id of the renamed category.
+    @throws IllegalArgumentException If oldName is not registered, or newName is blank, contains a comma, semicolon or line break, or is already used by another category, ignoring case.
+    */
+    public synchronized int rename(String oldName, String newName) {
+        Integer id = ids.get(oldName);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown category: " + oldName);
+        }
+        checkName(newName);
+        int existing = idOfIgnoreCase(newName);
+        if (existing >= 0 && existing != id) {
+            throw new IllegalArgumentException("Category already exists: " + newName);
+        }
+        List<String> updated = new ArrayList<>(names);
+        updated.set(id, newName);
+        ids.remove(oldName);
+        ids.put(newName, id);
+        names = Collections.unmodifiableList(updated);
+        return id;
+    }
+
+    /**
+    Fails if a name is blank or holds a character that separates fields, tags or lines in the
+    data files, which would split the name when the file is read back.
+    */
+    private static void checkName(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Category name cannot be empty.");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (SEPARATORS.indexOf(name.charAt(i)) >= 0) {
+                throw new IllegalArgumentException("Category names cannot contain commas, semicolons or line breaks: " + name);
+            }
+        }
+    }
+
+    /**
+    Gets the id of a category.
+    @param name The exact category name.
+    @return The id, or -1 if the category is not registered.
+    */
+    public synchronized int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+    Gets the id of a category, ignoring case.
+    @param name The category name in any case.
+    @return The id, or -1 if no category has that name.
+    */
+    public int idOfIgnoreCase(String name) {
+        List<String> current = names;
+        for (int id = 0; id < current.size(); id++) {
+            if (current.get(id).equalsIgnoreCase(name)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+    Gets the name of a category id.
+    @param id The category id.
+    @return The current name.
+    @throws IndexOutOfBoundsException If the id is not registered.
+    */
+    public String nameOf(int id) {
+        return names.get(id);
+    }
+
+    /**
+    Gets the name of every category, indexed by id. The list never changes; later updates
+    replace it.
+    @return A read-only list of names.
+    */
+    public List<String> names() {
+        return names;
+    }
+
+    /**
+    Gets the number of registered categories.
+    @return The category count.
+    */
+    public int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,92 @@
+/**
+  Description: The CategorySummary class is an immutable snapshot of the running aggregate for
+			  one category in one month: how many expenses it has, their total, and the
+			  smallest and largest amount. Summaries of a date range that spans several months
+			  have no month.
+*/
+
+import java.time.YearMonth;
+
+public class CategorySummary {
+    private final String category; // The category being summarized
+    private final YearMonth month; // The month being summarized
+    private final int count; // Number of expenses
+    private final long totalCents; // Sum of the amounts in cents
+    private final long minimumCents; // Smallest amount in cents
+    private final long maximumCents; // Largest amount in cents
+
+    /**
+    Constructs a CategorySummary with the given values.
+    @param category The category being summarized.
+    @param month The month being summarized.
+    @param count The number of expenses.
+    @param totalCents The sum of the amounts in cents.
+    @param minimumCents The smallest amount in cents.
+    @param maximumCents The largest amount in cents.
+    */
+    public CategorySummary(String category, YearMonth month, int count,
+                           long totalCents, long minimumCents, long maximumCents) {
+        this.category = category;
+        this.month = month;
+        this.count = count;
+        this.totalCents = totalCents;
+        this.minimumCents = minimumCents;
+        this.maximumCents = maximumCents;
+    }
+
+    /**
+    Gets the category being summarized.
+    @return The category name.
+    */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+    Gets the month being summarized.
+    @return The month, or null for a summary spanning several months.
+    */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+    Gets the number of expenses.
+    @return The number of expenses in the category for the month.
+    */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+    Gets the total amount.
+    @return The sum of the amounts.
+    */
+    public double getTotal() {
+        return totalCents / 100.0;
+    }
+
+    /**
+    Gets the smallest amount.
+    @return The smallest amount, or 0 if there are no expenses.
+    */
+    public double getMinimum() {
+        return minimumCents / 100.0;
+    }
+
+    /**
+    Gets the largest amount.
+    @return The largest amount, or 0 if there are no expenses.
+    */
+    public double getMaximum() {
+        return maximumCents / 100.0;
+    }
+
+    /**
+    Gets the average amount.
+    @return The average amount, or 0 if there are no expenses.
+    */
+    public double getAverage() {
+        return count == 0 ? 0.0 : totalCents / 100.0 / count;
+    }
+}
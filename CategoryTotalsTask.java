@@ -0,0 +1,140 @@
+/**
+  Description: The CategoryTotalsTask class computes the count, sum, minimum and maximum amount of
+			  every category over a range of rows, reading the amount and category columns
+			  directly. It is a fork/join task: ranges larger than the leaf size are split in
+			  half and the halves' totals are merged, so a large date range is summed on every
+			  core of the pool.
+*/
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+public class CategoryTotalsTask extends RecursiveTask<CategoryTotalsTask.Totals> {
+    private static final long serialVersionUID = 1L;
+    private final PartitionSlices slices; // The rows to aggregate, laid end to end
+    private final int categoryCount; // Number of dense category ids
+    private final int origin; // First position of this task's range
+    private final int fence; // One past the last position of this task's range
+    private final int leafSize; // Ranges at most this long are summed without splitting
+
+    /**
+    Constructs a task over a range of positions.
+    @param slices The rows to aggregate. Their partitions must not change while the task runs.
+    @param categoryCount The number of dense category ids.
+    @param origin The first position to read.
+    @param fence One past the last position to read.
+    @param leafSize The largest range summed without splitting.
+    */
+    public CategoryTotalsTask(PartitionSlices slices, int categoryCount, int origin, int fence, int leafSize) {
+        this.slices = slices;
+        this.categoryCount = categoryCount;
+        this.origin = origin;
+        this.fence = fence;
+        this.leafSize = Math.max(1, leafSize);
+    }
+
+    @Override
+    protected Totals compute() {
+        if (fence - origin <= leafSize) {
+            return sum();
+        }
+        int middle = (origin + fence) >>> 1;
+        CategoryTotalsTask left = new CategoryTotalsTask(slices, categoryCount, origin, middle, leafSize);
+        CategoryTotalsTask right = new CategoryTotalsTask(slices, categoryCount, middle, fence, leafSize);
+        left.fork();
+        Totals totals = right.compute();
+        totals.merge(left.join());
+        return totals;
+    }
+
+    /**
+    Sums this task's range sequentially.
+    */
+    private Totals sum() {
+        Totals totals = new Totals(categoryCount);
+        int position = origin;
+        int slice = position < fence ? slices.sliceAt(position) : 0;
+        while (position < fence) {
+            ExpensePartition partition = slices.partition(slice);
+            int end = Math.min(fence, slices.end(slice));
+            for (int slot = slices.slot(slice, position); position < end; position++, slot++) {
+                if (partition.isLive(slot)) {
+                    totals.add(partition.categoryId(slot), partition.amountCents(slot));
+                }
+            }
+            slice++;
+        }
+        return totals;
+    }
+
+    /**
+    The count, sum, minimum and maximum in cents of every category id.
+    */
+    public static class Totals {
+        private final int[] counts;
+        private final long[] sums;
+        private final long[] minimums;
+        private final long[] maximums;
+
+        Totals(int categoryCount) {
+            this.counts = new int[categoryCount];
+            this.sums = new long[categoryCount];
+            this.minimums = new long[categoryCount];
+            this.maximums = new long[categoryCount];
+            Arrays.fill(minimums, Long.MAX_VALUE);
+            Arrays.fill(maximums, Long.MIN_VALUE);
+        }
+
+        void add(int categoryId, long cents) {
+            counts[categoryId]++;
+            sums[categoryId] += cents;
+            minimums[categoryId] = Math.min(minimums[categoryId], cents);
+            maximums[categoryId] = Math.max(maximums[categoryId], cents);
+        }
+
+        void merge(Totals other) {
+            for (int id = 0; id < counts.length; id++) {
+                counts[id] += other.counts[id];
+                sums[id] += other.sums[id];
+                minimums[id] = Math.min(minimums[id], other.minimums[id]);
+                maximums[id] = Math.max(maximums[id], other.maximums[id]);
+            }
+        }
+
+        /**
+        Gets the number of rows of a category.
+        @param categoryId The dense category id.
+        @return The row count.
+        */
+        public int count(int categoryId) {
+            return counts[categoryId];
+        }
+
+        /**
+        Gets the total of a category.
+        @param categoryId The dense category id.
+        @return The total in cents.
+        */
+        public long sum(int categoryId) {
+            return sums[categoryId];
+        }
+
+        /**
+        Gets the smallest amount of a category.
+        @param categoryId The dense category id.
+        @return The minimum in cents, or 0 if the category has no rows.
+        */
+        public long minimum(int categoryId) {
+            return counts[categoryId] == 0 ? 0L : minimums[categoryId];
+        }
+
+        /**
+        Gets the largest amount of a category.
+        @param categoryId The dense category id.
+        @return The maximum in cents, or 0 if the category has no rows.
+        */
+        public long maximum(int categoryId) {
+            return counts[categoryId] == 0 ? 0L : maximums[categoryId];
+        }
+    }
+}
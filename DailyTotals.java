@@ -0,0 +1,137 @@
+/**
+  Description: The DailyTotals class keeps a time series of cent totals per category with one
+			  bucket per day, plus a prefix sum over the buckets. A change only updates its
+			  bucket and marks the prefix sums stale from that day on; the next query brings
+			  them up to date once, after which the total or average of any window of days,
+			  such as the trailing 7, 30 or 90 days, is two array reads. New expenses are
+			  usually recent, so the stale tail is short. The covered days double whenever a
+			  date falls outside them, up to RangeSumTree.MAX_SPAN days, the same bound as the
+			  range sums; the store's date window keeps both well inside it.
+			  Only the live store keeps a series; snapshots never read it, so it is updated in
+			  place and never copied.
+*/
+
+import java.util.Arrays;
+
+public class DailyTotals {
+    private static final int INITIAL_SPAN = 512; // Days covered before the first growth
+
+    private long[][] buckets; // Per dense category id, the total of each covered day, or null if unused
+    private long[][] prefixSums; // Per category id, the total of the days before each index
+    private int[] staleFrom; // Per category id, the first prefix sum that is out of date
+    private int originDay; // Epoch day of the first covered day
+    private int span; // Number of covered days
+
+    /**
+    Constructs an empty series that covers no days yet.
+    */
+    public DailyTotals() {
+        this.buckets = new long[0][];
+        this.prefixSums = new long[0][];
+        this.staleFrom = new int[0];
+    }
+
+    /**
+    Adds an amount to a category's bucket for a day. Pass a negative amount to take one away.
+    @param categoryId The dense category id.
+    @param epochDay The day as an epoch day.
+    @param cents The amount in cents.
+    @throws IllegalArgumentException If covering the day would take more than RangeSumTree.MAX_SPAN days. Nothing is changed then.
+    */
+    public synchronized void add(int categoryId, int epochDay, long cents) {
+        cover(epochDay);
+        if (categoryId >= buckets.length) {
+            buckets = Arrays.copyOf(buckets, categoryId + 1);
+            prefixSums = Arrays.copyOf(prefixSums, categoryId + 1);
+            staleFrom = Arrays.copyOf(staleFrom, categoryId + 1);
+        }
+        if (buckets[categoryId] == null) {
+            buckets[categoryId] = new long[span];
+            prefixSums[categoryId] = new long[span + 1];
+            staleFrom[categoryId] = span + 1;
+        }
+        int index = epochDay - originDay;
+        buckets[categoryId][index] += cents;
+        staleFrom[categoryId] = Math.min(staleFrom[categoryId], index + 1);
+    }
+
+    /**
+    Sums a category's buckets over an inclusive range of days.
+    @param categoryId The dense category id.
+    @param startDay The first epoch day.
+    @param endDay The last epoch day.
+    @return The total in cents.
+    */
+    public synchronized long sum(int categoryId, long startDay, long endDay) {
+        if (categoryId >= buckets.length || buckets[categoryId] == null) {
+            return 0L;
+        }
+        long from = Math.max(startDay, originDay);
+        long to = Math.min(endDay, (long) originDay + span - 1);
+        if (from > to) {
+            return 0L;
+        }
+        long[] prefix = refresh(categoryId);
+        return prefix[(int) (to - originDay + 1)] - prefix[(int) (from - originDay)];
+    }
+
+    /**
+    Sums a category's buckets over the days ending with the given one.
+    @param categoryId The dense category id.
+    @param endDay The last epoch day of the window.
+    @param days The number of days in the window.
+    @return The total in cents.
+    */
+    public long trailingSum(int categoryId, long endDay, int days) {
+        return sum(categoryId, endDay - days + 1, endDay);
+    }
+
+    /**
+    Brings a category's prefix sums up to date from its first stale one.
+    */
+    private long[] refresh(int categoryId) {
+        long[] prefix = prefixSums[categoryId];
+        long[] daily = buckets[categoryId];
+        for (int i = staleFrom[categoryId]; i <= span; i++) {
+            prefix[i] = prefix[i - 1] + daily[i - 1];
+        }
+        staleFrom[categoryId] = span + 1;
+        return prefix;
+    }
+
+    /**
+    Widens the covered days to include the given day. Fails before changing anything if the
+    wider span would exceed RangeSumTree.MAX_SPAN.
+    */
+    private void cover(int epochDay) {
+        if (span == 0) {
+            span = INITIAL_SPAN;
+            originDay = epochDay - INITIAL_SPAN / 4; // Expenses mostly arrive in date order, so most room is left ahead
+            return;
+        }
+        if (epochDay >= originDay && epochDay - originDay < span) {
+            return;
+        }
+        long low = Math.min(originDay, epochDay);
+        long high = Math.max((long) originDay + span, (long) epochDay + 1);
+        if (high - low > RangeSumTree.MAX_SPAN) {
+            throw new IllegalArgumentException("Dates span more than " + RangeSumTree.MAX_SPAN + " days.");
+        }
+        // Leaves room, so growing stays rare
+        int newSpan = (int) Math.min(Math.max(2L * span, 2 * (high - low)), RangeSumTree.MAX_SPAN);
+        int newOrigin = epochDay < originDay ? (int) (high - newSpan) : originDay;
+        int shift = originDay - newOrigin;
+        for (int id = 0; id < buckets.length; id++) {
+            if (buckets[id] == null) {
+                continue;
+            }
+            long[] widened = new long[newSpan];
+            System.arraycopy(buckets[id], 0, widened, shift, span);
+            buckets[id] = widened;
+            prefixSums[id] = new long[newSpan + 1];
+            staleFrom[id] = 1;
+        }
+        originDay = newOrigin;
+        span = newSpan;
+    }
+}
@@ -2,11 +2,9 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import javax.swing.border.EmptyBorder;
-import java.text.NumberFormat;
+import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 
 // Primary Author: Harshit
 /**
@@ -14,11 +12,14 @@ import java.util.Map;
  * This includes a summary of financial information and quick access buttons to main features.
  */
 public class DashboardPanel extends JPanel {
+    private static final int TRAILING_DAYS = 30; // Days covered by the "Last 30 Days" card
+
     private ExpenseManager expenseManager;
     private User currentUser;
     private JPanel totalBudgetLabel;
     private JPanel totalExpensesLabel;
     private JPanel remainingBudgetLabel;
+    private JPanel trailingExpensesLabel;
     private JTabbedPane parentTabbedPane;
 
     /**
@@ -60,7 +61,7 @@ public class DashboardPanel extends JPanel {
         headerPanel.add(welcomeLabel, BorderLayout.WEST);
 
         // Create the summary panel for financial information
-        JPanel summaryPanel = new JPanel(new GridLayout(1, 3, 20, 0));
+        JPanel summaryPanel = new JPanel(new GridLayout(1, 4, 20, 0));
         summaryPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
         summaryPanel.setBackground(Color.WHITE);
 
@@ -68,10 +69,12 @@ public class DashboardPanel extends JPanel {
         totalBudgetLabel = createSummaryCardPanel("Total Budget", "0.00");
         totalExpensesLabel = createSummaryCardPanel("Total Expenses", "0.00");
         remainingBudgetLabel = createSummaryCardPanel("Remaining Budget", "0.00");
+        trailingExpensesLabel = createSummaryCardPanel("Last 30 Days", "0.00");
 
         summaryPanel.add(totalBudgetLabel);
         summaryPanel.add(totalExpensesLabel);
         summaryPanel.add(remainingBudgetLabel);
+        summaryPanel.add(trailingExpensesLabel);
 
         // Add the summary panel to the header panel
         headerPanel.add(summaryPanel, BorderLayout.CENTER);
@@ -152,8 +155,8 @@ public class DashboardPanel extends JPanel {
         DefaultTableModel tableModel = new DefaultTableModel(columnNames, 0);
         JTable recentTransactionsTable = new JTable(tableModel);
         
-        // Add the 5 most recent transactions
-        List<Expense> allExpenses = expenseManager.getAllExpenses();
+        // Add the 5 most recent transactions, all read from one snapshot
+        List<Expense> allExpenses = expenseManager.snapshot().getAllExpenses();
         int startIndex = Math.max(0, allExpenses.size() - 5);
         for (int i = startIndex; i < allExpenses.size(); i++) {
             Expense expense = allExpenses.get(i);
@@ -204,9 +207,18 @@ public class DashboardPanel extends JPanel {
     }
 
     /**
-     * Updates the financial summary display with current budget and expense information.
-     * This method should be called whenever the underlying data changes.
+     * Checks whether a change touches a number the summary shows: the current month's
+     * budgets and expenses, or the expenses of the trailing window, which can reach back
+     * into the previous month.
+     *
+     * @param event The change to check
+     * @return True if the summary should be updated
      */
+    public boolean isAffectedBy(ExpenseChangeEvent event) {
+        LocalDate today = LocalDate.now();
+        return event.affects(YearMonth.from(today)) || event.affects(today.minusDays(TRAILING_DAYS - 1), today);
+    }
+
     /**
      * Updates the financial summary display with current budget and expense information.
      * This method should be called whenever the underlying data changes.
@@ -214,32 +226,21 @@ public class DashboardPanel extends JPanel {
     public void updateFinancialSummary() {
         YearMonth currentMonth = YearMonth.now();
 
-        // Calculate total budget
-        Map<String, Double> allBudgets = expenseManager.getBudgetManager().getAllBudgets(currentMonth);
-        double totalBudget = 0.0;
-        for (Double budget : allBudgets.values()) {
-            totalBudget += budget;
-        }
-
-        // Calculate total expenses
-        List<Expense> allExpenses = expenseManager.getAllExpenses();
-        double totalExpenses = 0.0;
-        for (Expense expense : allExpenses) {
-            if (YearMonth.from(expense.getDate()).equals(currentMonth)) {
-                totalExpenses += expense.getAmount();
-            }
-        }
+        // Sum the budgets and read total expenses from the running monthly aggregate, both in exact cents
+        long totalBudget = expenseManager.getBudgetManager().getTotalBudgetCents(currentMonth);
+        long totalExpenses = expenseManager.calculateMonthlyTotalCents(currentMonth);
 
         // Calculate remaining budget
-        double remainingBudget = totalBudget - totalExpenses;
+        long remainingBudget = totalBudget - totalExpenses;
 
-        // Format values as currency
-        NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance(Locale.US);
+        // Read the trailing 30-day total from the daily prefix sums instead of scanning expenses
+        long trailingExpenses = expenseManager.getTrailingTotalCents(null, LocalDate.now(), TRAILING_DAYS);
 
         // Update summary panels
-        updateSummaryCardPanel(totalBudgetLabel, "Total Budget", currencyFormatter.format(totalBudget));
-        updateSummaryCardPanel(totalExpensesLabel, "Total Expenses", currencyFormatter.format(totalExpenses));
-        updateSummaryCardPanel(remainingBudgetLabel, "Remaining Budget", currencyFormatter.format(remainingBudget));
+        updateSummaryCardPanel(totalBudgetLabel, "Total Budget", Money.formatCurrency(totalBudget));
+        updateSummaryCardPanel(totalExpensesLabel, "Total Expenses", Money.formatCurrency(totalExpenses));
+        updateSummaryCardPanel(remainingBudgetLabel, "Remaining Budget", Money.formatCurrency(remainingBudget));
+        updateSummaryCardPanel(trailingExpensesLabel, "Last 30 Days", Money.formatCurrency(trailingExpenses));
 
         revalidate();
         repaint();
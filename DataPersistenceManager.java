@@ -55,27 +55,37 @@ public class DataPersistenceManager {
     public void saveUserData(User user, ExpenseManager expenseManager) {
     	   String userDataPath = DATA_DIR + "/" + getUserDataFileName(user.getUsername());
 
+    	   // Writes from one snapshot so budgets and expenses match even while other threads change them
+    	   ExpenseSnapshot snapshot = expenseManager.snapshot();
+
     	   try (BufferedWriter writer = new BufferedWriter(new FileWriter(userDataPath))) {
+    	       // Categories are written in id order so renamed and added categories load with the same ids
+    	       writer.write("[CATEGORIES]\n");
+    	       for (String category : snapshot.getCategories()) {
+    	           writer.write(category + "\n");
+    	       }
+
     	       writer.write("[BUDGETS]\n");
-    	       ArrayList<YearMonth> months = expenseManager.getBudgetManager().getAvailableMonths();
+    	       List<YearMonth> months = snapshot.getAvailableMonths();
 
     	       for (YearMonth month : months) {
-    	           Map<String, Double> budgets = expenseManager.getBudgetManager().getAllBudgets(month);
-    	           for (Map.Entry<String, Double> entry : budgets.entrySet()) {
+    	           Map<String, Long> budgets = snapshot.getAllBudgetCents(month);
+    	           for (Map.Entry<String, Long> entry : budgets.entrySet()) {
     	               String line = month.toString() + "," + entry.getKey() + "," + 
-    	                   String.format("%.2f", entry.getValue()) + "\n";
+    	                   Money.format(entry.getValue()) + "\n";
     	               writer.write(line);
     	           }
     	       }
 
     	       writer.write("[EXPENSES]\n");
-    	       List<Expense> expenses = expenseManager.getAllExpenses();
+    	       List<Expense> expenses = snapshot.getAllExpenses();
     	       
     	       for (Expense expense : expenses) {
     	           String line = expense.getDate() + "," +
     	               expense.getCategory() + "," +
-    	               String.format("%.2f", expense.getAmount()) + "," +
-    	               expense.getDescription().replace(",", ";") + "\n";
+    	               Money.format(expense.getAmountCents()) + "," +
+    	               expense.getDescription().replace(",", ";") + "," +
+    	               String.join(";", expense.getTags()) + "\n";
     	           writer.write(line);
     	       }
 
@@ -86,27 +96,40 @@ public class DataPersistenceManager {
 
     /**
     Loads user and expense data from a file in the data directory.
+    All budgets and expenses are applied in one batch, so budgets and the GUI refresh once.
+    A malformed line is skipped and reported rather than ending the load; if any are skipped,
+    the file is backed up, so the next save cannot destroy the lines that were not loaded.
     @param user The user whose data is being loaded.
     @param expenseManager The manager handling user's expense data.
+    @return The number of lines skipped as malformed.
     */
-    public void loadUserData(User user, ExpenseManager expenseManager) {
+    public int loadUserData(User user, ExpenseManager expenseManager) {
         String userDataPath = Paths.get(DATA_DIR, getUserDataFileName(user.getUsername())).toString();
         System.out.println("Attempting to load data for user: " + user.getUsername());
         System.out.println("Loading from path: " + userDataPath);
         
         if (!Files.exists(Paths.get(userDataPath))) {
             System.out.println("No existing data file found for user");
-            return;
+            return 0;
         }
         
+        int skippedCount = 0;
+        expenseManager.beginBatch();
         try (BufferedReader reader = new BufferedReader(new FileReader(userDataPath))) {
             String line;
             String section = "";
+            int lineNumber = 0;
+            int categoryCount = 0;
             int budgetCount = 0;
             int expenseCount = 0;
             
             while ((line = reader.readLine()) != null) {
-                if (line.equals("[BUDGETS]")) {
+                lineNumber++;
+                if (line.equals("[CATEGORIES]")) {
+                    section = "CATEGORIES";
+                    System.out.println("Reading categories section");
+                    continue;
+                } else if (line.equals("[BUDGETS]")) {
                     section = "BUDGETS";
                     System.out.println("Reading budgets section");
                     continue;
@@ -116,29 +139,46 @@ public class DataPersistenceManager {
                     continue;
                 }
                 
-                if (section.equals("BUDGETS")) {
-                    String[] parts = line.split(",");
-                    if (parts.length == 3) {
+                if (line.isBlank() && !section.equals("CATEGORIES")) {
+                    continue;
+                }
+                try {
+                    if (section.equals("CATEGORIES")) {
+                        loadCategory(expenseManager, categoryCount++, line);
+                    } else if (section.equals("BUDGETS")) {
+                        String[] parts = line.split(",");
+                        if (parts.length != 3) {
+                            throw new IllegalArgumentException("Invalid number of fields");
+                        }
                         YearMonth month = YearMonth.parse(parts[0]);
                         String category = parts[1];
-                        double amount = Double.parseDouble(parts[2]);
-                        expenseManager.getBudgetManager().setBudget(category, amount, month);
+                        long cents = Money.parse(parts[2]);
+                        expenseManager.getBudgetManager().setBudgetCents(category, cents, month);
                         budgetCount++;
-                        System.out.println("Loaded budget: " + category + " = " + amount + " for " + month);
-                    }
-                } else if (section.equals("EXPENSES")) {
-                    String[] parts = line.split(",", 4);
-                    if (parts.length == 4) {
-                        Expense expense = new Expense(
+                        System.out.println("Loaded budget: " + category + " = " + Money.format(cents) + " for " + month);
+                    } else if (section.equals("EXPENSES")) {
+                        // Files saved before tags existed have four fields
+                        String[] parts = line.split(",", 5);
+                        if (parts.length < 4) {
+                            throw new IllegalArgumentException("Invalid number of fields");
+                        }
+                        Expense expense = Expense.ofCents(
                             LocalDate.parse(parts[0]),
                             parts[1],
-                            Double.parseDouble(parts[2]),
+                            Money.parse(parts[2]),
                             parts[3].replace(";", ",")
                         );
+                        if (parts.length == 5) {
+                            expense.setTags(Expense.parseTags(parts[4]));
+                        }
                         expenseManager.addExpense(expense);
                         expenseCount++;
                         System.out.println("Loaded expense: " + expense);
                     }
+                } catch (RuntimeException e) {
+                    // Covers bad dates and amounts as well as names the registry rejects
+                    skippedCount++;
+                    System.err.println("Skipped malformed line " + lineNumber + " of " + userDataPath + ": " + e.getMessage());
                 }
             }
             
@@ -149,6 +189,42 @@ public class DataPersistenceManager {
             System.err.println("Error loading user data: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Error loading user data: " + e.getMessage(), e);
+        } finally {
+            expenseManager.endBatch();
+        }
+        
+        if (skippedCount > 0) {
+            System.err.println("Skipped " + skippedCount + " malformed lines");
+            backupUserData(user);
+        }
+        return skippedCount;
+    }
+
+    /**
+    Restores one saved category at its saved id. A category saved under a new name renames the
+    category with that id; one that does not exist yet is added.
+    @param expenseManager The manager to restore the category into.
+    @param id The id the category was saved with.
+    @param name The saved category name.
+    @throws IllegalArgumentException If the registry rejects the name.
+    */
+    private void loadCategory(ExpenseManager expenseManager, int id, String name) {
+        if (name.isBlank()) {
+            return;
+        }
+        List<String> categories = expenseManager.getCategories();
+        try {
+            if (id < categories.size() && !categories.get(id).equals(name)) {
+                expenseManager.renameCategory(categories.get(id), name);
+            } else if (id >= categories.size()) {
+                expenseManager.addCategory(name);
+            }
+        } catch (IllegalArgumentException e) {
+            if (expenseManager.getCategoryRegistry().idOfIgnoreCase(name) < 0) {
+                throw e; // The name itself was rejected, so the line is malformed
+            }
+            // The name belongs to another id already, so the category exists under it
+            System.err.println("Skipped saved category " + name + ": " + e.getMessage());
         }
     }
 
@@ -0,0 +1,221 @@
+/**
+  Description: The DescriptionIndex class is an inverted index over expense descriptions. Every
+			  description is split into lower-case tokens of letters and digits, and each token
+			  maps to a sorted posting list of the ids of the expenses containing it. The index
+			  is updated incrementally as expenses are added, edited and removed. A query matches
+			  expenses containing every query term, where each term matches any token it is a
+			  prefix of, so "gro" finds "Groceries".
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+public class DescriptionIndex {
+    private static final long[] NO_IDS = new long[0];
+
+    private final NavigableMap<String, Postings> postings; // Token to the ids of expenses containing it
+
+    /**
+    Constructs an empty index.
+    */
+    public DescriptionIndex() {
+        this.postings = new TreeMap<>();
+    }
+
+    /**
+    Splits text into distinct lower-case tokens made of letters and digits.
+    @param text The text to split, may be null.
+    @return The tokens in order of first appearance.
+    */
+    public static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+    Checks a single description against query terms without using the index.
+    @param description The description to check, may be null.
+    @param terms Tokens returned by tokenize for the query.
+    @return True if every term is the start of some word of the description.
+    */
+    public static boolean matches(String description, Set<String> terms) {
+        Set<String> tokens = tokenize(description);
+        for (String term : terms) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+    Indexes the description of an expense.
+    @param id The id of the expense.
+    @param description The description, may be null.
+    */
+    public void add(long id, String description) {
+        for (String token : tokenize(description)) {
+            postings.computeIfAbsent(token, t -> new Postings()).add(id);
+        }
+    }
+
+    /**
+    Removes the description of an expense from the index.
+    @param id The id of the expense.
+    @param description The description it was indexed with, may be null.
+    */
+    public void remove(long id, String description) {
+        for (String token : tokenize(description)) {
+            Postings list = postings.get(token);
+            if (list != null) {
+                list.remove(id);
+                if (list.size == 0) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+    Finds the expenses whose descriptions contain every term of a query.
+    @param query Terms separated by spaces or punctuation; each term is matched as a token prefix.
+    @return The matching ids in ascending order, empty if the query has no terms.
+    */
+    public long[] search(String query) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return NO_IDS;
+        }
+        List<long[]> matches = new ArrayList<>();
+        for (String term : terms) {
+            long[] ids = prefixMatches(term);
+            if (ids.length == 0) {
+                return NO_IDS;
+            }
+            matches.add(ids);
+        }
+        matches.sort((a, b) -> Integer.compare(a.length, b.length));
+        long[] result = matches.get(0);
+        for (int i = 1; i < matches.size() && result.length > 0; i++) {
+            result = intersect(result, matches.get(i));
+        }
+        return result;
+    }
+
+    /**
+    Gets the number of distinct tokens in the index.
+    @return The number of tokens.
+    */
+    public int tokenCount() {
+        return postings.size();
+    }
+
+    /**
+    Collects the ids of every token starting with a term, as one sorted list.
+    */
+    private long[] prefixMatches(String term) {
+        Collection<Postings> lists = postings.subMap(term, true, term + Character.MAX_VALUE, false).values();
+        if (lists.size() == 1) {
+            Postings only = lists.iterator().next();
+            return Arrays.copyOf(only.ids, only.size);
+        }
+        int total = 0;
+        for (Postings list : lists) {
+            total += list.size;
+        }
+        long[] merged = new long[total];
+        int count = 0;
+        for (Postings list : lists) {
+            System.arraycopy(list.ids, 0, merged, count, list.size);
+            count += list.size;
+        }
+        Arrays.sort(merged);
+        int distinct = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (distinct == 0 || merged[distinct - 1] != merged[i]) {
+                merged[distinct++] = merged[i];
+            }
+        }
+        return Arrays.copyOf(merged, distinct);
+    }
+
+    /**
+    Intersects two sorted id lists.
+    */
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+    A sorted, growable list of expense ids. New expenses get ever larger ids, so adds
+    are usually appends.
+    */
+    private static class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+    }
+}
@@ -3,16 +3,28 @@
   Description: The Expense class represents a single expense record with details such as
 			  date, category, amount, and description.
 			  This class encapsulates its data through private fields and provides 
-			  public getter and setter methods for controlled access.
+			  public getter and setter methods for controlled access. The amount is kept
+			  in whole cents, so amounts compare and sum exactly; see Money. An expense can
+			  also carry free-form tags, kept lower case and in sorted order.
 */
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class Expense {
     private LocalDate date;  // The date of the expense
     private String category; // The category of the expense
-    private double amount;  // The amount of the expense
+    private long amountCents;  // The amount of the expense in cents
     private String description; // A brief description of the expense
+    private long id; // Stable id assigned by the expense store, 0 until stored
+    private Set<String> tags = Collections.emptySet(); // Free-form tags, lower case and sorted
 
     
     /**
@@ -25,10 +37,24 @@ public class Expense {
     public Expense(LocalDate date, String category, double amount, String description) {
         this.date = date;
         this.category = category;
-        this.amount = amount;
+        this.amountCents = Money.toCents(amount);
         this.description = description;
     }
 
+    /**
+    Creates an Expense with an amount given in cents.
+    @param date The date of the expense.
+    @param category The category of the expense.
+    @param amountCents The amount of the expense in cents.
+    @param description A brief description of the expense.
+    @return The new expense.
+    */
+    public static Expense ofCents(LocalDate date, String category, long amountCents, String description) {
+        Expense expense = new Expense(date, category, 0, description);
+        expense.amountCents = amountCents;
+        return expense;
+    }
+
     /**
     Gets the date of the expense.
     @return The date of the expense.
@@ -66,15 +92,31 @@ public class Expense {
     @return The amount of the expense.
     */
     public double getAmount() {
-        return amount;
+        return Money.toAmount(amountCents);
     }
 
     /**
-    Sets the amount of the expense.
+    Sets the amount of the expense, rounded half up to the nearest cent.
     @param amount The new amount for the expense.
     */
     public void setAmount(double amount) {
-        this.amount = amount;
+        this.amountCents = Money.toCents(amount);
+    }
+
+    /**
+    Gets the amount of the expense in cents.
+    @return The amount in cents.
+    */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    /**
+    Sets the amount of the expense in cents.
+    @param amountCents The new amount in cents.
+    */
+    public void setAmountCents(long amountCents) {
+        this.amountCents = amountCents;
     }
 
     /**
@@ -93,12 +135,103 @@ public class Expense {
         this.description = description;
     }
 
+    /**
+    Gets the tags of the expense.
+    @return A read-only, sorted set of lower-case tags; empty if the expense has none.
+    */
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    /**
+    Sets the tags of the expense. Each tag is trimmed and lower-cased, a tag containing a
+    comma or semicolon is split there, and blank tags are dropped.
+    @param tags The new tags; null removes every tag.
+    */
+    public void setTags(Collection<String> tags) {
+        TreeSet<String> normalized = new TreeSet<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                if (tag != null) {
+                    normalized.addAll(parseTags(tag));
+                }
+            }
+        }
+        this.tags = normalized.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(normalized);
+    }
+
+    /**
+    Splits text such as "travel, work;Reimbursable" into normalized tags.
+    @param text The tags separated by commas or semicolons; may be null.
+    @return The trimmed, lower-case, non-blank tags in the order given.
+    */
+    public static List<String> parseTags(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        for (String tag : text.split("[,;]")) {
+            String trimmed = tag.trim().toLowerCase(Locale.ROOT);
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed);
+            }
+        }
+        return result;
+    }
+
+    /**
+    Gets the stable id of the expense. The id stays the same through edits, even ones that
+    move the expense to another month, and is never reused after a delete.
+    @return The id, or 0 if the expense has not been stored.
+    */
+    public long getId() {
+        return id;
+    }
+
+    /**
+    Sets the stable id of the expense. Only the expense store assigns ids.
+    @param id The id assigned by the store.
+    */
+    void setId(long id) {
+        this.id = id;
+    }
+
+    /**
+    Compares this expense with another object by date, category, amount, description and tags.
+    @param o The object to compare with.
+    @return True if the other object is an expense with the same values.
+    */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Expense)) {
+            return false;
+        }
+        Expense other = (Expense) o;
+        return amountCents == other.amountCents
+            && Objects.equals(date, other.date)
+            && Objects.equals(category, other.category)
+            && Objects.equals(description, other.description)
+            && tags.equals(other.tags);
+    }
+
+    /**
+    Computes a hash code consistent with equals.
+    @return The hash code of the expense.
+    */
+    @Override
+    public int hashCode() {
+        return Objects.hash(date, category, amountCents, description, tags);
+    }
+
     /**
     Provides a string representation of the expense, including date, category, amount, and description.
     @return A string representation of the expense.
     */
     @Override
     public String toString() {
-        return date + " - " + category + " - $" + amount + " - " + description;
+        return date + " - " + category + " - $" + getAmount() + " - " + description;
     }
 }
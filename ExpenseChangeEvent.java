@@ -0,0 +1,200 @@
+/**
+  Description: The ExpenseChangeEvent class describes one change to the expense or budget data:
+			  what kind of change it was and which month and category it affected. Edits also
+			  carry the month and category the expense had before the change, so listeners can
+			  refresh both the old and the new place. Events with equal values are equal, which
+			  lets the ExpenseEventBus collapse repeated changes into one. Category events
+			  affect every month, so their month is null.
+*/
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Objects;
+
+public class ExpenseChangeEvent {
+    /**
+    The kinds of change an event can describe.
+    */
+    public enum Type {
+        EXPENSE_ADDED,
+        EXPENSE_EDITED,
+        EXPENSE_REMOVED,
+        BUDGET_CHANGED,
+        CATEGORY_CHANGED
+    }
+
+    private final Type type; // What kind of change happened
+    private final YearMonth month; // The month affected by the change
+    private final String category; // The category affected by the change
+    private final YearMonth previousMonth; // For edits, the month before the change
+    private final String previousCategory; // For edits, the category before the change
+
+    /**
+    Constructs an ExpenseChangeEvent with the given values.
+    @param type What kind of change happened.
+    @param month The month affected by the change.
+    @param category The category affected by the change.
+    @param previousMonth For edits, the month before the change; otherwise the same as month.
+    @param previousCategory For edits, the category before the change; otherwise the same as category.
+    */
+    public ExpenseChangeEvent(Type type, YearMonth month, String category,
+                              YearMonth previousMonth, String previousCategory) {
+        this.type = type;
+        this.month = month;
+        this.category = category;
+        this.previousMonth = previousMonth;
+        this.previousCategory = previousCategory;
+    }
+
+    /**
+    Creates an event for an added expense.
+    @param expense The expense that was added.
+    @return The event.
+    */
+    public static ExpenseChangeEvent added(Expense expense) {
+        YearMonth month = YearMonth.from(expense.getDate());
+        return new ExpenseChangeEvent(Type.EXPENSE_ADDED, month, expense.getCategory(), month, expense.getCategory());
+    }
+
+    /**
+    Creates an event for an edited expense.
+    @param before The expense values before the edit.
+    @param after The expense values after the edit.
+    @return The event.
+    */
+    public static ExpenseChangeEvent edited(Expense before, Expense after) {
+        return new ExpenseChangeEvent(Type.EXPENSE_EDITED, YearMonth.from(after.getDate()), after.getCategory(),
+            YearMonth.from(before.getDate()), before.getCategory());
+    }
+
+    /**
+    Creates an event for a removed expense.
+    @param expense The expense that was removed.
+    @return The event.
+    */
+    public static ExpenseChangeEvent removed(Expense expense) {
+        YearMonth month = YearMonth.from(expense.getDate());
+        return new ExpenseChangeEvent(Type.EXPENSE_REMOVED, month, expense.getCategory(), month, expense.getCategory());
+    }
+
+    /**
+    Creates an event for a changed budget.
+    @param category The budget category.
+    @param month The budget month.
+    @return The event.
+    */
+    public static ExpenseChangeEvent budgetChanged(String category, YearMonth month) {
+        return new ExpenseChangeEvent(Type.BUDGET_CHANGED, month, category, month, category);
+    }
+
+    /**
+    Creates an event for an added or renamed category.
+    @param previousName The name before a rename; the same as name for a new category.
+    @param name The category name.
+    @return The event.
+    */
+    public static ExpenseChangeEvent categoryChanged(String previousName, String name) {
+        return new ExpenseChangeEvent(Type.CATEGORY_CHANGED, null, name, null, previousName);
+    }
+
+    /**
+    Gets the kind of change.
+    @return The event type.
+    */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+    Gets the month affected by the change.
+    @return The affected month, or null for a category change, which affects every month.
+    */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+    Gets the category affected by the change.
+    @return The affected category.
+    */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+    Gets the month before the change. Differs from getMonth() only for edits that moved an expense.
+    @return The previous month.
+    */
+    public YearMonth getPreviousMonth() {
+        return previousMonth;
+    }
+
+    /**
+    Gets the category before the change. Differs from getCategory() only for edits that recategorized an expense.
+    @return The previous category.
+    */
+    public String getPreviousCategory() {
+        return previousCategory;
+    }
+
+    /**
+    Checks whether the change touched the given month, before or after the change.
+    @param yearMonth The month to check.
+    @return True if the month was affected.
+    */
+    public boolean affects(YearMonth yearMonth) {
+        return type == Type.CATEGORY_CHANGED || yearMonth.equals(month) || yearMonth.equals(previousMonth);
+    }
+
+    /**
+    Checks whether the change touched a month that overlaps an inclusive date range, before
+    or after the change. Events only know months, so a change elsewhere in a month the
+    range overlaps counts as touching the range.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return True if a month of the range was affected.
+    */
+    public boolean affects(LocalDate start, LocalDate end) {
+        YearMonth first = YearMonth.from(start);
+        YearMonth last = YearMonth.from(end);
+        return type == Type.CATEGORY_CHANGED || within(month, first, last) || within(previousMonth, first, last);
+    }
+
+    private static boolean within(YearMonth yearMonth, YearMonth first, YearMonth last) {
+        return yearMonth != null && !yearMonth.isBefore(first) && !yearMonth.isAfter(last);
+    }
+
+    /**
+    Checks whether this event is about a budget rather than an expense.
+    @return True for BUDGET_CHANGED events.
+    */
+    public boolean isBudgetChange() {
+        return type == Type.BUDGET_CHANGED;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ExpenseChangeEvent)) {
+            return false;
+        }
+        ExpenseChangeEvent other = (ExpenseChangeEvent) o;
+        return type == other.type
+            && Objects.equals(month, other.month)
+            && Objects.equals(category, other.category)
+            && Objects.equals(previousMonth, other.previousMonth)
+            && Objects.equals(previousCategory, other.previousCategory);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, month, category, previousMonth, previousCategory);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + month + " " + category;
+    }
+}
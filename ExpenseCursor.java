@@ -0,0 +1,49 @@
+/**
+  Description: The ExpenseCursor class iterates over the results of an ExpenseQuery. Expense objects
+			  are created one at a time as the cursor advances, so reading only the first few
+			  results of a large query stays cheap. The cursor reads from a snapshot and can be
+			  used from any thread, but only by one thread at a time.
+*/
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class ExpenseCursor implements Iterator<Expense> {
+    private final ExpenseQuery.Plan plan; // The index the query was answered from
+    private final Iterator<Expense> rows; // Matching rows in result order
+    private int remaining; // Results left before the query's limit is reached
+
+    /**
+    Constructs a cursor over matching rows.
+    @param plan The index the query was answered from.
+    @param rows The matching rows in result order.
+    @param limit The largest number of rows to return.
+    */
+    ExpenseCursor(ExpenseQuery.Plan plan, Iterator<Expense> rows, int limit) {
+        this.plan = plan;
+        this.rows = rows;
+        this.remaining = limit;
+    }
+
+    /**
+    Gets the index the query planner chose.
+    @return The plan of the query.
+    */
+    public ExpenseQuery.Plan getPlan() {
+        return plan;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0 && rows.hasNext();
+    }
+
+    @Override
+    public Expense next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        remaining--;
+        return rows.next();
+    }
+}
@@ -0,0 +1,154 @@
+/**
+  Description: The ExpenseEventBus class delivers ExpenseChangeEvents to subscribed listeners.
+			  Each subscription has its own coalescing window. With a window of zero, events are
+			  delivered as soon as they are published. With a positive window, events published
+			  during the window are collected, duplicates are collapsed, and the listener is called
+			  once when the window closes. Windowed deliveries run on the bus's scheduler thread,
+			  so Swing listeners should hand their work to the event dispatch thread.
+*/
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ExpenseEventBus {
+
+    /**
+    Receives batches of change events from the bus.
+    */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+        Called with the coalesced events of one window, in the order they were first published.
+        @param events The events, never empty.
+        */
+        void onChanges(List<ExpenseChangeEvent> events);
+    }
+
+    private final List<Subscription> subscriptions; // Every active subscription
+    private ScheduledExecutorService scheduler; // Created on first windowed subscription
+
+    /**
+    Constructs a bus with no subscribers.
+    */
+    public ExpenseEventBus() {
+        this.subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+    Subscribes a listener that receives events as soon as they are published.
+    @param listener The listener to call.
+    @return A handle that can be passed to unsubscribe.
+    */
+    public Object subscribe(Listener listener) {
+        return subscribe(listener, 0L);
+    }
+
+    /**
+    Subscribes a listener that receives the coalesced events of each window.
+    @param listener The listener to call.
+    @param windowMillis How long to collect events before delivering them; zero delivers immediately.
+    @return A handle that can be passed to unsubscribe.
+    @throws IllegalArgumentException If the window is negative.
+    */
+    public Object subscribe(Listener listener, long windowMillis) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Coalescing window cannot be negative.");
+        }
+        Subscription subscription = new Subscription(listener, windowMillis);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+    Removes a subscription. Events still waiting in its window are dropped.
+    @param handle The handle returned by subscribe.
+    */
+    public void unsubscribe(Object handle) {
+        subscriptions.remove(handle);
+    }
+
+    /**
+    Publishes events to every subscriber.
+    @param events The events to publish; nothing happens if empty.
+    */
+    public void publish(Collection<ExpenseChangeEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(events);
+        }
+    }
+
+    /**
+    Delivers every event still waiting in a window right away.
+    */
+    public void flush() {
+        for (Subscription subscription : subscriptions) {
+            subscription.deliver();
+        }
+    }
+
+    /**
+    Gets the scheduler used to close coalescing windows, creating it on first use.
+    */
+    private synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "expense-event-bus");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+    A listener together with its window and the events waiting to be delivered to it.
+    */
+    private class Subscription {
+        private final Listener listener;
+        private final long windowMillis;
+        private Set<ExpenseChangeEvent> pending; // Events of the open window, null when no window is open
+
+        Subscription(Listener listener, long windowMillis) {
+            this.listener = listener;
+            this.windowMillis = windowMillis;
+        }
+
+        void offer(Collection<ExpenseChangeEvent> events) {
+            if (windowMillis == 0) {
+                listener.onChanges(new ArrayList<>(new LinkedHashSet<>(events)));
+                return;
+            }
+            synchronized (this) {
+                if (pending == null) {
+                    pending = new LinkedHashSet<>();
+                    scheduler().schedule(this::deliver, windowMillis, TimeUnit.MILLISECONDS);
+                }
+                pending.addAll(events);
+            }
+        }
+
+        void deliver() {
+            List<ExpenseChangeEvent> events;
+            synchronized (this) {
+                if (pending == null) {
+                    return;
+                }
+                events = new ArrayList<>(pending);
+                pending = null;
+            }
+            if (subscriptions.contains(this)) {
+                listener.onChanges(events);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+  Description: The ExpenseIdIndex class is an open-addressing hash index from a stable expense id
+			  to the storage slot that currently holds it. A slot is a month partition together
+			  with a position inside that partition, packed into a single long so lookups never
+			  allocate. Ids must be positive; zero marks an empty bucket.
+*/
+
+import java.time.YearMonth;
+
+public class ExpenseIdIndex {
+    private static final int INITIAL_CAPACITY = 64; // Must be a power of two
+    private static final long EMPTY = 0L;
+
+    private long[] keys; // Expense ids, EMPTY for a free bucket
+    private long[] values; // Packed month and slot for each id
+    private int size; // Number of ids in the index
+
+    /**
+    Constructs an empty index.
+    */
+    public ExpenseIdIndex() {
+        this.keys = new long[INITIAL_CAPACITY];
+        this.values = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+    Packs a month and a slot into one location value.
+    @param month The partition's month.
+    @param slot The position inside the partition.
+    @return The packed location.
+    */
+    public static long pack(YearMonth month, int slot) {
+        long monthKey = month.getYear() * 12L + (month.getMonthValue() - 1);
+        return (monthKey << 32) | (slot & 0xFFFFFFFFL);
+    }
+
+    /**
+    Gets the month of a packed location.
+    @param location A value returned by pack.
+    @return The partition's month.
+    */
+    public static YearMonth monthOf(long location) {
+        long monthKey = location >> 32;
+        return YearMonth.of((int) Math.floorDiv(monthKey, 12), Math.floorMod(monthKey, 12) + 1);
+    }
+
+    /**
+    Gets the slot of a packed location.
+    @param location A value returned by pack.
+    @return The position inside the partition.
+    */
+    public static int slotOf(long location) {
+        return (int) location;
+    }
+
+    /**
+    Gets the number of ids in the index.
+    @return The number of indexed expenses.
+    */
+    public int size() {
+        return size;
+    }
+
+    /**
+    Inserts or replaces the location of an id.
+    @param id The expense id, must be positive.
+    @param location The packed location of the expense.
+    */
+    public void put(long id, long location) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int bucket = find(id);
+        if (keys[bucket] == EMPTY) {
+            keys[bucket] = id;
+            size++;
+        }
+        values[bucket] = location;
+    }
+
+    /**
+    Checks whether an id is in the index.
+    @param id The expense id.
+    @return True if the id is indexed.
+    */
+    public boolean contains(long id) {
+        return id > 0 && keys[find(id)] == id;
+    }
+
+    /**
+    Gets the location of an id.
+    @param id The expense id.
+    @return The packed location, or -1 if the id is not indexed.
+    */
+    public long get(long id) {
+        if (id <= 0) {
+            return -1L;
+        }
+        int bucket = find(id);
+        return keys[bucket] == id ? values[bucket] : -1L;
+    }
+
+    /**
+    Removes an id from the index. Later entries of the same probe run are shifted back
+    so lookups never need tombstones.
+    @param id The expense id.
+    */
+    public void remove(long id) {
+        if (id <= 0) {
+            return;
+        }
+        int mask = keys.length - 1;
+        int bucket = find(id);
+        if (keys[bucket] != id) {
+            return;
+        }
+        keys[bucket] = EMPTY;
+        size--;
+        int next = (bucket + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            boolean movable = bucket <= next ? (home <= bucket || home > next) : (home <= bucket && home > next);
+            if (movable) {
+                keys[bucket] = keys[next];
+                values[bucket] = values[next];
+                keys[next] = EMPTY;
+                bucket = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    /**
+    Finds the bucket holding an id, or the empty bucket where it would go.
+    */
+    private int find(long id) {
+        int mask = keys.length - 1;
+        int bucket = hash(id) & mask;
+        while (keys[bucket] != EMPTY && keys[bucket] != id) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
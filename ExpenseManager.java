@@ -3,35 +3,96 @@
   Description: The ExpenseManager class manages a list of expenses, provides filtering and categorization
 			  capabilities, and integrates with the BudgetManager for budget tracking.
 			  It includes methods for adding, editing, deleting, and querying expenses.
+			  Expense data is held in a columnar ExpenseStore partitioned by month, so month-based
+			  queries only touch the rows of the requested month.
+			  The class is thread-safe. A StampedLock guards the store: writes are exclusive,
+			  reads share a read lock. Budgets, GUI callbacks and change events always run after
+			  the lock is released.
 */
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ExpenseManager {
-    private List<Expense> expenses; // List of expenses
+    private ExpenseStore expenses; // Columnar storage of expenses, guarded by lock
+    private final StampedLock lock; // Exclusive for writes, shared for reads
     public static final List<String> predefinedCategories = List.of(
         "Food", "Transportation", "Entertainment", "Utilities", "Miscellaneous"
     );
+    private final CategoryRegistry categories; // Category names and their dense ids, starting with the predefined ones
+    private int announcedCategories; // Categories already published as events, guarded by batchEvents
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 50_000; // Rows below which aggregation stays sequential
     private BudgetManager budgetManager;
-    private Runnable guiUpdateCallback;
+    private volatile Runnable guiUpdateCallback;
+    private int batchDepth; // Number of open batch scopes, guarded by batchEvents
+    private boolean batchChanged; // True if a change happened inside the open batch, guarded by batchEvents
+    private final ExpenseEventBus eventBus; // Publishes typed change events to listeners
+    private final List<ExpenseChangeEvent> batchEvents; // Events held back until the open batch ends
+    private volatile int parallelThreshold; // Rows at which streams and aggregations go parallel
 
     /**
-    Constructs an ExpenseManager with an empty list of expenses and initializes
+    Constructs an ExpenseManager with an empty expense store and initializes
     the BudgetManager.
     */
     public ExpenseManager() {
-        this.expenses = new ArrayList<>();
+        this.categories = new CategoryRegistry(predefinedCategories);
+        this.announcedCategories = categories.size();
+        this.expenses = new ExpenseStore(categories);
+        this.lock = new StampedLock();
+        this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        this.eventBus = new ExpenseEventBus();
+        this.batchEvents = new ArrayList<>();
         this.budgetManager = new BudgetManager(this);
     }
 
     /**
-    Sets a callback function to trigger GUI updates.
+    Gets the bus that publishes a typed event for every expense and budget change.
+    Listeners that only need to refresh the affected month or category should subscribe
+    here rather than use the GUI update callback.
+    @return The change event bus.
+    */
+    public ExpenseEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+    Publishes a change event, or holds it back until the open batch ends.
+    @param event The event describing the change.
+    */
+    public void publishChange(ExpenseChangeEvent event) {
+        synchronized (batchEvents) {
+            if (batchDepth > 0) {
+                batchEvents.add(event);
+                return;
+            }
+        }
+        eventBus.publish(List.of(event));
+    }
+
+    /**
+    Sets a callback function to trigger GUI updates. The callback only learns that
+    something changed; see getEventBus() for typed change events.
     @param callback A Runnable function to be called when updates occur.
     */
     public void setGuiUpdateCallback(Runnable callback) {
@@ -47,27 +108,153 @@ public class ExpenseManager {
     }
     
     /**
-    Triggers the GUI update callback if it is set.
+    Triggers the GUI update callback if it is set. Inside a batch the callback is
+    deferred until the outermost batch ends.
     */
     public void triggerUpdate() {
-        if (guiUpdateCallback != null) {
-            guiUpdateCallback.run();
+        synchronized (batchEvents) {
+            if (batchDepth > 0) {
+                batchChanged = true;
+                return;
+            }
+        }
+        Runnable callback = guiUpdateCallback;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    /**
+    Opens a batch scope. Until the matching endBatch() call, mutations do not refresh
+    budgets or fire the GUI update callback. Batches may be nested. A batch belongs to the
+    manager, not to a thread, so changes other threads make while it is open are deferred too.
+    */
+    public void beginBatch() {
+        synchronized (batchEvents) {
+            batchDepth++;
+        }
+    }
+
+    /**
+    Closes a batch scope. When the outermost batch ends and anything changed inside it,
+    budgets are refreshed, the GUI update callback fires exactly once and the batch's
+    change events are published together.
+    @throws IllegalStateException If no batch is open.
+    */
+    public void endBatch() {
+        List<ExpenseChangeEvent> events;
+        boolean changed;
+        synchronized (batchEvents) {
+            if (batchDepth == 0) {
+                throw new IllegalStateException("No batch is open.");
+            }
+            batchDepth--;
+            if (batchDepth > 0) {
+                return;
+            }
+            events = new ArrayList<>(batchEvents);
+            batchEvents.clear();
+            changed = batchChanged;
+            batchChanged = false;
+        }
+        if (changed) {
+            updateBudgets();
+            triggerUpdate();
+        }
+        eventBus.publish(events);
+    }
+
+    /**
+    Runs the given mutations inside a single batch scope.
+    @param mutations The code that changes expenses or budgets.
+    */
+    public void runInBatch(Runnable mutations) {
+        beginBatch();
+        try {
+            mutations.run();
+        } finally {
+            endBatch();
         }
     }
 
     /**
     Adds a new expense to the list, updates budgets, and triggers GUI updates.
+    The expense is given a stable id, readable through getId().
     @param expense The Expense object to add.
+    @throws IllegalArgumentException If the expense has no supported date or its category is not registered.
     */
     public void addExpense(Expense expense) {
-    	
-        expenses.add(expense);
-        updateBudgets();
-        if (guiUpdateCallback != null) {
-            guiUpdateCallback.run(); //trigger GUI updates
+        changed(List.of(write(() -> {
+            expense.setId(expenses.add(expense));
+            return ExpenseChangeEvent.added(expense);
+        })));
+    }
+
+    /**
+    Adds several expenses under one write lock, with a single budget update and a single GUI update.
+    @param newExpenses The Expense objects to add.
+    @throws IllegalArgumentException If an expense has no supported date or its category is not registered. Nothing is added then.
+    */
+    public void addExpenses(Collection<Expense> newExpenses) {
+        List<ExpenseChangeEvent> events = new ArrayList<>();
+        try {
+            write(() -> {
+                newExpenses.forEach(expenses::validate);
+                for (Expense expense : newExpenses) {
+                    expense.setId(expenses.add(expense));
+                    events.add(ExpenseChangeEvent.added(expense));
+                }
+                return events;
+            });
+        } finally {
+            changed(events);
         }
     }
 
+    /**
+    Adds the expenses of an import that are not stored yet, under one write lock, with a single
+    budget update and a single GUI update. An expense is a duplicate when a stored one has the
+    same date, category, amount and description, ignoring case and spacing; each lookup is
+    a constant-time probe of the store's fingerprint index. Identical expenses are matched
+    one to one, so a statement listing two identical purchases of a day adds only the ones
+    not stored yet. New expenses are stored in date order, so each lands at the end of its
+    month instead of shifting the rows after it, and they get their ids in that order.
+    @param newExpenses The imported Expense objects.
+    @return The expenses added, in the given order; the others were duplicates.
+    @throws IllegalArgumentException If an expense has no supported date or its category is not registered. Nothing is added then.
+    */
+    public List<Expense> addExpensesSkippingDuplicates(Collection<Expense> newExpenses) {
+        List<ExpenseChangeEvent> events = new ArrayList<>();
+        List<Expense> added = new ArrayList<>();
+        try {
+            write(() -> {
+                newExpenses.forEach(expenses::validate);
+                // Decide against the stored rows first, so rows added by this import never match each other
+                Map<Long, Integer> matched = new HashMap<>();
+                List<Expense> fresh = new ArrayList<>();
+                for (Expense expense : newExpenses) {
+                    long fingerprint = expenses.fingerprint(expense);
+                    int used = matched.getOrDefault(fingerprint, 0);
+                    if (used < expenses.countFingerprint(fingerprint)) {
+                        matched.put(fingerprint, used + 1);
+                    } else {
+                        fresh.add(expense);
+                    }
+                }
+                List<Expense> byDate = new ArrayList<>(fresh);
+                byDate.sort(Comparator.comparing(Expense::getDate, Comparator.nullsLast(Comparator.naturalOrder())));
+                for (Expense expense : byDate) {
+                    expense.setId(expenses.add(expense));
+                    events.add(ExpenseChangeEvent.added(expense));
+                }
+                added.addAll(fresh);
+                return events;
+            });
+        } finally {
+            changed(events);
+        }
+        return added;
+    }
 
     /**
     Edits an existing expense in the list by index.
@@ -76,15 +263,13 @@ public class ExpenseManager {
     @throws IndexOutOfBoundsException If the index is invalid.
     */
     public void editExpense(int index, Expense newExpense) {
-        if (index >= 0 && index < expenses.size()) {
+        changed(List.of(write(() -> {
+            checkIndex(index);
+            Expense previous = expenses.get(index);
             expenses.set(index, newExpense);
-            updateBudgets();
-            if (guiUpdateCallback != null) {
-                guiUpdateCallback.run();
-            }
-        } else {
-            throw new IndexOutOfBoundsException("Invalid expense index.");
-        }
+            newExpense.setId(previous.getId());
+            return ExpenseChangeEvent.edited(previous, newExpense);
+        })));
     }
 
     /**
@@ -93,23 +278,146 @@ public class ExpenseManager {
     @throws IndexOutOfBoundsException If the index is invalid.
     */
     public void deleteExpense(int index) {
-        if (index >= 0 && index < expenses.size()) {
+        changed(List.of(write(() -> {
+            checkIndex(index);
+            Expense removed = expenses.get(index);
             expenses.remove(index);
-            updateBudgets();
-            if (guiUpdateCallback != null) {
-                guiUpdateCallback.run();
+            return ExpenseChangeEvent.removed(removed);
+        })));
+    }
+
+    /**
+    Deletes several expenses by index with a single budget update and a single GUI update.
+    Every index refers to the list as it was before any deletion.
+    @param indices The indices of the expenses to delete.
+    @throws IndexOutOfBoundsException If any index is invalid. Nothing is deleted in that case.
+    */
+    public void deleteExpenses(Collection<Integer> indices) {
+        int[] sorted = indices.stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+        changed(write(() -> {
+            for (int index : sorted) {
+                checkIndex(index);
             }
-        } else {
-            throw new IndexOutOfBoundsException("Invalid expense index.");
-        }
+            List<ExpenseChangeEvent> events = new ArrayList<>();
+            for (int i = sorted.length - 1; i >= 0; i--) {
+                events.add(ExpenseChangeEvent.removed(expenses.get(sorted[i])));
+                expenses.remove(sorted[i]);
+            }
+            return events;
+        }));
+    }
+
+    /**
+    Takes an immutable snapshot of every expense and budget. The snapshot costs time
+    proportional to the number of months, not expenses: it shares the store's month
+    partitions, and a later write copies the partition it changes. Readers can hold the
+    snapshot as long as they need without blocking writers.
+    @return A snapshot of the current expenses and budgets.
+    */
+    public ExpenseSnapshot snapshot() {
+        ExpenseStore pinned = read(expenses::snapshot);
+        return new ExpenseSnapshot(pinned, budgetManager.copyAllBudgetCents());
+    }
+
+    /**
+    Moves the expenses of every month before a cutoff off the Java heap, into direct memory.
+    Heap use then stays flat however long the history grows, and garbage collection no
+    longer has to trace old months. Reads are unchanged; editing an old expense brings its
+    month back onto the heap.
+    @param before The first month to keep on the heap.
+    @return The number of months moved.
+    */
+    public int offloadMonthsBefore(YearMonth before) {
+        return offloadMonthsBefore(before, null);
     }
 
     /**
-    Retrieves all expenses.
+    Moves the expenses of every month before a cutoff off the Java heap, into files mapped
+    into memory, so the operating system can page out months that are not being read. The
+    files are deleted when the program exits; saving still goes through DataPersistenceManager.
+    @param before The first month to keep on the heap.
+    @param directory The directory to create the files in, or null to use direct memory.
+    @return The number of months moved.
+    @throws UncheckedIOException If a file cannot be created or mapped.
+    */
+    public int offloadMonthsBefore(YearMonth before, Path directory) {
+        return write(() -> {
+            try {
+                return expenses.offload(before, directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not offload expenses: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+    Gets an expense by its stable id.
+    @param id The id of the expense.
+    @return A new Expense holding the stored values, or null if no expense has the id.
+    */
+    public Expense getExpenseById(long id) {
+        return read(() -> expenses.getById(id));
+    }
+
+    /**
+    Edits an existing expense by its stable id. The expense keeps its id.
+    @param id The id of the expense to edit.
+    @param newExpense The new Expense object to replace the existing one.
+    @throws IllegalArgumentException If no expense has the id, or the new expense has no supported date or its category is not registered.
+    */
+    public void editExpenseById(long id, Expense newExpense) {
+        changed(List.of(write(() -> {
+            Expense previous = requireExpense(id);
+            expenses.setById(id, newExpense);
+            newExpense.setId(id);
+            return ExpenseChangeEvent.edited(previous, newExpense);
+        })));
+    }
+
+    /**
+    Deletes an expense by its stable id. No other expense changes position in its month.
+    @param id The id of the expense to delete.
+    @throws IllegalArgumentException If no expense has the id.
+    */
+    public void deleteExpenseById(long id) {
+        changed(List.of(write(() -> {
+            Expense removed = requireExpense(id);
+            expenses.removeById(id);
+            return ExpenseChangeEvent.removed(removed);
+        })));
+    }
+
+    /**
+    Deletes several expenses by id with a single budget update and a single GUI update.
+    @param ids The ids of the expenses to delete.
+    @throws IllegalArgumentException If any id is unknown. Nothing is deleted in that case.
+    */
+    public void deleteExpensesById(Collection<Long> ids) {
+        changed(write(() -> {
+            List<Expense> removed = new ArrayList<>();
+            for (long id : ids.stream().distinct().toArray(Long[]::new)) {
+                removed.add(requireExpense(id));
+            }
+            List<ExpenseChangeEvent> events = new ArrayList<>();
+            for (Expense expense : removed) {
+                expenses.removeById(expense.getId());
+                events.add(ExpenseChangeEvent.removed(expense));
+            }
+            return events;
+        }));
+    }
+
+    /**
+    Retrieves all expenses as a read-only view. Expense objects are created from the
+    store's columns as the view is read. Each access takes the read lock; iteration reads
+    one month at a time, so every month it returns is consistent even while other threads write.
+    Random access is not O(1): get(int) walks the months from the position read last, so
+    reading indexes in order is cheap but jumping around costs time per month passed, and
+    two calls may see different states. Iterate, or read a snapshot(), for a consistent pass.
     @return A list of all Expense objects.
     */
     public List<Expense> getAllExpenses() {
-        return expenses;
+        return new ExpenseListView();
     }
 
     /**
@@ -118,22 +426,317 @@ public class ExpenseManager {
     @return A list of expenses in the specified category.
     */
     public List<Expense> filterByCategory(String category) {
-        return expenses.stream()
-                .filter(expense -> expense.getCategory().equalsIgnoreCase(category))
-                .collect(Collectors.toList());
+        return read(() -> expenses.filterByCategory(category));
+    }
+
+    /**
+    Starts a query that combines date, category, amount and description conditions with a
+    sort order and a limit. The query picks the most selective index and checks every other
+    condition in the same pass.
+    @return A query matching every expense, to be narrowed and then executed.
+    */
+    public ExpenseQuery query() {
+        return new ExpenseQuery(this);
+    }
+
+    /**
+    Runs a query under the read lock. The returned cursor reads a snapshot of the months the
+    query needs, so it needs no lock.
+    */
+    ExpenseCursor execute(ExpenseQuery query) {
+        return read(() -> expenses.select(query));
+    }
+
+    /**
+    Sets how many expenses a stream or aggregation must cover before it runs in parallel.
+    Below the threshold, the work stays on the calling thread, which is faster for small data.
+    @param rows The smallest number of expenses processed in parallel.
+    @throws IllegalArgumentException If rows is less than 1.
+    */
+    public void setParallelThreshold(int rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("Parallel threshold must be at least 1.");
+        }
+        this.parallelThreshold = rows;
+    }
+
+    /**
+    Gets how many expenses a stream or aggregation must cover before it runs in parallel.
+    @return The parallel threshold in rows.
+    */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+    Streams every expense in date order from a snapshot. The stream is parallel when there
+    are at least getParallelThreshold() expenses, and it splits evenly across months.
+    @return A stream of expenses unaffected by later changes.
+    */
+    public Stream<Expense> stream() {
+        ExpenseStore pinned = read(expenses::snapshot);
+        return StreamSupport.stream(pinned.spliterator(), pinned.size() >= parallelThreshold);
+    }
+
+    /**
+    Summarizes every category within a date range from a snapshot, reading the amount and
+    category columns in fork/join tasks when the range holds at least getParallelThreshold() expenses.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return A map of category names to their summaries. A summary has a month only if the range lies within one month.
+    */
+    public Map<String, CategorySummary> summarizeByCategory(LocalDate start, LocalDate end) {
+        ExpenseStore pinned = read(expenses::snapshot);
+        return pinned.summarizeByCategory(start, end, parallelThreshold);
+    }
+
+    /**
+    Finds the k greatest expenses matching a query in a single pass over the query's cursor,
+    holding at most k expenses in a bounded heap.
+    @param query The query selecting the candidate expenses.
+    @param k The number of expenses to return.
+    @param comparator The order that decides which expenses are greatest.
+    @return Up to k expenses, greatest first.
+    @throws IllegalArgumentException If k is negative.
+    */
+    public List<Expense> topK(ExpenseQuery query, int k, Comparator<? super Expense> comparator) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative.");
+        }
+        PriorityQueue<Expense> heap = new PriorityQueue<>(Math.max(1, k), comparator);
+        ExpenseCursor cursor = query.execute();
+        while (k > 0 && cursor.hasNext()) {
+            Expense expense = cursor.next();
+            if (heap.size() < k) {
+                heap.add(expense);
+            } else if (comparator.compare(expense, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(expense);
+            }
+        }
+        List<Expense> result = new ArrayList<>(heap);
+        result.sort(comparator.reversed());
+        return result;
+    }
+
+    /**
+    Finds the largest expenses of a month, optionally within one category. The amounts are
+    compared straight from the month's column, and only the k results become Expense objects.
+    @param category The exact category name, or null for every category.
+    @param yearMonth The month to search.
+    @param k The number of expenses to return.
+    @return Up to k expenses, largest first.
+    @throws IllegalArgumentException If k is negative.
+    */
+    public List<Expense> getLargestExpenses(String category, YearMonth yearMonth, int k) {
+        ExpenseQuery query = query()
+            .between(yearMonth.atDay(1), yearMonth.atEndOfMonth())
+            .sortBy(ExpenseQuery.Sort.AMOUNT_DESCENDING)
+            .limit(k);
+        if (category != null) {
+            query.inCategories(List.of(category));
+        }
+        List<Expense> result = new ArrayList<>();
+        query.execute().forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+    Calculates an exact percentile of the expense amounts of a month, optionally within one
+    category, using quickselect on that month's amounts only.
+    @param category The exact category name, or null for every category.
+    @param yearMonth The month to read.
+    @param percentile The percentile between 0 and 100.
+    @return The percentile amount, interpolated between the closest ranks, or 0 if there are no expenses.
+    @throws IllegalArgumentException If the percentile is outside 0 to 100.
+    */
+    public double getPercentile(String category, YearMonth yearMonth, double percentile) {
+        return read(() -> expenses.percentileCents(category, yearMonth, percentile)) / 100.0;
+    }
+
+    /**
+    Calculates the exact median expense amount of a month, optionally within one category.
+    @param category The exact category name, or null for every category.
+    @param yearMonth The month to read.
+    @return The median amount, or 0 if there are no expenses.
+    */
+    public double getMedian(String category, YearMonth yearMonth) {
+        return getPercentile(category, yearMonth, 50.0);
+    }
+
+    /**
+    Searches expense descriptions through an inverted index instead of scanning every expense.
+    Each search term matches any word it is the start of, ignoring case, and an expense must
+    match every term. For example, "gro week" finds "Weekly groceries".
+    @param query The search terms, separated by spaces.
+    @return The matching expenses ordered by date, or an empty list if the query has no terms.
+    */
+    public List<Expense> searchDescriptions(String query) {
+        return read(() -> expenses.searchDescriptions(query));
     }
 
     /**
     Filters expenses within a specific date range.
     @param start The start date of the range.
     @param end The end date of the range.
-    @return A list of expenses within the date range.
+    @return A list of expenses within the date range, ordered by date.
     */
     public List<Expense> filterByDateRange(LocalDate start, LocalDate end) {
-        return expenses.stream()
-                .filter(expense -> (expense.getDate().isEqual(start) || expense.getDate().isAfter(start)) &&
-                                   (expense.getDate().isEqual(end) || expense.getDate().isBefore(end)))
-                .collect(Collectors.toList());
+        return read(() -> expenses.filterByDateRange(start, end));
+    }
+
+    /**
+    Counts the expenses within a specific date range without building a list.
+    @param start The start date of the range.
+    @param end The end date of the range.
+    @return The number of expenses within the date range.
+    */
+    public int countByDateRange(LocalDate start, LocalDate end) {
+        return read(() -> expenses.countInRange(start, end));
+    }
+
+    /**
+    Filters expenses within an inclusive amount range. Each month finds its matches with
+    binary searches over its rows ordered by amount instead of scanning them.
+    @param minimum The smallest amount to include.
+    @param maximum The largest amount to include.
+    @return A list of expenses within the amount range, ordered by date.
+    */
+    public List<Expense> filterByAmountRange(double minimum, double maximum) {
+        return collect(query().amountBetween(minimum, maximum));
+    }
+
+    /**
+    Filters expenses of at least a given amount, such as every expense over $100.
+    @param minimum The smallest amount to include.
+    @return A list of expenses of at least the amount, ordered by date.
+    */
+    public List<Expense> filterByMinimumAmount(double minimum) {
+        return collect(query().amountAtLeast(minimum));
+    }
+
+    /**
+    Counts the expenses within an inclusive amount range without building a list.
+    @param minimum The smallest amount to include.
+    @param maximum The largest amount to include.
+    @return The number of expenses within the amount range.
+    */
+    public int countByAmountRange(double minimum, double maximum) {
+        long minimumCents = Money.toCents(minimum);
+        long maximumCents = Money.toCents(maximum);
+        return read(() -> expenses.countInAmountRange(minimumCents, maximumCents));
+    }
+
+    /**
+    Runs a query and reads every expense from its cursor.
+    */
+    private static List<Expense> collect(ExpenseQuery query) {
+        List<Expense> result = new ArrayList<>();
+        query.execute().forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+    Sums the expenses within a specific date range without building a list.
+    @param start The start date of the range.
+    @param end The end date of the range.
+    @return The total amount of the expenses within the date range.
+    */
+    public double sumByDateRange(LocalDate start, LocalDate end) {
+        return read(() -> expenses.rangeTotalCents(start, end)) / 100.0;
+    }
+
+    /**
+    Sums a category's expenses within a date range, such as a rolling budget period or the
+    days since payday. The store keeps a Fenwick tree of each category's totals by day, so
+    this takes logarithmic time however many expenses the range holds.
+    @param category The exact category name.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return The total amount of the category's expenses within the range.
+    */
+    public double rangeTotal(String category, LocalDate start, LocalDate end) {
+        return Money.toAmount(rangeTotalCents(category, start, end));
+    }
+
+    /**
+    Sums a category's expenses within a date range in cents.
+    @param category The exact category name.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return The total in cents.
+    */
+    public long rangeTotalCents(String category, LocalDate start, LocalDate end) {
+        return read(() -> expenses.rangeTotalCents(category, start, end));
+    }
+
+    /**
+    Sums every category's expenses within a date range under one read lock, so the totals
+    agree with each other even while expenses are being added.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return A map of category names to their totals within the range, in id order.
+    */
+    public Map<String, Double> rangeTotalsByCategory(LocalDate start, LocalDate end) {
+        Map<String, Long> centsByCategory = read(() -> expenses.rangeTotalsCentsByCategory(start, end));
+        Map<String, Double> totals = new LinkedHashMap<>();
+        centsByCategory.forEach((category, cents) -> totals.put(category, Money.toAmount(cents)));
+        return totals;
+    }
+
+    /**
+    Sums the expenses of the given number of days ending with a date, such as the last 7, 30
+    or 90 days. The store keeps daily totals per category with prefix sums, so a window is
+    read in constant time instead of scanning its expenses.
+    @param category The exact category name, or null for every category.
+    @param end The last date of the window.
+    @param days The number of days in the window.
+    @return The total amount within the window.
+    @throws IllegalArgumentException If days is not positive.
+    */
+    public double getTrailingTotal(String category, LocalDate end, int days) {
+        return Money.toAmount(getTrailingTotalCents(category, end, days));
+    }
+
+    /**
+    Sums the expenses of the given number of days ending with a date in cents.
+    @param category The exact category name, or null for every category.
+    @param end The last date of the window.
+    @param days The number of days in the window.
+    @return The total in cents.
+    @throws IllegalArgumentException If days is not positive.
+    */
+    public long getTrailingTotalCents(String category, LocalDate end, int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("Window must be at least one day.");
+        }
+        return read(() -> expenses.trailingTotalCents(category, end, days));
+    }
+
+    /**
+    Averages the daily spending over the given number of days ending with a date.
+    @param category The exact category name, or null for every category.
+    @param end The last date of the window.
+    @param days The number of days in the window.
+    @return The average amount per day within the window.
+    @throws IllegalArgumentException If days is not positive.
+    */
+    public double getTrailingAverage(String category, LocalDate end, int days) {
+        return getTrailingTotal(category, end, days) / days;
+    }
+
+    /**
+    Gets approximate expense-size percentiles and distinct-merchant counts over a span of
+    months, such as a quarter or a year. Each month keeps a t-digest of its amounts and a
+    HyperLogLog of its merchants, taken from the descriptions, per category; the result
+    merges them instead of sorting the expenses.
+    @param category The exact category name, or null for every category.
+    @param start The first month.
+    @param end The last month.
+    @return The merged sketch.
+    */
+    public SpendingSketch getSpendingSketch(String category, YearMonth start, YearMonth end) {
+        return read(() -> expenses.sketch(category, start, end));
     }
 
     /**
@@ -144,6 +747,55 @@ public class ExpenseManager {
         return predefinedCategories;
     }
 
+    /**
+    Gets every category, predefined or added at runtime, in id order.
+    @return A read-only list of category names.
+    */
+    public List<String> getCategories() {
+        return categories.names();
+    }
+
+    /**
+    Gets the registry that maps category names to their dense ids.
+    @return The category registry.
+    */
+    public CategoryRegistry getCategoryRegistry() {
+        return categories;
+    }
+
+    /**
+    Adds a new category.
+    @param name The category name.
+    @throws IllegalArgumentException If the name is blank, contains a comma, semicolon or line break, or a category with that name exists, ignoring case.
+    @throws IllegalStateException If there are already CategoryRegistry.MAX_CATEGORIES categories.
+    */
+    public void addCategory(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Category name cannot be empty.");
+        }
+        String trimmed = name.trim();
+        write(() -> {
+            if (categories.idOfIgnoreCase(trimmed) >= 0) {
+                throw new IllegalArgumentException("Category already exists: " + trimmed);
+            }
+            return categories.register(trimmed);
+        });
+        changed(List.of());
+    }
+
+    /**
+    Renames a category. Its expenses and budgets keep their category id, so they follow the
+    new name without being rewritten. Snapshots taken before the rename keep the old name.
+    @param oldName The current name.
+    @param newName The new name.
+    @throws IllegalArgumentException If oldName is not a category, or newName is blank, contains a comma, semicolon or line break, or is already used, ignoring case.
+    */
+    public void renameCategory(String oldName, String newName) {
+        String trimmed = newName == null ? null : newName.trim();
+        write(() -> categories.rename(oldName, trimmed));
+        changed(List.of(ExpenseChangeEvent.categoryChanged(oldName, trimmed)));
+    }
+
     /**
     Retrieves the BudgetManager instance, setting up a callback for updates.
     @return The BudgetManager instance.
@@ -153,6 +805,81 @@ public class ExpenseManager {
         return budgetManager;
     }
 
+    /**
+    Refreshes budgets and the GUI and publishes the change after a mutation, or defers all
+    of it to the end of the open batch.
+    */
+    private void changed(List<ExpenseChangeEvent> events) {
+        synchronized (batchEvents) {
+            // Expenses can register categories implicitly, so announce every id not published yet
+            List<String> names = categories.names();
+            if (announcedCategories < names.size()) {
+                List<ExpenseChangeEvent> withCategories = new ArrayList<>();
+                for (int id = announcedCategories; id < names.size(); id++) {
+                    withCategories.add(ExpenseChangeEvent.categoryChanged(names.get(id), names.get(id)));
+                }
+                withCategories.addAll(events);
+                events = withCategories;
+                announcedCategories = names.size();
+            }
+            if (events.isEmpty()) {
+                return;
+            }
+            if (batchDepth > 0) {
+                batchChanged = true;
+                batchEvents.addAll(events);
+                return;
+            }
+        }
+        updateBudgets();
+        triggerUpdate();
+        eventBus.publish(events);
+    }
+
+    /**
+    Runs a mutation of the store under the write lock.
+    */
+    private <T> T write(Supplier<T> mutation) {
+        long stamp = lock.writeLock();
+        try {
+            return mutation.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+    Runs a query of the store under the read lock.
+    */
+    private <T> T read(Supplier<T> query) {
+        long stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+    Fails with IndexOutOfBoundsException if the index is not a valid position.
+    */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= expenses.size()) {
+            throw new IndexOutOfBoundsException("Invalid expense index.");
+        }
+    }
+
+    /**
+    Gets the expense with the given id or fails with IllegalArgumentException.
+    */
+    private Expense requireExpense(long id) {
+        Expense expense = expenses.getById(id);
+        if (expense == null) {
+            throw new IllegalArgumentException("Invalid expense id.");
+        }
+        return expense;
+    }
+
     /**
     Updates budgets whenever expenses are added, edited, or removed.
     */
@@ -161,15 +888,21 @@ public class ExpenseManager {
         budgetManager.getAllBudgets(currentMonth);
     }
     
+    /**
+    Gets the months that currently have at least one expense.
+    @return An ordered, read-only copy of the set of months.
+    */
+    public NavigableSet<YearMonth> getExpenseMonths() {
+        return Collections.unmodifiableNavigableSet(read(() -> new TreeSet<>(expenses.months())));
+    }
+
     /**
     Gets expenses for a specific month.
     @param yearMonth The YearMonth to filter expenses by.
     @return A list of expenses for the specified month.
     */
     public List<Expense> getExpensesForMonth(YearMonth yearMonth) {
-        return expenses.stream()
-            .filter(expense -> YearMonth.from(expense.getDate()).equals(yearMonth))
-            .collect(Collectors.toList());
+        return read(() -> expenses.getMonth(yearMonth));
     }
 
     /**
@@ -179,10 +912,48 @@ public class ExpenseManager {
     @return The total expenses for the category in the given month.
     */
     public double calculateMonthlyExpensesByCategory(String category, YearMonth yearMonth) {
-        return getExpensesForMonth(yearMonth).stream()
-            .filter(expense -> expense.getCategory().equals(category))
-            .mapToDouble(Expense::getAmount)
-            .sum();
+        return read(() -> expenses.sumCents(category, yearMonth)) / 100.0;
+    }
+
+    /**
+    Calculates the total expenses across all categories for a given month.
+    @param yearMonth The month to calculate the total for.
+    @return The total expenses for the given month.
+    */
+    public double calculateMonthlyTotal(YearMonth yearMonth) {
+        return Money.toAmount(calculateMonthlyTotalCents(yearMonth));
+    }
+
+    /**
+    Calculates the exact total of a month's expenses in cents.
+    @param yearMonth The month to calculate the total for.
+    @return The total expenses for the given month in cents.
+    */
+    public long calculateMonthlyTotalCents(YearMonth yearMonth) {
+        return read(() -> expenses.sumCents(yearMonth));
+    }
+
+    /**
+    Gets the running count, total, minimum and maximum of a category in a given month.
+    @param category The category to summarize.
+    @param yearMonth The month to summarize.
+    @return A summary of the category's expenses for the month.
+    */
+    public CategorySummary getCategorySummary(String category, YearMonth yearMonth) {
+        return read(() -> expenses.summarize(category, yearMonth));
+    }
+
+    /**
+    Gets the count, total, minimum and maximum of a category over any date range. Whole
+    months come from their running aggregates, and partial months at the ends of the range
+    are reduced directly over the amount and category columns.
+    @param category The category to summarize.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return A summary of the category's expenses in the range.
+    */
+    public CategorySummary getCategorySummary(String category, LocalDate start, LocalDate end) {
+        return read(() -> expenses.summarize(category, start, end));
     }
 
     /**
@@ -191,12 +962,63 @@ public class ExpenseManager {
     @return A map of category names to total expenses.
     */
     public Map<String, Double> getMonthlyTotalsByCategory(YearMonth yearMonth) {
+        Map<String, Long> centsByCategory = read(() -> expenses.sumCentsByCategory(yearMonth));
         Map<String, Double> monthlyTotals = new HashMap<>();
-        for (String category : predefinedCategories) {
-            double total = calculateMonthlyExpensesByCategory(category, yearMonth);
-            monthlyTotals.put(category, total);
+        for (String category : categories.names()) {
+            monthlyTotals.put(category, centsByCategory.getOrDefault(category, 0L) / 100.0);
         }
         return monthlyTotals;
     }
-    
+
+    /**
+    A read-only view of every expense that takes the read lock for each access.
+    */
+    private class ExpenseListView extends AbstractList<Expense> {
+        @Override
+        public Expense get(int index) {
+            return read(() -> expenses.get(index));
+        }
+
+        @Override
+        public int size() {
+            return read(expenses::size);
+        }
+
+        @Override
+        public Iterator<Expense> iterator() {
+            return new Iterator<Expense>() {
+                private YearMonth month; // Month of the rows in chunk, null before the first month
+                private Iterator<Expense> chunk = Collections.emptyIterator();
+                private boolean exhausted;
+
+                @Override
+                public boolean hasNext() {
+                    while (!chunk.hasNext()) {
+                        if (exhausted) {
+                            return false;
+                        }
+                        List<Expense> rows = read(() -> {
+                            NavigableSet<YearMonth> months = expenses.months();
+                            month = month == null ? (months.isEmpty() ? null : months.first()) : months.higher(month);
+                            return month == null ? null : expenses.getMonth(month);
+                        });
+                        if (rows == null) {
+                            exhausted = true;
+                            return false;
+                        }
+                        chunk = rows.iterator();
+                    }
+                    return true;
+                }
+
+                @Override
+                public Expense next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return chunk.next();
+                }
+            };
+        }
+    }
 }
@@ -1,9 +1,16 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 import static org.junit.jupiter.api.Assertions.*;
 
 //Author: Ashish Dev Choudhary
@@ -116,6 +123,22 @@ public class ExpenseManagerTest {
         assertTrue(filteredExpenses.contains(expense2));
     }
     
+    @Test
+    void testDateRangeCountAndSum() {
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 2, 10), "Food", 40.00, "Feb"));
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 20), "Food", 30.00, "Late Jan"));
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 5), "Utilities", 20.00, "Early Jan"));
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 3, 1), "Food", 10.00, "Mar"));
+        
+        List<Expense> range = expenseManager.filterByDateRange(LocalDate.of(2024, 1, 10), LocalDate.of(2024, 3, 1));
+        assertEquals(List.of("Late Jan", "Feb", "Mar"),
+            range.stream().map(Expense::getDescription).toList());
+        assertEquals(3, expenseManager.countByDateRange(LocalDate.of(2024, 1, 10), LocalDate.of(2024, 3, 1)));
+        assertEquals(90.00, expenseManager.sumByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 29)));
+        assertEquals(30.00, expenseManager.sumByDateRange(LocalDate.of(2024, 1, 6), LocalDate.of(2024, 1, 31)));
+        assertEquals(0, expenseManager.countByDateRange(LocalDate.of(2024, 3, 2), LocalDate.of(2024, 1, 1)));
+    }
+    
     @Test
     void testGetPredefinedCategories() {
         List<String> categories = ExpenseManager.getPredefinedCategories();
@@ -174,6 +197,984 @@ public class ExpenseManagerTest {
         assertEquals(0.00, monthlyTotals.get("Miscellaneous"));
     }
     
+    @Test
+    void testGetAllExpensesIsReadOnly() {
+        expenseManager.addExpense(testExpense);
+        assertThrows(UnsupportedOperationException.class,
+            () -> expenseManager.getAllExpenses().add(testExpense));
+    }
+    
+    @Test
+    void testDescriptionsSurviveEditsAndDeletes() {
+        for (int i = 0; i < 200; i++) {
+            expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 1), "Food", i, "Expense number " + i));
+        }
+        for (int i = 0; i < 150; i++) {
+            expenseManager.deleteExpense(0);
+        }
+        expenseManager.editExpense(0, new Expense(LocalDate.of(2024, 1, 2), "Utilities", 1.25, null));
+        
+        List<Expense> expenses = expenseManager.getAllExpenses();
+        assertEquals(50, expenses.size());
+        assertNull(expenses.get(49).getDescription());
+        assertEquals("Expense number 199", expenses.get(48).getDescription());
+        assertEquals(199.0, expenses.get(48).getAmount());
+    }
+    
+    @Test
+    void testEditMovesExpenseToNewMonth() {
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 15), "Food", 50.00, "January"));
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 2, 15), "Food", 30.00, "February"));
+        
+        expenseManager.editExpense(0, new Expense(LocalDate.of(2024, 3, 1), "Food", 20.00, "March"));
+        
+        assertTrue(expenseManager.getExpensesForMonth(YearMonth.of(2024, 1)).isEmpty());
+        assertEquals(20.00, expenseManager.calculateMonthlyExpensesByCategory("Food", YearMonth.of(2024, 3)));
+        assertEquals(List.of(YearMonth.of(2024, 2), YearMonth.of(2024, 3)),
+            List.copyOf(expenseManager.getExpenseMonths()));
+    }
+    
+    @Test
+    void testCategorySummaryTracksDeletes() {
+        YearMonth yearMonth = YearMonth.of(2024, 1);
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 5), "Food", 10.00, "Small"));
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 6), "Food", 40.00, "Medium"));
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 7), "Food", 90.00, "Large"));
+        
+        expenseManager.deleteExpense(2);
+        
+        CategorySummary summary = expenseManager.getCategorySummary("Food", yearMonth);
+        assertEquals(2, summary.getCount());
+        assertEquals(50.00, summary.getTotal());
+        assertEquals(10.00, summary.getMinimum());
+        assertEquals(40.00, summary.getMaximum());
+        assertEquals(25.00, summary.getAverage());
+        assertEquals(50.00, expenseManager.calculateMonthlyTotal(yearMonth));
+    }
+    
+    @Test
+    void testAddExpensesFiresCallbackOnce() {
+        int[] callbackCount = {0};
+        expenseManager.setGuiUpdateCallback(() -> callbackCount[0]++);
+        
+        expenseManager.addExpenses(List.of(
+            new Expense(LocalDate.of(2024, 1, 1), "Food", 10.00, "One"),
+            new Expense(LocalDate.of(2024, 1, 2), "Food", 20.00, "Two"),
+            new Expense(LocalDate.of(2024, 1, 3), "Food", 30.00, "Three")
+        ));
+        
+        assertEquals(3, expenseManager.getAllExpenses().size());
+        assertEquals(1, callbackCount[0]);
+    }
+    
+    @Test
+    void testNestedBatchFiresCallbackOnce() {
+        int[] callbackCount = {0};
+        expenseManager.setGuiUpdateCallback(() -> callbackCount[0]++);
+        
+        expenseManager.runInBatch(() -> {
+            expenseManager.addExpense(testExpense);
+            expenseManager.runInBatch(() -> expenseManager.editExpense(0,
+                new Expense(LocalDate.of(2024, 1, 1), "Food", 60.00, "Edited")));
+            expenseManager.getBudgetManager().setBudget("Food", 500.0, YearMonth.of(2024, 1));
+            assertEquals(0, callbackCount[0]);
+        });
+        
+        assertEquals(1, callbackCount[0]);
+    }
+    
+    @Test
+    void testDeleteExpenses() {
+        for (int day = 1; day <= 5; day++) {
+            expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, day), "Food", day, "Day " + day));
+        }
+        int[] callbackCount = {0};
+        expenseManager.setGuiUpdateCallback(() -> callbackCount[0]++);
+        
+        expenseManager.deleteExpenses(List.of(0, 2, 4));
+        
+        assertEquals(List.of("Day 2", "Day 4"),
+            expenseManager.getAllExpenses().stream().map(Expense::getDescription).toList());
+        assertEquals(1, callbackCount[0]);
+        assertThrows(IndexOutOfBoundsException.class, () -> expenseManager.deleteExpenses(List.of(0, 5)));
+        assertEquals(2, expenseManager.getAllExpenses().size());
+    }
+    
+    @Test
+    void testChangeEventsAreTyped() {
+        List<ExpenseChangeEvent> received = new ArrayList<>();
+        expenseManager.getEventBus().subscribe(received::addAll);
+        
+        expenseManager.addExpense(testExpense);
+        expenseManager.editExpense(0, new Expense(LocalDate.of(2024, 2, 1), "Utilities", 50.00, "Moved"));
+        expenseManager.deleteExpense(0);
+        
+        assertEquals(3, received.size());
+        assertEquals(ExpenseChangeEvent.Type.EXPENSE_ADDED, received.get(0).getType());
+        assertEquals(ExpenseChangeEvent.Type.EXPENSE_EDITED, received.get(1).getType());
+        assertEquals(YearMonth.of(2024, 2), received.get(1).getMonth());
+        assertEquals(YearMonth.of(2024, 1), received.get(1).getPreviousMonth());
+        assertEquals("Food", received.get(1).getPreviousCategory());
+        assertEquals(ExpenseChangeEvent.Type.EXPENSE_REMOVED, received.get(2).getType());
+        assertEquals("Utilities", received.get(2).getCategory());
+    }
+    
+    @Test
+    void testBatchEventsAreCoalesced() {
+        List<List<ExpenseChangeEvent>> deliveries = new ArrayList<>();
+        expenseManager.getEventBus().subscribe(deliveries::add, 60_000);
+        
+        expenseManager.addExpenses(List.of(
+            new Expense(LocalDate.of(2024, 1, 1), "Food", 10.00, "One"),
+            new Expense(LocalDate.of(2024, 1, 2), "Food", 20.00, "Two")
+        ));
+        expenseManager.getBudgetManager().setBudget("Food", 300.0, YearMonth.of(2024, 1));
+        assertTrue(deliveries.isEmpty());
+        
+        expenseManager.getEventBus().flush();
+        
+        assertEquals(1, deliveries.size());
+        assertEquals(List.of(
+            ExpenseChangeEvent.added(new Expense(LocalDate.of(2024, 1, 1), "Food", 10.00, "One")),
+            ExpenseChangeEvent.budgetChanged("Food", YearMonth.of(2024, 1))
+        ), deliveries.get(0));
+    }
+    
+    @Test
+    void testEventAffectsDateRange() {
+        // A trailing window from mid-January reaches back into December
+        LocalDate start = LocalDate.of(2024, 12, 17);
+        LocalDate end = LocalDate.of(2025, 1, 15);
+        Expense december = new Expense(LocalDate.of(2024, 12, 20), "Food", 10.00, "December");
+        Expense november = new Expense(LocalDate.of(2024, 11, 20), "Food", 10.00, "November");
+        
+        assertTrue(ExpenseChangeEvent.removed(december).affects(start, end));
+        assertFalse(ExpenseChangeEvent.added(november).affects(start, end));
+        assertTrue(ExpenseChangeEvent.edited(november, december).affects(start, end));
+        assertTrue(ExpenseChangeEvent.categoryChanged("Food", "Groceries").affects(start, end));
+    }
+    
+    @Test
+    void testIdsSurviveEditsAcrossMonths() {
+        Expense first = new Expense(LocalDate.of(2024, 1, 10), "Food", 10.00, "First");
+        Expense second = new Expense(LocalDate.of(2024, 1, 20), "Transportation", 20.00, "Second");
+        expenseManager.addExpense(first);
+        expenseManager.addExpense(second);
+        long id = first.getId();
+        assertTrue(id > 0);
+        assertNotEquals(id, second.getId());
+        
+        Expense moved = new Expense(LocalDate.of(2024, 3, 5), "Food", 15.00, "Moved");
+        expenseManager.editExpenseById(id, moved);
+        
+        assertEquals(id, moved.getId());
+        assertEquals(moved, expenseManager.getExpenseById(id));
+        assertEquals(id, expenseManager.getAllExpenses().get(1).getId());
+        assertEquals(second, expenseManager.getExpenseById(second.getId()));
+    }
+    
+    @Test
+    void testDeleteExpenseById() {
+        Expense keep = new Expense(LocalDate.of(2024, 1, 10), "Food", 10.00, "Keep");
+        Expense drop = new Expense(LocalDate.of(2024, 1, 15), "Food", 20.00, "Drop");
+        expenseManager.addExpenses(List.of(keep, drop));
+        
+        expenseManager.deleteExpenseById(drop.getId());
+        
+        assertNull(expenseManager.getExpenseById(drop.getId()));
+        assertEquals(List.of(keep), expenseManager.getAllExpenses());
+        assertEquals(10.00, expenseManager.calculateMonthlyTotal(YearMonth.of(2024, 1)), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.deleteExpenseById(drop.getId()));
+        assertThrows(IllegalArgumentException.class,
+            () -> expenseManager.deleteExpensesById(List.of(keep.getId(), drop.getId())));
+        assertEquals(1, expenseManager.getAllExpenses().size());
+    }
+    
+    @Test
+    void testIdsStayValidAfterCompaction() {
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            added.add(new Expense(LocalDate.of(2024, 1, 1 + i % 28), "Food", i, "Expense " + i));
+        }
+        expenseManager.addExpenses(added);
+        
+        List<Long> evenIds = new ArrayList<>();
+        for (int i = 0; i < 100; i += 2) {
+            evenIds.add(added.get(i).getId());
+        }
+        expenseManager.deleteExpensesById(evenIds);
+        
+        assertEquals(50, expenseManager.getAllExpenses().size());
+        for (int i = 1; i < 100; i += 2) {
+            assertEquals(added.get(i), expenseManager.getExpenseById(added.get(i).getId()));
+        }
+        for (Expense expense : expenseManager.getAllExpenses()) {
+            assertEquals(expense, expenseManager.getExpenseById(expense.getId()));
+        }
+        assertEquals(2500.00, expenseManager.calculateMonthlyTotal(YearMonth.of(2024, 1)), 0.001);
+    }
+    
+    @Test
+    void testConcurrentWritesAndReads() throws InterruptedException {
+        int threads = 4;
+        int perThread = 500;
+        List<Thread> writers = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int day = t + 1;
+            writers.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, day), "Food", 1.00, "Concurrent"));
+                        expenseManager.calculateMonthlyTotal(YearMonth.of(2024, 1));
+                        expenseManager.countByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        
+        assertTrue(failures.isEmpty(), failures.toString());
+        assertEquals(threads * perThread, expenseManager.getAllExpenses().size());
+        assertEquals(threads * perThread, expenseManager.calculateMonthlyTotal(YearMonth.of(2024, 1)), 0.001);
+        int iterated = 0;
+        for (Expense expense : expenseManager.getAllExpenses()) {
+            iterated++;
+        }
+        assertEquals(threads * perThread, iterated);
+    }
+    
+    @Test
+    void testSnapshotIgnoresLaterChanges() {
+        YearMonth january = YearMonth.of(2024, 1);
+        Expense kept = new Expense(LocalDate.of(2024, 1, 5), "Food", 10.00, "Kept");
+        Expense edited = new Expense(LocalDate.of(2024, 1, 6), "Food", 20.00, "Edited");
+        expenseManager.addExpenses(List.of(kept, edited));
+        expenseManager.getBudgetManager().setBudget("Food", 100.0, january);
+        
+        ExpenseSnapshot snapshot = expenseManager.snapshot();
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 7), "Food", 30.00, "Later"));
+        expenseManager.editExpenseById(edited.getId(), new Expense(LocalDate.of(2024, 2, 1), "Food", 25.00, "Moved"));
+        expenseManager.deleteExpenseById(kept.getId());
+        expenseManager.getBudgetManager().setBudget("Food", 500.0, january);
+        
+        assertEquals(List.of(kept, edited), snapshot.getAllExpenses());
+        assertEquals(30.00, snapshot.calculateMonthlyTotal(january), 0.001);
+        assertEquals(30.00, snapshot.getMonthlyTotalsByCategory(january).get("Food"), 0.001);
+        assertEquals(100.0, snapshot.getBudget("Food", january), 0.001);
+        assertEquals(List.of(january), List.copyOf(snapshot.getExpenseMonths()));
+        
+        assertEquals(30.00, expenseManager.calculateMonthlyTotal(january), 0.001);
+        assertEquals(25.00, expenseManager.calculateMonthlyTotal(YearMonth.of(2024, 2)), 0.001);
+        assertEquals(500.0, expenseManager.getBudgetManager().getBudget("Food", january), 0.001);
+    }
+    
+    @Test
+    void testSearchDescriptions() {
+        Expense groceries = new Expense(LocalDate.of(2024, 2, 3), "Food", 40.00, "Weekly groceries");
+        Expense lunch = new Expense(LocalDate.of(2024, 1, 9), "Food", 12.00, "Lunch with team");
+        Expense bus = new Expense(LocalDate.of(2024, 1, 4), "Transportation", 2.50, "Bus to grocery store");
+        expenseManager.addExpenses(List.of(groceries, lunch, bus));
+        
+        assertEquals(List.of(bus, groceries), expenseManager.searchDescriptions("GROC"));
+        assertEquals(List.of(groceries), expenseManager.searchDescriptions("gro week"));
+        assertEquals(List.of(), expenseManager.searchDescriptions("dinner"));
+        assertEquals(List.of(), expenseManager.searchDescriptions("  "));
+        
+        Expense dinner = new Expense(LocalDate.of(2024, 1, 9), "Food", 30.00, "Dinner with team");
+        expenseManager.editExpenseById(lunch.getId(), dinner);
+        expenseManager.deleteExpenseById(bus.getId());
+        
+        assertEquals(List.of(dinner), expenseManager.searchDescriptions("team"));
+        assertEquals(List.of(), expenseManager.searchDescriptions("lunch"));
+        assertEquals(List.of(groceries), expenseManager.searchDescriptions("groc"));
+    }
+    
+    @Test
+    void testQueryCombinesFiltersAndPicksIndex() {
+        for (int day = 1; day <= 28; day++) {
+            expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, day), "Food", day, "Groceries"));
+            expenseManager.addExpense(new Expense(LocalDate.of(2024, 2, day), "Utilities", day * 2, "Power bill"));
+        }
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 2, 14), "Entertainment", 45.00, "Concert tickets"));
+        
+        ExpenseCursor byDescription = expenseManager.query().withDescription("concert").execute();
+        assertEquals(ExpenseQuery.Plan.DESCRIPTION_INDEX, byDescription.getPlan());
+        assertEquals("Concert tickets", byDescription.next().getDescription());
+        assertFalse(byDescription.hasNext());
+        
+        ExpenseCursor byDate = expenseManager.query()
+            .between(LocalDate.of(2024, 1, 10), LocalDate.of(2024, 1, 12))
+            .withDescription("groceries")
+            .execute();
+        assertEquals(ExpenseQuery.Plan.DATE_INDEX, byDate.getPlan());
+        List<Expense> dated = new ArrayList<>();
+        byDate.forEachRemaining(dated::add);
+        assertEquals(3, dated.size());
+        
+        ExpenseCursor byCategory = expenseManager.query()
+            .inCategories(List.of("Entertainment"))
+            .execute();
+        assertEquals(ExpenseQuery.Plan.CATEGORY_INDEX, byCategory.getPlan());
+        assertEquals(45.00, byCategory.next().getAmount(), 0.001);
+        
+        ExpenseCursor top = expenseManager.query()
+            .inCategories(List.of("Utilities", "Food"))
+            .amountBetween(10.00, 30.00)
+            .sortBy(ExpenseQuery.Sort.AMOUNT_DESCENDING)
+            .limit(3)
+            .execute();
+        assertEquals(ExpenseQuery.Plan.AMOUNT_INDEX, top.getPlan());
+        assertEquals(30.00, top.next().getAmount(), 0.001);
+        assertEquals(28.00, top.next().getAmount(), 0.001);
+        assertEquals(28.00, top.next().getAmount(), 0.001);
+        assertFalse(top.hasNext());
+    }
+    
+    @Test
+    void testQueryCursorReadsSnapshot() {
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 1), "Food", 10.00, "First"));
+        ExpenseCursor cursor = expenseManager.query().execute();
+        expenseManager.deleteExpense(0);
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 2), "Food", 20.00, "Second"));
+        
+        assertEquals("First", cursor.next().getDescription());
+        assertFalse(cursor.hasNext());
+    }
+    
+    @Test
+    void testGetByIndexMatchesIteration() {
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 90; i++) {
+            added.add(new Expense(LocalDate.of(2024, 1, 1).plusDays(i), "Food", 1 + i, "Row " + i));
+        }
+        expenseManager.addExpenses(added);
+        for (int i = 0; i < 90; i += 7) {
+            expenseManager.deleteExpenseById(added.get(i).getId());
+        }
+        List<Expense> all = expenseManager.getAllExpenses();
+        List<Expense> iterated = new ArrayList<>(all);
+        
+        // Ascending, descending and jumping reads all land on the rows iteration returns
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(iterated.get(i), all.get(i));
+        }
+        for (int i = all.size() - 1; i >= 0; i--) {
+            assertEquals(iterated.get(i), all.get(i));
+        }
+        for (int i : new int[] {40, 3, 70, 69, 0, all.size() - 1}) {
+            assertEquals(iterated.get(i), all.get(i));
+        }
+        
+        // A write between reads moves the positions after it
+        expenseManager.deleteExpenseById(iterated.get(1).getId());
+        assertEquals(iterated.get(2), all.get(1));
+        assertEquals(iterated.get(iterated.size() - 1), all.get(all.size() - 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> all.get(all.size()));
+    }
+    
+    @Test
+    void testIndexedQueryCursorReadsSnapshot() {
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 5), "Food", 10.00, "Lunch out"));
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 2, 5), "Food", 15.00, "Lunch again"));
+        ExpenseCursor cursor = expenseManager.query().withDescription("lunch").execute();
+        expenseManager.deleteExpense(0);
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 3, 5), "Food", 20.00, "Lunch later"));
+    
+        assertEquals("Lunch out", cursor.next().getDescription());
+        assertEquals("Lunch again", cursor.next().getDescription());
+        assertFalse(cursor.hasNext());
+        assertEquals(35.00, expenseManager.rangeTotal("Food", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)), 0.001);
+    }
+    
+    @Test
+    void testTopKAndLargestExpenses() {
+        YearMonth march = YearMonth.of(2024, 3);
+        double[] amounts = {12.00, 99.00, 5.00, 47.50, 99.00, 63.25, 8.00};
+        for (int i = 0; i < amounts.length; i++) {
+            expenseManager.addExpense(new Expense(march.atDay(i + 1), i % 2 == 0 ? "Food" : "Utilities", amounts[i], "Row " + i));
+        }
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 4, 1), "Food", 500.00, "Next month"));
+        
+        List<Expense> largest = expenseManager.getLargestExpenses(null, march, 3);
+        assertEquals(List.of(99.00, 99.00, 63.25), largest.stream().map(Expense::getAmount).toList());
+        assertEquals("Row 1", largest.get(0).getDescription());
+        
+        List<Expense> largestFood = expenseManager.getLargestExpenses("Food", march, 2);
+        assertEquals(List.of(99.00, 12.00), largestFood.stream().map(Expense::getAmount).toList());
+        
+        List<Expense> latest = expenseManager.topK(expenseManager.query(), 2,
+            Comparator.comparing(Expense::getDate));
+        assertEquals(List.of("Next month", "Row 6"), latest.stream().map(Expense::getDescription).toList());
+        assertEquals(List.of(), expenseManager.getLargestExpenses(null, march, 0));
+    }
+    
+    @Test
+    void testPercentileAndMedian() {
+        YearMonth may = YearMonth.of(2024, 5);
+        double[] amounts = {40.00, 10.00, 30.00, 20.00, 100.00};
+        for (int i = 0; i < amounts.length; i++) {
+            expenseManager.addExpense(new Expense(may.atDay(i + 1), "Food", amounts[i], "Meal " + i));
+        }
+        expenseManager.addExpense(new Expense(may.atDay(9), "Utilities", 70.00, "Water"));
+        
+        assertEquals(30.00, expenseManager.getMedian("Food", may), 0.001);
+        assertEquals(35.00, expenseManager.getMedian(null, may), 0.001);
+        assertEquals(10.00, expenseManager.getPercentile("Food", may, 0), 0.001);
+        assertEquals(100.00, expenseManager.getPercentile("Food", may, 100), 0.001);
+        assertEquals(88.00, expenseManager.getPercentile("Food", may, 95), 0.001);
+        assertEquals(0.0, expenseManager.getMedian("Entertainment", may), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.getPercentile("Food", may, 101));
+        
+        expenseManager.deleteExpense(4);
+        assertEquals(25.00, expenseManager.getMedian("Food", may), 0.001);
+    }
+    
+    @Test
+    void testParallelAggregationMatchesSequential() {
+        List<Expense> added = new ArrayList<>();
+        String[] categories = {"Food", "Transportation", "Utilities"};
+        for (int i = 0; i < 20_000; i++) {
+            added.add(new Expense(LocalDate.of(2022, 1, 1).plusDays(i % 730), categories[i % 3], (i % 997) / 4.0, null));
+        }
+        expenseManager.addExpenses(added);
+        for (int i = 0; i < 20_000; i += 7) {
+            expenseManager.deleteExpenseById(added.get(i).getId());
+        }
+        LocalDate start = LocalDate.of(2022, 3, 15);
+        LocalDate end = LocalDate.of(2023, 10, 2);
+        
+        Map<String, CategorySummary> sequential = expenseManager.summarizeByCategory(start, end);
+        expenseManager.setParallelThreshold(1);
+        Map<String, CategorySummary> parallel = expenseManager.summarizeByCategory(start, end);
+        
+        for (String category : categories) {
+            assertEquals(sequential.get(category).getCount(), parallel.get(category).getCount());
+            assertEquals(sequential.get(category).getTotal(), parallel.get(category).getTotal(), 0.001);
+            assertEquals(sequential.get(category).getMinimum(), parallel.get(category).getMinimum(), 0.001);
+            assertEquals(sequential.get(category).getMaximum(), parallel.get(category).getMaximum(), 0.001);
+        }
+        int inRange = expenseManager.countByDateRange(start, end);
+        assertEquals(inRange, parallel.values().stream().mapToInt(CategorySummary::getCount).sum());
+        assertEquals(expenseManager.sumByDateRange(start, end),
+            parallel.values().stream().mapToDouble(CategorySummary::getTotal).sum(), 0.001);
+        
+        assertTrue(expenseManager.stream().isParallel());
+        assertEquals(expenseManager.getAllExpenses().size(), expenseManager.stream().count());
+        assertEquals(expenseManager.stream().sequential().mapToDouble(Expense::getAmount).sum(),
+            expenseManager.stream().mapToDouble(Expense::getAmount).sum(), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.setParallelThreshold(0));
+    }
+    
+    @Test
+    void testOffloadOldMonths(@TempDir Path directory) throws Exception {
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            added.add(new Expense(LocalDate.of(2023, 1, 1).plusDays(i * 2), i % 2 == 0 ? "Food" : "Utilities",
+                1 + i, i % 5 == 0 ? null : "Row " + i));
+        }
+        expenseManager.addExpenses(added);
+        expenseManager.deleteExpenseById(added.get(3).getId());
+        List<Expense> before = expenseManager.getAllExpenses();
+        LocalDate start = LocalDate.of(2023, 2, 10);
+        LocalDate end = LocalDate.of(2023, 9, 20);
+        CategorySummary summaryBefore = expenseManager.getCategorySummary("Food", start, end);
+        
+        assertEquals(12, expenseManager.offloadMonthsBefore(YearMonth.of(2024, 1)));
+        assertEquals(0, expenseManager.offloadMonthsBefore(YearMonth.of(2024, 1)));
+        assertEquals(5, expenseManager.offloadMonthsBefore(YearMonth.of(2024, 6), directory));
+        
+        assertEquals(before, expenseManager.getAllExpenses());
+        assertEquals(added.get(10), expenseManager.getExpenseById(added.get(10).getId()));
+        assertNull(expenseManager.getExpenseById(added.get(3).getId()));
+        CategorySummary summaryAfter = expenseManager.getCategorySummary("Food", start, end);
+        assertEquals(summaryBefore.getCount(), summaryAfter.getCount());
+        assertEquals(summaryBefore.getTotal(), summaryAfter.getTotal());
+        assertEquals(summaryBefore.getMinimum(), summaryAfter.getMinimum());
+        assertEquals(summaryBefore.getMaximum(), summaryAfter.getMaximum());
+        assertEquals(expenseManager.sumByDateRange(start, end), before.stream()
+            .filter(expense -> !expense.getDate().isBefore(start) && !expense.getDate().isAfter(end))
+            .mapToDouble(Expense::getAmount).sum(), 0.001);
+        assertEquals(List.of(added.get(101)), expenseManager.searchDescriptions("row 101"));
+        
+        // Writing to an offloaded month brings it back onto the heap
+        Expense edited = new Expense(LocalDate.of(2023, 1, 3), "Food", 999.00, "Edited");
+        expenseManager.editExpenseById(added.get(1).getId(), edited);
+        expenseManager.deleteExpenseById(added.get(2).getId());
+        expenseManager.addExpense(new Expense(LocalDate.of(2023, 1, 4), "Food", 5.00, "New"));
+        assertEquals(edited, expenseManager.getExpenseById(added.get(1).getId()));
+        assertEquals(before.size(), expenseManager.getAllExpenses().size());
+        assertEquals(999.00, expenseManager.getCategorySummary("Food", YearMonth.of(2023, 1)).getMaximum());
+        
+        // A month copied back and offloaded again keeps one segment file, and its old mapping stays readable.
+        // January 2023 was written to above, so it is offloaded too, now into a file.
+        ExpenseSnapshot pinned = expenseManager.snapshot();
+        expenseManager.editExpenseById(added.get(200).getId(), new Expense(LocalDate.of(2024, 2, 5), "Food", 7.00, "Edited"));
+        assertEquals(2, expenseManager.offloadMonthsBefore(YearMonth.of(2024, 6), directory));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(6, files.count());
+        }
+        assertEquals(before.size(), pinned.getAllExpenses().size());
+        assertEquals(added.get(200), pinned.getAllExpenses().stream()
+            .filter(expense -> expense.getId() == added.get(200).getId()).findFirst().orElseThrow());
+    }
+    
+    @Test
+    void testZoneMapsSkipBlocksWithoutMissingRows() {
+        // Amounts grow with the date and Entertainment only appears late in the month, so most blocks can be skipped
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            int day = 1 + i / 100;
+            added.add(new Expense(LocalDate.of(2024, 1, day), day > 25 && i % 7 == 0 ? "Entertainment" : "Food",
+                day * 10 + i % 10, "Row " + i));
+        }
+        expenseManager.addExpenses(added);
+        for (int i = 0; i < 3000; i += 11) {
+            expenseManager.deleteExpenseById(added.get(i).getId());
+        }
+        expenseManager.editExpenseById(added.get(5).getId(), new Expense(LocalDate.of(2024, 1, 1), "Entertainment", 900.00, "Edited"));
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 2), "Entertainment", 1.00, "Inserted"));
+        
+        for (int pass = 0; pass < 2; pass++) {
+            List<Expense> all = expenseManager.getAllExpenses();
+            List<Expense> ranged = new ArrayList<>();
+            expenseManager.query().amountBetween(150.00, 160.00).execute().forEachRemaining(ranged::add);
+            assertEquals(all.stream().filter(expense -> expense.getAmount() >= 150.00 && expense.getAmount() <= 160.00).toList(), ranged);
+            
+            List<Expense> entertainment = all.stream().filter(expense -> expense.getCategory().equals("Entertainment")).toList();
+            assertEquals(entertainment, expenseManager.filterByCategory("Entertainment"));
+            List<Expense> queried = new ArrayList<>();
+            expenseManager.query().inCategories(List.of("Entertainment")).amountBetween(0.00, 10.00).execute().forEachRemaining(queried::add);
+            assertEquals(List.of("Inserted"), queried.stream().map(Expense::getDescription).toList());
+            assertEquals(900.00, expenseManager.getPercentile("Entertainment", YearMonth.of(2024, 1), 100));
+            
+            // The second pass reads the same rows through an offloaded month
+            expenseManager.offloadMonthsBefore(YearMonth.of(2024, 2));
+        }
+    }
+    
+    @Test
+    void testRangeTotalMatchesScan() {
+        // Dates spread over decades so the tree has to widen in both directions
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            added.add(new Expense(LocalDate.of(2024, 6, 1).plusDays((i % 2 == 0 ? 1 : -1) * (i * 53L % 9000)),
+                i % 3 == 0 ? "Food" : "Utilities", 1 + (i * 37 % 500) / 4.0, "Row " + i));
+        }
+        expenseManager.addExpenses(added);
+        // A snapshot shares the tree, so the writes below work on a copy
+        ExpenseSnapshot snapshot = expenseManager.snapshot();
+        for (int i = 0; i < 500; i += 7) {
+            expenseManager.deleteExpenseById(added.get(i).getId());
+        }
+        for (int i = 1; i < 500; i += 13) {
+            if (i % 7 == 0) {
+                continue;
+            }
+            expenseManager.editExpenseById(added.get(i).getId(), new Expense(added.get(i).getDate().plusDays(40), "Food", 12.34, "Edited"));
+        }
+        expenseManager.addExpense(new Expense(LocalDate.of(1990, 1, 1), "Food", 5.00, "Early"));
+        
+        List<Expense> all = expenseManager.getAllExpenses();
+        LocalDate[][] ranges = {
+            {LocalDate.of(2020, 3, 15), LocalDate.of(2021, 7, 2)},
+            {LocalDate.of(1900, 1, 1), LocalDate.of(2100, 1, 1)},
+            {LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 1)},
+            {LocalDate.of(2030, 1, 1), LocalDate.of(2029, 1, 1)}
+        };
+        for (LocalDate[] range : ranges) {
+            for (String category : List.of("Food", "Utilities", "Entertainment")) {
+                long expected = all.stream()
+                    .filter(expense -> expense.getCategory().equals(category))
+                    .filter(expense -> !expense.getDate().isBefore(range[0]) && !expense.getDate().isAfter(range[1]))
+                    .mapToLong(Expense::getAmountCents).sum();
+                assertEquals(expected, expenseManager.rangeTotalCents(category, range[0], range[1]));
+            }
+        }
+        assertEquals(0L, expenseManager.rangeTotalCents("Unknown", LocalDate.MIN, LocalDate.MAX));
+        assertEquals(500, snapshot.getAllExpenses().size());
+    }
+    
+    @Test
+    void testTrailingWindowTotals() {
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            added.add(new Expense(LocalDate.of(2024, 3, 1).plusDays(i * 7L % 600 - 200),
+                i % 4 == 0 ? "Food" : "Transportation", 0.25 + i % 90, "Row " + i));
+        }
+        expenseManager.addExpenses(added);
+        LocalDate end = LocalDate.of(2024, 3, 10);
+        double before = expenseManager.getTrailingTotal(null, end, 30);
+        for (int i = 0; i < 400; i += 5) {
+            expenseManager.deleteExpenseById(added.get(i).getId());
+        }
+        expenseManager.addExpense(new Expense(LocalDate.of(2019, 5, 5), "Food", 3.00, "Much earlier"));
+        expenseManager.addExpense(new Expense(end, "Food", 40.00, "On the last day"));
+        
+        List<Expense> all = expenseManager.getAllExpenses();
+        for (int days : new int[] {1, 7, 30, 90}) {
+            LocalDate start = end.minusDays(days - 1);
+            for (String category : Arrays.asList("Food", "Transportation", null)) {
+                long expected = all.stream()
+                    .filter(expense -> category == null || expense.getCategory().equals(category))
+                    .filter(expense -> !expense.getDate().isBefore(start) && !expense.getDate().isAfter(end))
+                    .mapToLong(Expense::getAmountCents).sum();
+                assertEquals(expected, expenseManager.getTrailingTotalCents(category, end, days));
+            }
+        }
+        assertNotEquals(before, expenseManager.getTrailingTotal(null, end, 30));
+        assertEquals(expenseManager.getTrailingTotal("Food", end, 7) / 7, expenseManager.getTrailingAverage("Food", end, 7), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.getTrailingTotal(null, end, 0));
+    }
+    
+    @Test
+    void testSpendingSketches() {
+        // 3,000 expenses of 0.01 to 30.00 across a quarter, from 40 merchants written in mixed case
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String merchant = (i % 2 == 0 ? "Store " : "STORE ") + (i * 7 % 40);
+            added.add(Expense.ofCents(LocalDate.of(2024, 1 + i % 3, 1 + i % 28), "Food", 1 + (i * 613L % 3000), merchant));
+        }
+        expenseManager.addExpenses(added);
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 2, 3), "Utilities", 80.00, "Power"));
+        
+        SpendingSketch quarter = expenseManager.getSpendingSketch("Food", YearMonth.of(2024, 1), YearMonth.of(2024, 3));
+        assertEquals(3000, quarter.getCount());
+        assertEquals(15.00, quarter.getPercentile(50), 0.30);
+        assertEquals(27.00, quarter.getPercentile(90), 0.30);
+        assertEquals(29.70, quarter.getPercentile(99), 0.10);
+        assertEquals(40, quarter.getDistinctMerchants(), 1);
+        
+        // Monthly sketches merge into the same quarter
+        SpendingSketch merged = expenseManager.getSpendingSketch("Food", YearMonth.of(2024, 1), YearMonth.of(2024, 1))
+            .merge(expenseManager.getSpendingSketch("Food", YearMonth.of(2024, 2), YearMonth.of(2024, 3)));
+        assertEquals(quarter.getCount(), merged.getCount());
+        assertEquals(quarter.getPercentile(50), merged.getPercentile(50), 0.30);
+        assertEquals(quarter.getDistinctMerchants(), merged.getDistinctMerchants());
+        assertEquals(3001, expenseManager.getSpendingSketch(null, YearMonth.of(2024, 1), YearMonth.of(2024, 3)).getCount());
+        
+        // Removing rows rebuilds the month's sketches
+        for (int i = 0; i < 3000; i += 3) {
+            expenseManager.deleteExpenseById(added.get(i).getId());
+        }
+        SpendingSketch january = expenseManager.getSpendingSketch("Food", YearMonth.of(2024, 1), YearMonth.of(2024, 1));
+        assertEquals(0, january.getCount());
+        assertEquals(0.0, january.getPercentile(50));
+        assertEquals(0, january.getDistinctMerchants());
+        assertEquals(2000, expenseManager.getSpendingSketch("Food", YearMonth.of(2024, 1), YearMonth.of(2024, 3)).getCount());
+    }
+    
+    @Test
+    void testTagAndCategoryBitmapQueries() {
+        // Ids above 65,536 so the bitmaps need more than one container
+        String[][] tagSets = {{}, {"travel"}, {"work", "Travel"}, {"work"}, {"reimbursable", "work"}};
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 70000; i++) {
+            Expense expense = Expense.ofCents(LocalDate.of(2024, 1 + i % 6, 1 + i % 28),
+                i % 3 == 0 ? "Food" : i % 3 == 1 ? "Transportation" : "Utilities", 1 + i % 5000, "Row " + i);
+            expense.setTags(Arrays.asList(tagSets[i % 5]));
+            added.add(expense);
+        }
+        expenseManager.addExpenses(added);
+        for (int i = 0; i < 70000; i += 9) {
+            expenseManager.deleteExpenseById(added.get(i).getId());
+        }
+        Expense edited = new Expense(LocalDate.of(2024, 2, 2), "Food", 12.00, "Edited");
+        edited.setTags(List.of("travel, reimbursable"));
+        expenseManager.editExpenseById(added.get(1).getId(), edited);
+        Expense moved = new Expense(LocalDate.of(2024, 8, 8), "Utilities", 7.00, "Moved");
+        moved.setTags(List.of("work"));
+        expenseManager.editExpenseById(added.get(2).getId(), moved);
+        
+        for (int pass = 0; pass < 2; pass++) {
+            List<Expense> all = expenseManager.getAllExpenses();
+            
+            List<Expense> travelAtWork = new ArrayList<>();
+            expenseManager.query().withAllTags(List.of("WORK", "travel")).execute().forEachRemaining(travelAtWork::add);
+            assertEquals(all.stream().filter(e -> e.getTags().containsAll(List.of("work", "travel"))).toList(), travelAtWork);
+            
+            List<Expense> foodOrUtilitiesNotWork = new ArrayList<>();
+            ExpenseCursor cursor = expenseManager.query().inCategories(List.of("Food", "Utilities"))
+                .withAnyTag(List.of("travel", "reimbursable")).withoutTags(List.of("work")).execute();
+            assertEquals(ExpenseQuery.Plan.CATEGORY_INDEX, cursor.getPlan());
+            cursor.forEachRemaining(foodOrUtilitiesNotWork::add);
+            assertEquals(all.stream()
+                .filter(e -> !e.getCategory().equals("Transportation"))
+                .filter(e -> e.getTags().contains("travel") || e.getTags().contains("reimbursable"))
+                .filter(e -> !e.getTags().contains("work")).toList(), foodOrUtilitiesNotWork);
+            assertTrue(foodOrUtilitiesNotWork.stream().anyMatch(e -> e.getDescription().equals("Edited")));
+            
+            // A narrow date range is read from the date slice and intersected with the bitmap
+            List<Expense> notFoodInMarch = new ArrayList<>();
+            cursor = expenseManager.query().excludingCategories(List.of("Food")).withoutTags(List.of("travel"))
+                .between(LocalDate.of(2024, 3, 5), LocalDate.of(2024, 3, 5)).execute();
+            assertEquals(ExpenseQuery.Plan.DATE_INDEX, cursor.getPlan());
+            cursor.forEachRemaining(notFoodInMarch::add);
+            assertEquals(all.stream()
+                .filter(e -> e.getDate().equals(LocalDate.of(2024, 3, 5)))
+                .filter(e -> !e.getCategory().equals("Food") && !e.getTags().contains("travel")).toList(), notFoodInMarch);
+            
+            List<Expense> unknown = new ArrayList<>();
+            expenseManager.query().withAllTags(List.of("work", "unknown")).execute().forEachRemaining(unknown::add);
+            assertTrue(unknown.isEmpty());
+            
+            // The second pass reads the tags back from offloaded months
+            expenseManager.offloadMonthsBefore(YearMonth.of(2024, 9));
+        }
+    }
+    
+    @Test
+    void testAmountRangeIndex() {
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            added.add(Expense.ofCents(LocalDate.of(2024, 1 + i % 4, 1 + i * 7 % 28),
+                i % 2 == 0 ? "Food" : "Utilities", 1 + i * 7919L % 20000, "Row " + i));
+        }
+        expenseManager.addExpenses(added);
+        ExpenseSnapshot snapshot = expenseManager.snapshot();
+        for (int i = 0; i < 5000; i += 6) {
+            expenseManager.deleteExpenseById(added.get(i).getId());
+        }
+        expenseManager.editExpenseById(added.get(1).getId(), new Expense(LocalDate.of(2024, 2, 2), "Food", 150.00, "Edited"));
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 3, 3), "Food", 150.00, "Boundary"));
+        
+        for (int pass = 0; pass < 2; pass++) {
+            List<Expense> all = expenseManager.getAllExpenses();
+            assertEquals(all.stream().filter(e -> e.getAmount() >= 100.00 && e.getAmount() <= 150.00).toList(),
+                expenseManager.filterByAmountRange(100.00, 150.00));
+            assertEquals(all.stream().filter(e -> e.getAmount() >= 199.50).toList(), expenseManager.filterByMinimumAmount(199.50));
+            assertEquals(all.stream().filter(e -> e.getAmount() >= 150.00 && e.getAmount() <= 150.00).count(),
+                expenseManager.countByAmountRange(150.00, 150.00));
+            assertEquals(0, expenseManager.countByAmountRange(50.00, 10.00));
+            
+            List<Expense> cheapFood = new ArrayList<>();
+            ExpenseCursor cursor = expenseManager.query().inCategories(List.of("Food")).amountAtMost(1.00).execute();
+            assertEquals(ExpenseQuery.Plan.AMOUNT_INDEX, cursor.getPlan());
+            cursor.forEachRemaining(cheapFood::add);
+            assertEquals(all.stream().filter(e -> e.getCategory().equals("Food") && e.getAmount() <= 1.00).toList(), cheapFood);
+            
+            // The second pass reads the amount order of offloaded months
+            expenseManager.offloadMonthsBefore(YearMonth.of(2024, 3));
+        }
+        assertEquals(5000, snapshot.getAllExpenses().size());
+    }
+    
+    @Test
+    void testImportSkipsDuplicateTransactions(@TempDir Path directory) throws Exception {
+        Path january = directory.resolve("january.csv");
+        Path overlap = directory.resolve("january-february.csv");
+        Files.write(january, List.of(
+            "2024-01-05,Food,4.50,Coffee",
+            "2024-01-05,Food,4.50,Coffee",
+            "2024-01-20,Utilities,80.00,Power bill"));
+        Files.write(overlap, List.of(
+            "2024-01-05,food,4.5,  COFFEE ",
+            "2024-01-05,Food,4.50,Coffee",
+            "2024-01-05,Food,4.50,Coffee",
+            "2024-01-20,Utilities,80.00,power  bill",
+            "2024-02-01,Utilities,80.00,Power bill"));
+        TransactionFileHandler handler = new TransactionFileHandler(expenseManager);
+        
+        TransactionFileHandler.TransactionImportException first = assertThrows(
+            TransactionFileHandler.TransactionImportException.class, () -> handler.importTransactions(january.toFile()));
+        assertTrue(first.getMessage().contains("Successfully imported 3 transactions"));
+        assertFalse(first.getMessage().contains("duplicate"));
+        
+        // Both identical January coffees match stored rows; the third is new
+        TransactionFileHandler.TransactionImportException second = assertThrows(
+            TransactionFileHandler.TransactionImportException.class, () -> handler.importTransactions(overlap.toFile()));
+        assertTrue(second.getMessage().contains("Successfully imported 2 transactions"));
+        assertTrue(second.getMessage().contains("Skipped 3 duplicate transactions"));
+        assertTrue(second.isPartialSuccess());
+        assertEquals(5, expenseManager.getAllExpenses().size());
+        
+        // Edits and deletes keep the fingerprints current, and semicolons match the commas exports replace
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 31), "Utilities", 900.00, "Rent, January"));
+        Expense power = expenseManager.filterByCategory("Utilities").get(0);
+        expenseManager.editExpenseById(power.getId(), new Expense(LocalDate.of(2024, 1, 20), "Utilities", 85.00, "Power bill"));
+        expenseManager.deleteExpenseById(expenseManager.filterByCategory("Food").get(0).getId());
+        List<Expense> added = expenseManager.addExpensesSkippingDuplicates(List.of(
+            new Expense(LocalDate.of(2024, 1, 20), "Utilities", 80.00, "Power bill"),
+            new Expense(LocalDate.of(2024, 1, 20), "Utilities", 85.00, "power bill"),
+            new Expense(LocalDate.of(2024, 1, 5), "Food", 4.50, "Coffee"),
+            new Expense(LocalDate.of(2024, 1, 5), "Food", 4.50, "Coffee"),
+            new Expense(LocalDate.of(2024, 1, 5), "Food", 4.50, "Coffee"),
+            new Expense(LocalDate.of(2024, 1, 5), "Entertainment", 4.50, "Coffee"),
+            new Expense(LocalDate.of(2024, 1, 31), "Utilities", 900.00, "Rent; january")));
+        assertEquals(List.of(80.00, 4.50, 4.50), added.stream().map(Expense::getAmount).toList());
+        assertEquals(List.of("Power bill", "Coffee", "Coffee"), added.stream().map(Expense::getDescription).toList());
+        assertEquals(8, expenseManager.getAllExpenses().size());
+        assertEquals(3, expenseManager.filterByCategory("Food").size());
+    }
+    
+    @Test
+    void testChunkedImportMatchesSequentialParse(@TempDir Path directory) throws Exception {
+        // Valid rows mixed with every kind of invalid line, CRLF endings and multi-byte characters
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            switch (i % 20) {
+                case 3 -> lines.add("2024-13-01,Food,5.00,Bad month");
+                case 7 -> lines.add("2024-01-01,Groceries,5.00,Unknown category");
+                case 11 -> lines.add("2024-01-01,Food,-5.00,Negative");
+                case 13 -> lines.add("2024-01-01,Food,5.00");
+                case 17 -> lines.add("   ");
+                default -> lines.add(LocalDate.of(2024, 1, 1).plusDays(i % 300) + "," + (i % 2 == 0 ? " food " : "UTILITIES")
+                    + "," + (1 + i % 97) + "." + (i % 100) + ",Caf\u00e9 \u20ac" + i + (i % 3 == 0 ? "\r" : ""));
+            }
+        }
+        Path statement = directory.resolve("statement.csv");
+        Files.write(statement, lines);
+        
+        ExpenseManager sequential = new ExpenseManager();
+        TransactionFileHandler.TransactionImportException whole = assertThrows(TransactionFileHandler.TransactionImportException.class,
+            () -> new TransactionFileHandler(sequential).importTransactions(statement.toFile()));
+        TransactionFileHandler chunked = new TransactionFileHandler(expenseManager);
+        chunked.setChunkSize(100);
+        TransactionFileHandler.TransactionImportException parallel = assertThrows(TransactionFileHandler.TransactionImportException.class,
+            () -> chunked.importTransactions(statement.toFile()));
+        
+        assertEquals(whole.getMessage(), parallel.getMessage());
+        assertEquals(sequential.getAllExpenses(), expenseManager.getAllExpenses());
+        assertEquals(2250, expenseManager.getAllExpenses().size());
+        assertEquals("Caf\u00e9 \u20ac0", expenseManager.getAllExpenses().get(0).getDescription());
+        assertEquals("Food", expenseManager.getAllExpenses().get(0).getCategory());
+        
+        // 600 errors: the first hundred are listed in file order, the rest only counted
+        String message = parallel.getMessage();
+        assertTrue(message.contains("Line 4: Invalid date format\nLine 8: Invalid category - Groceries\nLine 12: Invalid amount\nLine 14: Invalid number of fields\n"));
+        assertTrue(message.contains("Line 494: Invalid number of fields\n...and 500 more\n"));
+        assertFalse(message.contains("Line 504:"));
+        assertTrue(message.contains("Invalid date format: 150\nInvalid category: 150\nInvalid amount: 150\nInvalid number of fields: 150\n"));
+        assertThrows(IllegalArgumentException.class, () -> chunked.setChunkSize(0));
+    }
+    
+    @Test
+    void testImportIgnoresTrailingEmptyFields(@TempDir Path directory) throws Exception {
+        Path statement = directory.resolve("statement.csv");
+        Files.write(statement, List.of(
+            "2024-01-05,Food,10,Lunch,",
+            "2024-01-06,Food,12,Dinner,,,\r",
+            "2024-01-07,Food,8,",
+            "2024-01-08,Food,9,,"));
+        
+        TransactionFileHandler.TransactionImportException result = assertThrows(TransactionFileHandler.TransactionImportException.class,
+            () -> new TransactionFileHandler(expenseManager).importTransactions(statement.toFile()));
+        
+        assertTrue(result.getMessage().contains("Successfully imported 2 transactions"));
+        assertTrue(result.getMessage().contains("Line 3: Invalid number of fields\nLine 4: Invalid number of fields\n"));
+        assertEquals(List.of("Lunch", "Dinner"), expenseManager.getAllExpenses().stream().map(Expense::getDescription).toList());
+    }
+    
+    @Test
+    void testDatesOutsideSupportedWindowAreRejected(@TempDir Path directory) throws Exception {
+        expenseManager.addExpense(testExpense);
+        assertThrows(IllegalArgumentException.class,
+            () -> expenseManager.addExpense(new Expense(LocalDate.of(9999, 1, 1), "Food", 5.00, "Far future")));
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.editExpenseById(testExpense.getId(),
+            new Expense(LocalDate.of(1899, 12, 31), "Food", 5.00, "Far past")));
+        expenseManager.addExpense(new Expense(ExpenseStore.MAX_DATE, "Food", 5.00, "Last day"));
+        assertEquals(2, expenseManager.getAllExpenses().size());
+        assertEquals(55.00, expenseManager.rangeTotal("Food", ExpenseStore.MIN_DATE, ExpenseStore.MAX_DATE), 0.001);
+        
+        Path statement = directory.resolve("statement.csv");
+        Files.write(statement, List.of("+100000-01-01,Food,10,Typo", "2024-01-06,Food,12,Dinner"));
+        TransactionFileHandler.TransactionImportException result = assertThrows(TransactionFileHandler.TransactionImportException.class,
+            () -> new TransactionFileHandler(expenseManager).importTransactions(statement.toFile()));
+        assertTrue(result.getMessage().contains("Successfully imported 1 transactions"));
+        assertTrue(result.getMessage().contains("Line 1: Date out of range - +100000-01-01"));
+    }
+    
+    @Test
+    void testCategorySummaryOverDateRange() {
+        List<Expense> added = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            added.add(new Expense(LocalDate.of(2024, 1, 1).plusDays(i % 120),
+                i % 3 == 0 ? "Food" : "Utilities", 1 + (i * 37 % 500), "Row " + i));
+        }
+        expenseManager.addExpenses(added);
+        for (int i = 0; i < 400; i += 9) {
+            expenseManager.deleteExpenseById(added.get(i).getId());
+        }
+        LocalDate start = LocalDate.of(2024, 1, 20);
+        LocalDate end = LocalDate.of(2024, 3, 11);
+        
+        List<Expense> expected = expenseManager.filterByDateRange(start, end).stream()
+            .filter(expense -> expense.getCategory().equals("Food")).toList();
+        CategorySummary summary = expenseManager.getCategorySummary("Food", start, end);
+        assertEquals(expected.size(), summary.getCount());
+        assertEquals(expected.stream().mapToDouble(Expense::getAmount).sum(), summary.getTotal(), 0.001);
+        assertEquals(expected.stream().mapToDouble(Expense::getAmount).min().getAsDouble(), summary.getMinimum());
+        assertEquals(expected.stream().mapToDouble(Expense::getAmount).max().getAsDouble(), summary.getMaximum());
+        assertNull(summary.getMonth());
+        
+        CategorySummary withinMonth = expenseManager.getCategorySummary("Food", LocalDate.of(2024, 2, 3), LocalDate.of(2024, 2, 3));
+        assertEquals(YearMonth.of(2024, 2), withinMonth.getMonth());
+        assertEquals(0, expenseManager.getCategorySummary("Travel", start, end).getCount());
+        assertEquals(0, expenseManager.getCategorySummary("Food", end, start).getCount());
+    }
+    
+    @Test
+    void testAddAndRenameCategories() {
+        List<ExpenseChangeEvent> received = new ArrayList<>();
+        expenseManager.getEventBus().subscribe(received::addAll);
+        expenseManager.addCategory(" Travel ");
+        assertEquals(List.of("Food", "Transportation", "Entertainment", "Utilities", "Miscellaneous", "Travel"),
+            expenseManager.getCategories());
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.addCategory("travel"));
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.addCategory(" "));
+        // Separators of the data files would split the name when it is read back
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.addCategory("Food, Dining"));
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.addCategory("Food; Dining"));
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.renameCategory("Travel", "Travel\nAbroad"));
+        assertEquals(6, expenseManager.getCategories().size());
+        
+        // Expenses never register categories, so a batch with an unknown one adds nothing
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.getCategoryRegistry().register(null));
+        assertThrows(IllegalArgumentException.class,
+            () -> expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 3), "Pets", 5.00, "Food")));
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.addExpenses(List.of(
+            new Expense(LocalDate.of(2024, 1, 3), "Food", 5.00, "Valid"),
+            new Expense(LocalDate.of(2024, 1, 4), null, 5.00, "No category"))));
+        assertTrue(expenseManager.getAllExpenses().isEmpty());
+        assertEquals(6, expenseManager.getCategories().size());
+        
+        YearMonth january = YearMonth.of(2024, 1);
+        expenseManager.addExpense(testExpense);
+        expenseManager.addExpense(new Expense(LocalDate.of(2024, 1, 9), "Travel", 120.00, "Train"));
+        expenseManager.getBudgetManager().setBudget("Travel", 400.00, january);
+        ExpenseSnapshot before = expenseManager.snapshot();
+        
+        expenseManager.renameCategory("Food", "Groceries");
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.renameCategory("Groceries", "TRAVEL"));
+        assertThrows(IllegalArgumentException.class, () -> expenseManager.renameCategory("Food", "Dining"));
+        
+        // Expenses and budgets follow the id to the new name
+        assertEquals("Groceries", expenseManager.getAllExpenses().get(0).getCategory());
+        assertEquals(50.00, expenseManager.calculateMonthlyExpensesByCategory("Groceries", january));
+        assertEquals(0.0, expenseManager.calculateMonthlyExpensesByCategory("Food", january));
+        assertEquals(50.00, expenseManager.getMonthlyTotalsByCategory(january).get("Groceries"));
+        assertFalse(expenseManager.getMonthlyTotalsByCategory(january).containsKey("Food"));
+        assertEquals(1, expenseManager.filterByCategory("groceries").size());
+        assertEquals(400.00, expenseManager.getBudgetManager().getBudget("Travel", january));
+        assertEquals(120.00, expenseManager.getBudgetManager().calculateBudgetUtilization(january).get("Travel") * 4, 0.001);
+        
+        // The snapshot keeps the names it was taken with
+        assertEquals("Food", before.getCategories().get(0));
+        assertEquals("Food", before.getExpensesForMonth(january).get(0).getCategory());
+        assertEquals(50.00, before.calculateMonthlyExpensesByCategory("Food", january));
+        
+        assertEquals(ExpenseChangeEvent.categoryChanged("Travel", "Travel"), received.get(0));
+        assertTrue(received.contains(ExpenseChangeEvent.categoryChanged("Food", "Groceries")));
+        assertTrue(received.get(0).affects(january));
+    }
+    
     @Test
     void testGuiUpdateCallback() {
         Runnable callback = () -> callbackTriggered = true;
@@ -0,0 +1,830 @@
+/**
+  Description: The ExpensePartition class holds the expenses of a single month in a columnar layout
+			  made of primitive arrays. Dates are stored as epoch days, categories as dense ids,
+			  amounts as whole cents, and descriptions and tags as offsets into one shared
+			  character buffer.
+			  Every row also carries its stable expense id, and the partition keeps the store's
+			  ExpenseIdIndex pointing at the slot each id lives in.
+			  Rows are kept ordered by epoch day so a date range maps to a contiguous slice
+			  found by binary search. Deleting a row leaves a tombstone instead of shifting the
+			  rows after it; tombstones are compacted away once they make up a quarter of the
+			  partition. Each partition also keeps a MonthlyAggregate of its live rows, updated on
+			  every change, and MonthlySketches of their amounts and merchants.
+			  A partition pinned by a snapshot is frozen: it is never changed again, and the store
+			  copies it before the next write to its month.
+			  An old month can be offloaded: its columns move into an off-heap ExpenseSegment
+			  and the partition becomes a frozen view over it. The next write to the month copies
+			  the columns back onto the heap like for any frozen partition.
+			  A ZoneMap keeps the date, amount and category bounds of each block of slots, so
+			  filtered scans skip blocks that cannot match. It stays on the heap when the
+			  columns are offloaded, so skipped blocks of a mapped segment are never read.
+			  The live slots are also kept ordered by amount, built on the first amount range
+			  read after a change, so an amount range maps to a run found by binary search.
+*/
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExpensePartition {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_CHAR_CAPACITY = 256;
+    private static final int NO_DESCRIPTION = -1; // Length marker for a null description
+    private static final long TOMBSTONE = 0L; // Id marker for a deleted row
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 16;
+
+    private final YearMonth month; // The month every row in this partition belongs to
+    private final ExpenseIdIndex idIndex; // Store-wide index kept pointing at this partition's slots
+    private long[] ids; // Stable id of each row, TOMBSTONE for a deleted row
+    private int[] epochDays; // Date of each row as LocalDate.toEpochDay()
+    private byte[] categoryIds; // Dense category id of each row
+    private long[] amountCents; // Amount of each row in cents, 0 for a deleted row
+    private int[] descriptionOffsets; // Start of each description in descriptionChars
+    private int[] descriptionLengths; // Length of each description, or NO_DESCRIPTION
+    private int[] tagOffsets; // Start of each row's comma-separated tags in descriptionChars
+    private int[] tagLengths; // Length of each row's tags, 0 for none
+    private char[] descriptionChars; // Shared buffer holding every description
+    private int descriptionCharCount; // Number of chars used in descriptionChars
+    private int garbageChars; // Chars in descriptionChars no longer referenced by a row
+    private int size; // Number of slots in use, including tombstones
+    private int tombstones; // Number of deleted rows not yet compacted away
+    private final MonthlyAggregate aggregate; // Running sum, count, min and max per category
+    private final MonthlySketches sketches; // Amount digest and merchant count per category
+    private volatile boolean frozen; // True once a snapshot shares this partition
+    private final ExpenseSegment segment; // Off-heap columns of an offloaded partition, or null
+    private final ZoneMap zoneMap; // Per-block bounds used to skip blocks while scanning
+    private int[] amountOrder; // Live slots ordered by amount, or null until the next amount range read
+
+    /**
+    Constructs an empty partition for the given month.
+    @param month The month this partition holds expenses for.
+    @param idIndex The store-wide index from expense id to slot.
+    */
+    public ExpensePartition(YearMonth month, ExpenseIdIndex idIndex) {
+        this.month = month;
+        this.idIndex = idIndex;
+        this.ids = new long[INITIAL_CAPACITY];
+        this.epochDays = new int[INITIAL_CAPACITY];
+        this.categoryIds = new byte[INITIAL_CAPACITY];
+        this.amountCents = new long[INITIAL_CAPACITY];
+        this.descriptionOffsets = new int[INITIAL_CAPACITY];
+        this.descriptionLengths = new int[INITIAL_CAPACITY];
+        this.tagOffsets = new int[INITIAL_CAPACITY];
+        this.tagLengths = new int[INITIAL_CAPACITY];
+        this.descriptionChars = new char[INITIAL_CHAR_CAPACITY];
+        this.aggregate = new MonthlyAggregate();
+        this.sketches = new MonthlySketches();
+        this.segment = null;
+        this.zoneMap = new ZoneMap();
+    }
+
+    /**
+    Constructs a writable copy of a partition. The copy shares nothing with the original,
+    so the original can stay pinned by snapshots while the copy is changed.
+    @param other The partition to copy.
+    */
+    private ExpensePartition(ExpensePartition other) {
+        this.month = other.month;
+        this.idIndex = other.idIndex;
+        this.segment = null;
+        this.descriptionCharCount = other.descriptionCharCount;
+        this.garbageChars = other.garbageChars;
+        this.size = other.size;
+        this.tombstones = other.tombstones;
+        this.aggregate = new MonthlyAggregate(other.aggregate);
+        this.sketches = new MonthlySketches(other.sketches);
+        this.zoneMap = new ZoneMap(other.zoneMap);
+        this.amountOrder = other.amountOrder; // Never changed once built, and the copy keeps the same slots
+        if (other.segment != null) {
+            loadColumns(other.segment);
+            return;
+        }
+        this.ids = Arrays.copyOf(other.ids, other.ids.length);
+        this.epochDays = Arrays.copyOf(other.epochDays, other.epochDays.length);
+        this.categoryIds = Arrays.copyOf(other.categoryIds, other.categoryIds.length);
+        this.amountCents = Arrays.copyOf(other.amountCents, other.amountCents.length);
+        this.descriptionOffsets = Arrays.copyOf(other.descriptionOffsets, other.descriptionOffsets.length);
+        this.descriptionLengths = Arrays.copyOf(other.descriptionLengths, other.descriptionLengths.length);
+        this.tagOffsets = Arrays.copyOf(other.tagOffsets, other.tagOffsets.length);
+        this.tagLengths = Arrays.copyOf(other.tagLengths, other.tagLengths.length);
+        this.descriptionChars = Arrays.copyOf(other.descriptionChars, other.descriptionChars.length);
+    }
+
+    /**
+    Constructs a frozen partition over off-heap columns holding the same slots as another.
+    @param other The partition whose rows the segment holds.
+    @param segment The filled segment.
+    */
+    private ExpensePartition(ExpensePartition other, ExpenseSegment segment) {
+        this.month = other.month;
+        this.idIndex = other.idIndex;
+        this.segment = segment;
+        this.descriptionCharCount = other.descriptionCharCount;
+        this.garbageChars = other.garbageChars;
+        this.size = other.size;
+        this.tombstones = other.tombstones;
+        this.aggregate = new MonthlyAggregate(other.aggregate);
+        this.sketches = new MonthlySketches(other.sketches);
+        this.zoneMap = new ZoneMap(other.zoneMap);
+        this.amountOrder = other.amountOrder;
+        this.frozen = true;
+    }
+
+    /**
+    Fills the on-heap columns from a segment.
+    */
+    private void loadColumns(ExpenseSegment source) {
+        int capacity = Math.max(INITIAL_CAPACITY, size);
+        ids = new long[capacity];
+        epochDays = new int[capacity];
+        categoryIds = new byte[capacity];
+        amountCents = new long[capacity];
+        descriptionOffsets = new int[capacity];
+        descriptionLengths = new int[capacity];
+        tagOffsets = new int[capacity];
+        tagLengths = new int[capacity];
+        descriptionChars = new char[Math.max(INITIAL_CHAR_CAPACITY, descriptionCharCount)];
+        for (int slot = 0; slot < size; slot++) {
+            ids[slot] = source.id(slot);
+            epochDays[slot] = source.epochDay(slot);
+            categoryIds[slot] = (byte) source.categoryId(slot);
+            amountCents[slot] = source.amountCents(slot);
+            descriptionOffsets[slot] = source.descriptionOffset(slot);
+            descriptionLengths[slot] = source.descriptionLength(slot);
+            tagOffsets[slot] = source.tagOffset(slot);
+            tagLengths[slot] = source.tagLength(slot);
+        }
+        source.getChars(0, descriptionChars, 0, descriptionCharCount);
+    }
+
+    /**
+    Creates a frozen copy of this partition whose columns live off the heap. The copy keeps
+    the same slots, so the store's id index stays valid for it.
+    @param file The file to map the columns into, or null to use direct memory.
+    @return The offloaded partition.
+    @throws IOException If the file cannot be created or mapped.
+    */
+    public synchronized ExpensePartition offload(Path file) throws IOException {
+        if (segment != null) {
+            return this;
+        }
+        ExpenseSegment target = file == null
+            ? ExpenseSegment.allocate(size, descriptionCharCount)
+            : ExpenseSegment.map(file, size, descriptionCharCount);
+        for (int slot = 0; slot < size; slot++) {
+            target.put(slot, ids[slot], epochDays[slot], categoryIds[slot] & 0xFF, amountCents[slot],
+                descriptionOffsets[slot], descriptionLengths[slot], tagOffsets[slot], tagLengths[slot]);
+        }
+        target.putChars(0, descriptionChars, 0, descriptionCharCount);
+        return new ExpensePartition(this, target);
+    }
+
+    /**
+    Deletes the file behind this partition's mapped segment, if it has one. Called once the
+    store has replaced the partition with a heap copy, so a later offload writes a new file
+    instead of leaving this one behind.
+    */
+    public void deleteSegmentFile() {
+        if (segment != null) {
+            segment.deleteFile();
+        }
+    }
+
+    /**
+    Checks whether this partition's columns live off the heap.
+    @return True for an offloaded partition.
+    */
+    public boolean isOffHeap() {
+        return segment != null;
+    }
+
+    /**
+    Creates a writable copy of this partition. The copy keeps the same slots, so the
+    store's id index stays valid for it.
+    @return The new partition.
+    */
+    public synchronized ExpensePartition copy() {
+        return new ExpensePartition(this);
+    }
+
+    /**
+    Marks this partition as shared with a snapshot. The store must not change it afterwards.
+    */
+    public void freeze() {
+        frozen = true;
+    }
+
+    /**
+    Checks whether this partition is shared with a snapshot.
+    @return True if the partition must be copied before it is changed.
+    */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+    Gets the month this partition holds expenses for.
+    @return The partition's month.
+    */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+    Gets the number of slots in the partition, including deleted rows that have not been
+    compacted yet. Use isLive to skip them while scanning.
+    @return The number of slots.
+    */
+    public int size() {
+        return size;
+    }
+
+    /**
+    Gets the number of rows that have not been deleted.
+    @return The number of live expenses.
+    */
+    public int liveCount() {
+        return size - tombstones;
+    }
+
+    /**
+    Checks whether a slot holds a live row.
+    @param slot The position of the row within the partition.
+    @return False if the row was deleted.
+    */
+    public boolean isLive(int slot) {
+        return id(slot) != TOMBSTONE;
+    }
+
+    /**
+    Inserts a row after every existing row with the same or an earlier date. Rows added in
+    date order are appended without moving any existing row.
+    @param id The stable id of the expense.
+    @param epochDay The date of the expense as an epoch day.
+    @param categoryId The dense id of the expense's category.
+    @param cents The amount of the expense in cents.
+    @param description The description of the expense, may be null.
+    @param tags The expense's tags separated by commas, or an empty string for none.
+    @return The slot the row was inserted at.
+    */
+    public int add(long id, int epochDay, int categoryId, long cents, String description, String tags) {
+        ensureCapacity(size + 1);
+        int slot = upperBound(epochDay);
+        int tail = size - slot;
+        if (tail > 0) {
+            System.arraycopy(ids, slot, ids, slot + 1, tail);
+            System.arraycopy(epochDays, slot, epochDays, slot + 1, tail);
+            System.arraycopy(categoryIds, slot, categoryIds, slot + 1, tail);
+            System.arraycopy(amountCents, slot, amountCents, slot + 1, tail);
+            System.arraycopy(descriptionOffsets, slot, descriptionOffsets, slot + 1, tail);
+            System.arraycopy(descriptionLengths, slot, descriptionLengths, slot + 1, tail);
+            System.arraycopy(tagOffsets, slot, tagOffsets, slot + 1, tail);
+            System.arraycopy(tagLengths, slot, tagLengths, slot + 1, tail);
+            zoneMap.invalidateFrom(slot);
+        }
+        ids[slot] = id;
+        writeRow(slot, epochDay, categoryId, cents, description, tags);
+        size++;
+        aggregate.add(categoryId, cents);
+        sketches.add(categoryId, cents, description);
+        zoneMap.widen(slot, epochDay, categoryId, cents);
+        amountOrder = null;
+        reindex(slot, size);
+        return slot;
+    }
+
+    /**
+    Replaces the values of a live row, keeping its id. If the date changes, the row is moved
+    so the partition stays ordered by date.
+    @param slot The position of the row within the partition.
+    @param epochDay The new date as an epoch day.
+    @param categoryId The new dense category id.
+    @param cents The new amount in cents.
+    @param description The new description, may be null.
+    @param tags The new tags separated by commas, or an empty string for none.
+    */
+    public void set(int slot, int epochDay, int categoryId, long cents, String description, String tags) {
+        if (epochDays[slot] != epochDay) {
+            long id = ids[slot];
+            remove(slot);
+            add(id, epochDay, categoryId, cents, description, tags);
+            return;
+        }
+        aggregate.remove(categoryId(slot), amountCents[slot]);
+        releaseDescription(slot);
+        writeRow(slot, epochDay, categoryId, cents, description, tags);
+        aggregate.add(categoryId, cents);
+        sketches.invalidate();
+        zoneMap.widen(slot, epochDay, categoryId, cents);
+        amountOrder = null;
+        compactIfNeeded();
+    }
+
+    /**
+    Deletes a live row by turning it into a tombstone. No other row moves unless enough
+    tombstones have built up to compact the partition.
+    @param slot The position of the row within the partition.
+    */
+    public void remove(int slot) {
+        aggregate.remove(categoryId(slot), amountCents[slot]);
+        sketches.invalidate();
+        releaseDescription(slot);
+        idIndex.remove(ids[slot]);
+        ids[slot] = TOMBSTONE;
+        amountCents[slot] = 0L;
+        descriptionLengths[slot] = NO_DESCRIPTION;
+        tagLengths[slot] = 0;
+        amountOrder = null;
+        tombstones++;
+        compactIfNeeded();
+    }
+
+    /**
+    Gets the stable id of a row.
+    @param slot The position of the row within the partition.
+    @return The expense id of the row.
+    */
+    public long id(int slot) {
+        return segment != null ? segment.id(slot) : ids[slot];
+    }
+
+    /**
+    Gets the date of a row as an epoch day.
+    @param slot The position of the row within the partition.
+    @return The epoch day of the row.
+    */
+    public int epochDay(int slot) {
+        return segment != null ? segment.epochDay(slot) : epochDays[slot];
+    }
+
+    /**
+    Gets the dense category id of a row.
+    @param slot The position of the row within the partition.
+    @return The category id of the row.
+    */
+    public int categoryId(int slot) {
+        return segment != null ? segment.categoryId(slot) : categoryIds[slot] & 0xFF;
+    }
+
+    /**
+    Gets the amount of a row in cents.
+    @param slot The position of the row within the partition.
+    @return The amount of the row in cents.
+    */
+    public long amountCents(int slot) {
+        return segment != null ? segment.amountCents(slot) : amountCents[slot];
+    }
+
+    /**
+    Reads the description of a row from the shared buffer.
+    @param slot The position of the row within the partition.
+    @return The description of the row, or null if it has none.
+    */
+    public String description(int slot) {
+        if (segment != null) {
+            int length = segment.descriptionLength(slot);
+            return length == NO_DESCRIPTION ? null : segment.description(segment.descriptionOffset(slot), length);
+        }
+        int length = descriptionLengths[slot];
+        if (length == NO_DESCRIPTION) {
+            return null;
+        }
+        return new String(descriptionChars, descriptionOffsets[slot], length);
+    }
+
+    /**
+    Reads the tags of a row from the shared buffer.
+    @param slot The position of the row within the partition.
+    @return The row's tags separated by commas, or an empty string if it has none.
+    */
+    public String tags(int slot) {
+        if (segment != null) {
+            int length = segment.tagLength(slot);
+            return length == 0 ? "" : segment.description(segment.tagOffset(slot), length);
+        }
+        int length = tagLengths[slot];
+        return length == 0 ? "" : new String(descriptionChars, tagOffsets[slot], length);
+    }
+
+    /**
+    Materializes a row as a new Expense object carrying the row's id.
+    @param slot The position of the row within the partition.
+    @param categoryNames The category name for each dense id.
+    @return A new Expense holding the row's values.
+    */
+    public Expense get(int slot, List<String> categoryNames) {
+        Expense expense = Expense.ofCents(
+            LocalDate.ofEpochDay(epochDay(slot)),
+            categoryNames.get(categoryId(slot)),
+            amountCents(slot),
+            description(slot)
+        );
+        expense.setId(id(slot));
+        String tags = tags(slot);
+        if (!tags.isEmpty()) {
+            expense.setTags(Arrays.asList(tags.split(",")));
+        }
+        return expense;
+    }
+
+    /**
+    Finds the slot of the n-th live row.
+    @param position The zero-based position among live rows.
+    @return The slot holding that row.
+    */
+    public int liveSlot(int position) {
+        return liveSlot(position, 0, 0);
+    }
+
+    /**
+    Finds the slot of the n-th live row, scanning on from a live row at or before it.
+    @param position The zero-based position among live rows.
+    @param fromSlot The slot of a live row at or before the position, or 0.
+    @param fromPosition The position of the row in fromSlot, or 0.
+    @return The slot holding that row.
+    */
+    public int liveSlot(int position, int fromSlot, int fromPosition) {
+        if (tombstones == 0) {
+            return position;
+        }
+        int seen = fromPosition;
+        for (int slot = fromSlot; slot < size; slot++) {
+            if (id(slot) != TOMBSTONE) {
+                if (seen == position) {
+                    return slot;
+                }
+                seen++;
+            }
+        }
+        throw new IndexOutOfBoundsException("Invalid expense index.");
+    }
+
+    /**
+    Finds the first slot whose date is on or after the given epoch day.
+    @param epochDay The epoch day to search for.
+    @return The first matching slot, or size() if every row is earlier.
+    */
+    public int lowerBound(long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDay(mid) < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+    Finds the first slot whose date is after the given epoch day.
+    @param epochDay The epoch day to search for.
+    @return The first matching slot, or size() if no row is later.
+    */
+    public int upperBound(long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDay(mid) <= epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+    Counts the live rows of a contiguous slice.
+    @param from The first slot, inclusive.
+    @param to The last slot, exclusive.
+    @return The number of live rows.
+    */
+    public int countLive(int from, int to) {
+        if (tombstones == 0) {
+            return to - from;
+        }
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (id(i) != TOMBSTONE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+    Sums the amounts of a contiguous slice of rows. Deleted rows hold an amount of zero.
+    @param from The first slot, inclusive.
+    @param to The last slot, exclusive.
+    @return The total in cents.
+    */
+    public long sumCents(int from, int to) {
+        return segment != null ? segment.sumCents(from, to) : Money.sum(amountCents, from, to);
+    }
+
+    /**
+    Summarizes the live rows of one category within a contiguous slice with the
+    AggregationKernels.
+    @param categoryId The dense category id.
+    @param from The first slot, inclusive.
+    @param to The last slot, exclusive.
+    @return The count, total, smallest and largest amount in cents, with extremes of 0 when no row matches.
+    */
+    public long[] summarize(int categoryId, int from, int to) {
+        if (segment != null) {
+            long[] summary = segment.summarize(categoryId, from, to);
+            return summary[0] == 0 ? new long[] {0L, 0L, 0L, 0L} : summary;
+        }
+        int count = AggregationKernels.countWhere(categoryIds, ids, from, to, categoryId);
+        if (count == 0) {
+            return new long[] {0L, 0L, 0L, 0L};
+        }
+        return new long[] {
+            count,
+            AggregationKernels.sumWhere(categoryIds, amountCents, from, to, categoryId),
+            AggregationKernels.minWhere(categoryIds, ids, amountCents, from, to, categoryId),
+            AggregationKernels.maxWhere(categoryIds, ids, amountCents, from, to, categoryId)
+        };
+    }
+
+    /**
+    Finds the first slot at or after from whose block may hold a live row matching every bound,
+    skipping blocks the zone map rules out.
+    @param from The first slot to consider.
+    @param to One past the last slot to consider.
+    @param startDay The first epoch day to include.
+    @param endDay The last epoch day to include.
+    @param minimumCents The smallest amount to include.
+    @param maximumCents The largest amount to include.
+    @param categories A category bitmask from ZoneMap.bitsOf, or null for every category.
+    @return The first candidate slot, or to if no remaining block can match.
+    */
+    public int nextCandidate(int from, int to, long startDay, long endDay, long minimumCents, long maximumCents,
+                             long[] categories) {
+        return zoneMap.findCandidate(this, from, to, startDay, endDay, minimumCents, maximumCents, categories);
+    }
+
+    /**
+    Counts the live rows within an amount range with two binary searches over the rows
+    ordered by amount.
+    @param minimumCents The smallest amount to count, in cents.
+    @param maximumCents The largest amount to count, in cents.
+    @return The number of live rows within the range.
+    */
+    public synchronized int countAmountRange(long minimumCents, long maximumCents) {
+        int[] order = amountOrder();
+        return Math.max(0, amountBound(order, maximumCents, true) - amountBound(order, minimumCents, false));
+    }
+
+    /**
+    Finds the live rows within an amount range with two binary searches over the rows
+    ordered by amount.
+    @param minimumCents The smallest amount to include, in cents.
+    @param maximumCents The largest amount to include, in cents.
+    @return The slots of the rows, ascending, so in date order.
+    */
+    public synchronized int[] slotsInAmountRange(long minimumCents, long maximumCents) {
+        int[] order = amountOrder();
+        int from = amountBound(order, minimumCents, false);
+        int to = amountBound(order, maximumCents, true);
+        if (from >= to) {
+            return new int[0];
+        }
+        int[] slots = Arrays.copyOfRange(order, from, to);
+        Arrays.sort(slots);
+        return slots;
+    }
+
+    /**
+    Gets the live slots ordered by amount, building them first after a change. Callers hold
+    this partition's lock, since readers sharing a read lock may both trigger the build.
+    */
+    private int[] amountOrder() {
+        if (amountOrder == null) {
+            Integer[] order = new Integer[liveCount()];
+            int count = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (isLive(slot)) {
+                    order[count++] = slot;
+                }
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(amountCents(a), amountCents(b)));
+            int[] slots = new int[order.length];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = order[i];
+            }
+            amountOrder = slots;
+        }
+        return amountOrder;
+    }
+
+    /**
+    Finds the first position in the amount order whose amount is above the given one, or
+    at least the given one if inclusive is false.
+    */
+    private int amountBound(int[] order, long cents, boolean inclusive) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long amount = amountCents(order[middle]);
+            if (amount < cents || (inclusive && amount == cents)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+    Gets the running aggregate of this month's rows.
+    @return The partition's aggregate.
+    */
+    public MonthlyAggregate getAggregate() {
+        return aggregate;
+    }
+
+    /**
+    Gets the amount and merchant sketches of this month's rows, rebuilding them first if a
+    change or removal made them stale. Synchronized because readers sharing a read lock may
+    both trigger the rebuild.
+    @return The partition's sketches.
+    */
+    public synchronized MonthlySketches getSketches() {
+        if (sketches.isStale()) {
+            sketches.reset();
+            for (int slot = 0; slot < size; slot++) {
+                if (isLive(slot)) {
+                    sketches.add(categoryId(slot), amountCents(slot), description(slot));
+                }
+            }
+        }
+        return sketches;
+    }
+
+    /**
+    Gets the smallest amount of a category, recomputing it first if a removal made it stale.
+    @param categoryId The dense category id.
+    @return The minimum in cents, or 0 if the category has no rows.
+    */
+    public long minimumCents(int categoryId) {
+        refreshExtremes(categoryId);
+        return aggregate.minimum(categoryId);
+    }
+
+    /**
+    Gets the largest amount of a category, recomputing it first if a removal made it stale.
+    @param categoryId The dense category id.
+    @return The maximum in cents, or 0 if the category has no rows.
+    */
+    public long maximumCents(int categoryId) {
+        refreshExtremes(categoryId);
+        return aggregate.maximum(categoryId);
+    }
+
+    /**
+    Rescans this month's rows of a category when its aggregate extremes are stale.
+    Synchronized because readers sharing a read lock may both trigger the rescan.
+    */
+    private synchronized void refreshExtremes(int categoryId) {
+        if (!aggregate.hasStaleExtremes(categoryId)) {
+            return;
+        }
+        if (segment != null) {
+            long[] summary = segment.summarize(categoryId, 0, size);
+            aggregate.setExtremes(categoryId, summary[2], summary[3]);
+            return;
+        }
+        long minimum = AggregationKernels.minWhere(categoryIds, ids, amountCents, 0, size, categoryId);
+        long maximum = AggregationKernels.maxWhere(categoryIds, ids, amountCents, 0, size, categoryId);
+        aggregate.setExtremes(categoryId, minimum, maximum);
+    }
+
+    /**
+    Writes a row's values, appending its description and tags to the shared buffer.
+    */
+    private void writeRow(int slot, int epochDay, int categoryId, long cents, String description, String tags) {
+        epochDays[slot] = epochDay;
+        categoryIds[slot] = (byte) categoryId;
+        amountCents[slot] = cents;
+        tagOffsets[slot] = appendChars(tags);
+        tagLengths[slot] = tags.length();
+        if (description == null) {
+            descriptionOffsets[slot] = 0;
+            descriptionLengths[slot] = NO_DESCRIPTION;
+            return;
+        }
+        descriptionOffsets[slot] = appendChars(description);
+        descriptionLengths[slot] = description.length();
+    }
+
+    /**
+    Appends text to the shared buffer.
+    @return The offset of the text's first char.
+    */
+    private int appendChars(String text) {
+        int length = text.length();
+        if (descriptionCharCount + length > descriptionChars.length) {
+            int newLength = Math.max(descriptionChars.length * 2, descriptionCharCount + length);
+            descriptionChars = Arrays.copyOf(descriptionChars, newLength);
+        }
+        text.getChars(0, length, descriptionChars, descriptionCharCount);
+        int offset = descriptionCharCount;
+        descriptionCharCount += length;
+        return offset;
+    }
+
+    /**
+    Marks the description and tag chars of a row as garbage before the row is overwritten or removed.
+    */
+    private void releaseDescription(int slot) {
+        if (descriptionLengths[slot] > 0) {
+            garbageChars += descriptionLengths[slot];
+        }
+        garbageChars += tagLengths[slot];
+    }
+
+    /**
+    Points the id index at the slots in the given range after rows have moved.
+    */
+    private void reindex(int from, int to) {
+        for (int slot = from; slot < to; slot++) {
+            if (ids[slot] != TOMBSTONE) {
+                idIndex.put(ids[slot], ExpenseIdIndex.pack(month, slot));
+            }
+        }
+    }
+
+    /**
+    Rewrites the partition without tombstones once they make up a quarter of its slots, and
+    rewrites the description buffer once more than half of it is unreferenced.
+    */
+    private void compactIfNeeded() {
+        boolean compactRows = tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones * 4 >= size;
+        boolean compactChars = garbageChars >= INITIAL_CHAR_CAPACITY && garbageChars * 2 >= descriptionCharCount;
+        if (!compactRows && !compactChars) {
+            return;
+        }
+        char[] compacted = new char[Math.max(INITIAL_CHAR_CAPACITY, descriptionCharCount - garbageChars)];
+        int position = 0;
+        int target = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (compactRows && ids[slot] == TOMBSTONE) {
+                continue;
+            }
+            int length = descriptionLengths[slot];
+            if (length > 0) {
+                System.arraycopy(descriptionChars, descriptionOffsets[slot], compacted, position, length);
+            }
+            ids[target] = ids[slot];
+            epochDays[target] = epochDays[slot];
+            categoryIds[target] = categoryIds[slot];
+            amountCents[target] = amountCents[slot];
+            descriptionOffsets[target] = position;
+            descriptionLengths[target] = length;
+            position += Math.max(length, 0);
+            int tagLength = tagLengths[slot];
+            System.arraycopy(descriptionChars, tagOffsets[slot], compacted, position, tagLength);
+            tagOffsets[target] = position;
+            tagLengths[target] = tagLength;
+            position += tagLength;
+            target++;
+        }
+        descriptionChars = compacted;
+        descriptionCharCount = position;
+        garbageChars = 0;
+        if (compactRows) {
+            size = target;
+            tombstones = 0;
+            zoneMap.invalidateFrom(0);
+            amountOrder = null;
+            reindex(0, size);
+        }
+    }
+
+    /**
+    Grows every column so it can hold at least the given number of rows.
+    */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= epochDays.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, epochDays.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        categoryIds = Arrays.copyOf(categoryIds, newCapacity);
+        amountCents = Arrays.copyOf(amountCents, newCapacity);
+        descriptionOffsets = Arrays.copyOf(descriptionOffsets, newCapacity);
+        descriptionLengths = Arrays.copyOf(descriptionLengths, newCapacity);
+        tagOffsets = Arrays.copyOf(tagOffsets, newCapacity);
+        tagLengths = Arrays.copyOf(tagLengths, newCapacity);
+    }
+}
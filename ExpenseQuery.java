@@ -0,0 +1,272 @@
+/**
+  Description: The ExpenseQuery class describes a filter over the stored expenses: an optional date
+			  range, included and excluded categories, required, alternative and excluded tags,
+			  an amount range and a description search, plus a sort order and a limit. Queries
+			  are built with chained calls starting from ExpenseManager.query() and run with
+			  execute(). The store plans each query by estimating how many rows every applicable
+			  index would yield, reads the smallest candidate set, and checks the remaining
+			  conditions in the same pass.
+*/
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class ExpenseQuery {
+    /**
+    The orders a query can return its results in.
+    */
+    public enum Sort {
+        DATE_ASCENDING,
+        DATE_DESCENDING,
+        AMOUNT_ASCENDING,
+        AMOUNT_DESCENDING
+    }
+
+    /**
+    The index a query was answered from.
+    */
+    public enum Plan {
+        DESCRIPTION_INDEX, // Posting lists of the description search terms
+        DATE_INDEX, // Month partitions and date-ordered slices inside them
+        CATEGORY_INDEX, // Category and tag bitmaps of expense ids
+        AMOUNT_INDEX, // Month partitions' rows ordered by amount
+        FULL_SCAN // Every row
+    }
+
+    private final ExpenseManager expenseManager; // Runs the query
+    private LocalDate start; // First date to include, or null for no lower bound
+    private LocalDate end; // Last date to include, or null for no upper bound
+    private Set<String> categories; // Categories to include, or null for all
+    private Set<String> excludedCategories; // Categories to leave out, or null for none
+    private Set<String> allTags; // Tags an expense must all have, or null for no restriction
+    private Set<String> anyTags; // Tags an expense must have at least one of, or null for no restriction
+    private Set<String> excludedTags; // Tags an expense must have none of, or null for no restriction
+    private Double minimumAmount; // Smallest amount to include, or null for no lower bound
+    private Double maximumAmount; // Largest amount to include, or null for no upper bound
+    private String descriptionTerms; // Description search terms, or null for no search
+    private Sort sort = Sort.DATE_ASCENDING;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+    Constructs a query that matches every expense of the given manager.
+    @param expenseManager The manager the query runs against.
+    */
+    ExpenseQuery(ExpenseManager expenseManager) {
+        this.expenseManager = expenseManager;
+    }
+
+    /**
+    Restricts the query to an inclusive date range.
+    @param start The first date to include.
+    @param end The last date to include.
+    @return This query.
+    */
+    public ExpenseQuery between(LocalDate start, LocalDate end) {
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    /**
+    Restricts the query to a set of categories. An empty collection removes the restriction.
+    @param categories The exact category names to include.
+    @return This query.
+    */
+    public ExpenseQuery inCategories(Collection<String> categories) {
+        this.categories = categories.isEmpty() ? null : new LinkedHashSet<>(categories);
+        return this;
+    }
+
+    /**
+    Leaves a set of categories out of the query. An empty collection removes the restriction.
+    @param categories The exact category names to leave out.
+    @return This query.
+    */
+    public ExpenseQuery excludingCategories(Collection<String> categories) {
+        this.excludedCategories = categories.isEmpty() ? null : new LinkedHashSet<>(categories);
+        return this;
+    }
+
+    /**
+    Restricts the query to expenses that have every one of the given tags. Tags are compared
+    ignoring case. An empty collection removes the restriction.
+    @param tags The tags required.
+    @return This query.
+    */
+    public ExpenseQuery withAllTags(Collection<String> tags) {
+        this.allTags = normalize(tags);
+        return this;
+    }
+
+    /**
+    Restricts the query to expenses that have at least one of the given tags. Tags are compared
+    ignoring case. An empty collection removes the restriction.
+    @param tags The tags to accept.
+    @return This query.
+    */
+    public ExpenseQuery withAnyTag(Collection<String> tags) {
+        this.anyTags = normalize(tags);
+        return this;
+    }
+
+    /**
+    Leaves out expenses that have any of the given tags. Tags are compared ignoring case.
+    An empty collection removes the restriction.
+    @param tags The tags to leave out.
+    @return This query.
+    */
+    public ExpenseQuery withoutTags(Collection<String> tags) {
+        this.excludedTags = normalize(tags);
+        return this;
+    }
+
+    /**
+    Normalizes tags the way Expense stores them.
+    @return The normalized tags, or null if there are none.
+    */
+    private static Set<String> normalize(Collection<String> tags) {
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String tag : tags) {
+            normalized.addAll(Expense.parseTags(tag));
+        }
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+    Restricts the query to an inclusive amount range.
+    @param minimum The smallest amount to include.
+    @param maximum The largest amount to include.
+    @return This query.
+    */
+    public ExpenseQuery amountBetween(double minimum, double maximum) {
+        this.minimumAmount = minimum;
+        this.maximumAmount = maximum;
+        return this;
+    }
+
+    /**
+    Restricts the query to expenses of at least the given amount, such as everything over $100.
+    @param minimum The smallest amount to include.
+    @return This query.
+    */
+    public ExpenseQuery amountAtLeast(double minimum) {
+        this.minimumAmount = minimum;
+        return this;
+    }
+
+    /**
+    Restricts the query to expenses of at most the given amount.
+    @param maximum The largest amount to include.
+    @return This query.
+    */
+    public ExpenseQuery amountAtMost(double maximum) {
+        this.maximumAmount = maximum;
+        return this;
+    }
+
+    /**
+    Restricts the query to expenses whose descriptions match every search term. Each term
+    matches any word it is the start of, ignoring case. Blank text removes the restriction.
+    @param terms The search terms, separated by spaces.
+    @return This query.
+    */
+    public ExpenseQuery withDescription(String terms) {
+        this.descriptionTerms = terms == null || terms.isBlank() ? null : terms;
+        return this;
+    }
+
+    /**
+    Sets the order of the results. Results are ordered by date by default.
+    @param sort The order to return results in.
+    @return This query.
+    */
+    public ExpenseQuery sortBy(Sort sort) {
+        this.sort = sort;
+        return this;
+    }
+
+    /**
+    Limits the number of results.
+    @param limit The largest number of expenses to return.
+    @return This query.
+    @throws IllegalArgumentException If the limit is negative.
+    */
+    public ExpenseQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative.");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+    Runs the query. The cursor reads a snapshot taken now, so later changes do not affect it,
+    and it creates Expense objects only as they are read.
+    @return A cursor over the matching expenses.
+    */
+    public ExpenseCursor execute() {
+        return expenseManager.execute(this);
+    }
+
+    LocalDate getStart() {
+        return start == null ? LocalDate.MIN : start;
+    }
+
+    LocalDate getEnd() {
+        return end == null ? LocalDate.MAX : end;
+    }
+
+    boolean hasDateRange() {
+        return start != null || end != null;
+    }
+
+    Set<String> getCategories() {
+        return categories;
+    }
+
+    Set<String> getExcludedCategories() {
+        return excludedCategories;
+    }
+
+    Set<String> getAllTags() {
+        return allTags;
+    }
+
+    Set<String> getAnyTags() {
+        return anyTags;
+    }
+
+    Set<String> getExcludedTags() {
+        return excludedTags;
+    }
+
+    boolean hasTagFilter() {
+        return allTags != null || anyTags != null || excludedTags != null;
+    }
+
+    boolean hasAmountRange() {
+        return minimumAmount != null || maximumAmount != null;
+    }
+
+    Double getMinimumAmount() {
+        return minimumAmount;
+    }
+
+    Double getMaximumAmount() {
+        return maximumAmount;
+    }
+
+    String getDescriptionTerms() {
+        return descriptionTerms;
+    }
+
+    Sort getSort() {
+        return sort;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,279 @@
+/**
+  Description: The ExpenseSegment class holds the columns of one month's expenses outside the Java
+			  heap, in a single direct ByteBuffer or in a file mapped into memory. The garbage
+			  collector then only sees the small buffer object, however many rows the month has,
+			  so long histories no longer lengthen GC pauses. A segment is written once from an
+			  ExpensePartition and never changes; the partition's slots, tombstones included,
+			  keep their positions, so the store's id index stays valid.
+			  Layout, in native byte order: ids and amounts as longs, then epoch days,
+			  description offsets, description lengths, tag offsets and tag lengths as ints,
+			  then category ids as bytes, then the description and tag characters.
+*/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class ExpenseSegment {
+    private final int size; // Number of slots, including tombstones
+    private final LongBuffer ids; // Stable id of each row, 0 for a deleted row
+    private final LongBuffer amountCents; // Amount of each row in cents
+    private final IntBuffer epochDays; // Date of each row as an epoch day
+    private final IntBuffer descriptionOffsets; // Start of each description in descriptionChars
+    private final IntBuffer descriptionLengths; // Length of each description, or a negative marker for null
+    private final IntBuffer tagOffsets; // Start of each row's tags in descriptionChars
+    private final IntBuffer tagLengths; // Length of each row's tags, 0 for none
+    private final ByteBuffer categoryIds; // Dense category id of each row
+    private final CharBuffer descriptionChars; // Every description and tag list, back to back
+    private final Path file; // The mapped file, or null for direct memory
+
+    private ExpenseSegment(ByteBuffer buffer, int size, int charCount, Path file) {
+        buffer.order(ByteOrder.nativeOrder());
+        this.size = size;
+        this.file = file;
+        int position = 0;
+        this.ids = buffer.slice(position, size * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        position += size * Long.BYTES;
+        this.amountCents = buffer.slice(position, size * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        position += size * Long.BYTES;
+        this.epochDays = buffer.slice(position, size * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        position += size * Integer.BYTES;
+        this.descriptionOffsets = buffer.slice(position, size * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        position += size * Integer.BYTES;
+        this.descriptionLengths = buffer.slice(position, size * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        position += size * Integer.BYTES;
+        this.tagOffsets = buffer.slice(position, size * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        position += size * Integer.BYTES;
+        this.tagLengths = buffer.slice(position, size * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        position += size * Integer.BYTES;
+        this.categoryIds = buffer.slice(position, size);
+        position += size + (size & 1); // Keeps the characters aligned to two bytes
+        this.descriptionChars = buffer.slice(position, charCount * Character.BYTES).order(ByteOrder.nativeOrder()).asCharBuffer();
+    }
+
+    /**
+    Gets the number of bytes a segment of the given shape takes.
+    @param size The number of slots.
+    @param charCount The number of description characters.
+    @return The segment's size in bytes.
+    @throws IllegalArgumentException If the segment would not fit in one buffer.
+    */
+    static int byteSize(int size, int charCount) {
+        long bytes = (long) size * (2 * Long.BYTES + 5 * Integer.BYTES + 1) + (size & 1) + (long) charCount * Character.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Month is too large for one segment.");
+        }
+        return (int) bytes;
+    }
+
+    /**
+    Allocates an empty segment in direct memory.
+    @param size The number of slots.
+    @param charCount The number of description characters.
+    @return The new segment, with every column zero.
+    */
+    static ExpenseSegment allocate(int size, int charCount) {
+        return new ExpenseSegment(ByteBuffer.allocateDirect(byteSize(size, charCount)), size, charCount, null);
+    }
+
+    /**
+    Creates an empty segment backed by a file, which is created or replaced and deleted when
+    the program exits. The file only spills the columns out of memory; it is not a save format.
+    @param file The file to map.
+    @param size The number of slots.
+    @param charCount The number of description characters.
+    @return The new segment, with every column zero.
+    @throws IOException If the file cannot be created or mapped.
+    */
+    static ExpenseSegment map(Path file, int size, int charCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize(size, charCount));
+            file.toFile().deleteOnExit();
+            return new ExpenseSegment(buffer, size, charCount, file);
+        }
+    }
+
+    /**
+    Deletes the file behind a mapped segment once the store no longer uses it. The mapping
+    stays readable for a snapshot still holding the segment; where the platform refuses to
+    delete a mapped file, it is left for the exit-time cleanup instead.
+    */
+    void deleteFile() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Could not delete segment file " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+    Writes one slot. Only used while the segment is being filled.
+    */
+    void put(int slot, long id, int epochDay, int categoryId, long cents, int descriptionOffset, int descriptionLength,
+             int tagOffset, int tagLength) {
+        ids.put(slot, id);
+        amountCents.put(slot, cents);
+        epochDays.put(slot, epochDay);
+        descriptionOffsets.put(slot, descriptionOffset);
+        descriptionLengths.put(slot, descriptionLength);
+        tagOffsets.put(slot, tagOffset);
+        tagLengths.put(slot, tagLength);
+        categoryIds.put(slot, (byte) categoryId);
+    }
+
+    /**
+    Writes description characters. Only used while the segment is being filled.
+    */
+    void putChars(int offset, char[] chars, int from, int length) {
+        descriptionChars.put(offset, chars, from, length);
+    }
+
+    /**
+    Reads description characters back into an array.
+    */
+    void getChars(int offset, char[] target, int from, int length) {
+        descriptionChars.get(offset, target, from, length);
+    }
+
+    /**
+    Gets the number of slots, including tombstones.
+    @return The number of slots.
+    */
+    public int size() {
+        return size;
+    }
+
+    /**
+    Gets the stable id of a row.
+    @param slot The position of the row.
+    @return The expense id, or 0 for a deleted row.
+    */
+    public long id(int slot) {
+        return ids.get(slot);
+    }
+
+    /**
+    Gets the amount of a row in cents.
+    @param slot The position of the row.
+    @return The amount in cents.
+    */
+    public long amountCents(int slot) {
+        return amountCents.get(slot);
+    }
+
+    /**
+    Gets the date of a row as an epoch day.
+    @param slot The position of the row.
+    @return The epoch day.
+    */
+    public int epochDay(int slot) {
+        return epochDays.get(slot);
+    }
+
+    /**
+    Gets the dense category id of a row.
+    @param slot The position of the row.
+    @return The category id.
+    */
+    public int categoryId(int slot) {
+        return categoryIds.get(slot) & 0xFF;
+    }
+
+    /**
+    Gets where a row's description starts among the description characters.
+    @param slot The position of the row.
+    @return The offset of the first character.
+    */
+    public int descriptionOffset(int slot) {
+        return descriptionOffsets.get(slot);
+    }
+
+    /**
+    Gets the length of a row's description.
+    @param slot The position of the row.
+    @return The number of characters, or a negative marker if the row has no description.
+    */
+    public int descriptionLength(int slot) {
+        return descriptionLengths.get(slot);
+    }
+
+    /**
+    Gets where a row's tags start among the description characters.
+    @param slot The position of the row.
+    @return The offset of the first character.
+    */
+    public int tagOffset(int slot) {
+        return tagOffsets.get(slot);
+    }
+
+    /**
+    Gets the length of a row's comma-separated tags.
+    @param slot The position of the row.
+    @return The number of characters, 0 if the row has no tags.
+    */
+    public int tagLength(int slot) {
+        return tagLengths.get(slot);
+    }
+
+    /**
+    Reads a description or a row's tags.
+    @param offset The first character.
+    @param length The number of characters.
+    @return The description.
+    */
+    public String description(int offset, int length) {
+        char[] chars = new char[length];
+        descriptionChars.get(offset, chars, 0, length);
+        return new String(chars);
+    }
+
+    /**
+    Sums the amounts of a slice. Deleted rows hold an amount of zero.
+    @param from The first slot, inclusive.
+    @param to The last slot, exclusive.
+    @return The total in cents.
+    */
+    public long sumCents(int from, int to) {
+        long total = 0L;
+        for (int i = from; i < to; i++) {
+            total += amountCents.get(i);
+        }
+        return total;
+    }
+
+    /**
+    Summarizes the live rows of one category within a slice, the same way
+    ExpensePartition.summarize does over on-heap columns.
+    @param categoryId The dense category id.
+    @param from The first slot, inclusive.
+    @param to The last slot, exclusive.
+    @return The count, total, smallest and largest amount in cents; the extremes are Long.MAX_VALUE and Long.MIN_VALUE when no row matches.
+    */
+    public long[] summarize(int categoryId, int from, int to) {
+        byte target = (byte) categoryId;
+        long count = 0L;
+        long total = 0L;
+        long minimum = Long.MAX_VALUE;
+        long maximum = Long.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            boolean match = categoryIds.get(i) == target & ids.get(i) != 0L;
+            long cents = amountCents.get(i);
+            count += match ? 1 : 0;
+            total += match ? cents : 0L;
+            minimum = Math.min(minimum, match ? cents : Long.MAX_VALUE);
+            maximum = Math.max(maximum, match ? cents : Long.MIN_VALUE);
+        }
+        return new long[] {count, total, minimum, maximum};
+    }
+}
@@ -0,0 +1,173 @@
+/**
+  Description: The ExpenseSnapshot class is an immutable, consistent view of every expense and
+			  budget at the moment ExpenseManager.snapshot() was called. It shares the frozen
+			  month partitions of the expense store, so taking one is cheap, and later writes
+			  copy the partitions they change instead of touching the snapshot's. Code that reads
+			  the data several times, such as reports and exports, should pin one snapshot so
+			  every number it prints comes from the same state.
+*/
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+public class ExpenseSnapshot {
+    private final ExpenseStore expenses; // Read-only store sharing frozen partitions
+    private final Map<String, Map<String, Long>> budgets; // Month key to category budgets in cents
+
+    /**
+    Constructs an ExpenseSnapshot over a frozen store and a copy of the budgets.
+    @param expenses A store returned by ExpenseStore.snapshot().
+    @param budgets A copy of the budgets in cents, keyed by month and then by category.
+    */
+    ExpenseSnapshot(ExpenseStore expenses, Map<String, Map<String, Long>> budgets) {
+        this.expenses = expenses;
+        this.budgets = budgets;
+    }
+
+    /**
+    Gets every expense in the snapshot, ordered by date.
+    @return A read-only list of expenses.
+    */
+    public List<Expense> getAllExpenses() {
+        return expenses.asList();
+    }
+
+    /**
+    Gets the months that have at least one expense.
+    @return An ordered, read-only set of months.
+    */
+    public NavigableSet<YearMonth> getExpenseMonths() {
+        return expenses.months();
+    }
+
+    /**
+    Gets every category, in id order, as named when the snapshot was taken.
+    @return A read-only list of category names.
+    */
+    public List<String> getCategories() {
+        return expenses.categories();
+    }
+
+    /**
+    Gets every month that has a budget or at least one expense.
+    @return The months in ascending order.
+    */
+    public List<YearMonth> getAvailableMonths() {
+        NavigableSet<YearMonth> months = new TreeSet<>(expenses.months());
+        for (String monthKey : budgets.keySet()) {
+            months.add(YearMonth.parse(monthKey));
+        }
+        return new ArrayList<>(months);
+    }
+
+    /**
+    Gets the expenses of a month.
+    @param yearMonth The month to read.
+    @return The month's expenses, ordered by date.
+    */
+    public List<Expense> getExpensesForMonth(YearMonth yearMonth) {
+        return expenses.getMonth(yearMonth);
+    }
+
+    /**
+    Calculates the total expenses of a category in a month.
+    @param category The category to total.
+    @param yearMonth The month to total.
+    @return The total amount.
+    */
+    public double calculateMonthlyExpensesByCategory(String category, YearMonth yearMonth) {
+        return expenses.sumCents(category, yearMonth) / 100.0;
+    }
+
+    /**
+    Calculates the total expenses of a month across all categories.
+    @param yearMonth The month to total.
+    @return The total amount.
+    */
+    public double calculateMonthlyTotal(YearMonth yearMonth) {
+        return expenses.sumCents(yearMonth) / 100.0;
+    }
+
+    /**
+    Calculates the total expenses of every category in a month.
+    @param yearMonth The month to total.
+    @return A map of category names to total amounts.
+    */
+    public Map<String, Double> getMonthlyTotalsByCategory(YearMonth yearMonth) {
+        Map<String, Long> centsByCategory = expenses.sumCentsByCategory(yearMonth);
+        Map<String, Double> monthlyTotals = new HashMap<>();
+        for (String category : expenses.categories()) {
+            monthlyTotals.put(category, centsByCategory.getOrDefault(category, 0L) / 100.0);
+        }
+        return monthlyTotals;
+    }
+
+    /**
+    Gets the count, total, minimum and maximum of a category in a month.
+    @param category The category to summarize.
+    @param yearMonth The month to summarize.
+    @return A summary of the category's expenses for the month.
+    */
+    public CategorySummary getCategorySummary(String category, YearMonth yearMonth) {
+        return expenses.summarize(category, yearMonth);
+    }
+
+    /**
+    Gets the budget of a category in a month.
+    @param category The budget category.
+    @param month The budget month.
+    @return The budget amount, or 0.0 if no budget was set.
+    */
+    public double getBudget(String category, YearMonth month) {
+        return Money.toAmount(getBudgetCents(category, month));
+    }
+
+    /**
+    Gets the budget of a category in a month in cents.
+    @param category The budget category.
+    @param month The budget month.
+    @return The budget in cents, or 0 if no budget was set.
+    */
+    public long getBudgetCents(String category, YearMonth month) {
+        return budgets.getOrDefault(month.toString(), Collections.emptyMap()).getOrDefault(category, 0L);
+    }
+
+    /**
+    Gets every budget of a month in cents.
+    @param month The budget month.
+    @return A read-only map of categories to budget amounts in cents.
+    */
+    public Map<String, Long> getAllBudgetCents(YearMonth month) {
+        return Collections.unmodifiableMap(budgets.getOrDefault(month.toString(), Collections.emptyMap()));
+    }
+
+    /**
+    Gets every budget of a month.
+    @param month The budget month.
+    @return A map of categories to budget amounts.
+    */
+    public Map<String, Double> getAllBudgets(YearMonth month) {
+        Map<String, Double> amounts = new HashMap<>();
+        getAllBudgetCents(month).forEach((category, cents) -> amounts.put(category, Money.toAmount(cents)));
+        return amounts;
+    }
+
+    /**
+    Sums every budget of a month.
+    @param month The budget month.
+    @return The total budget.
+    */
+    public double getTotalBudget(YearMonth month) {
+        long total = 0L;
+        for (long cents : getAllBudgetCents(month).values()) {
+            total += cents;
+        }
+        return Money.toAmount(total);
+    }
+}
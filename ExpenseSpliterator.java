@@ -0,0 +1,91 @@
+/**
+  Description: The ExpenseSpliterator class streams the rows of a frozen store snapshot. It splits
+			  its range of positions in half, across month boundaries if needed, so parallel
+			  streams get evenly sized work however the expenses are spread over months. Expense
+			  objects are created only as rows are consumed.
+*/
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+public class ExpenseSpliterator implements Spliterator<Expense> {
+    private static final int MIN_SPLIT_SIZE = 1024; // Smaller ranges are not worth a separate task
+
+    private final PartitionSlices slices; // The rows to stream, laid end to end
+    private final List<String> categoryNames; // Category name for each dense id
+    private int origin; // Next position to read
+    private final int fence; // One past the last position to read
+    private int slice; // Slice holding origin
+
+    /**
+    Constructs a spliterator over a range of positions.
+    @param slices The rows to stream. Their partitions must be frozen.
+    @param categoryNames Category name for each dense id.
+    @param origin The first position to read.
+    @param fence One past the last position to read.
+    */
+    public ExpenseSpliterator(PartitionSlices slices, List<String> categoryNames, int origin, int fence) {
+        this.slices = slices;
+        this.categoryNames = categoryNames;
+        this.origin = origin;
+        this.fence = fence;
+        this.slice = origin < fence ? slices.sliceAt(origin) : 0;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Expense> action) {
+        while (origin < fence) {
+            while (origin >= slices.end(slice)) {
+                slice++;
+            }
+            ExpensePartition partition = slices.partition(slice);
+            int slot = slices.slot(slice, origin++);
+            if (partition.isLive(slot)) {
+                action.accept(partition.get(slot, categoryNames));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Expense> action) {
+        while (origin < fence) {
+            ExpensePartition partition = slices.partition(slice);
+            int end = Math.min(fence, slices.end(slice));
+            for (int slot = slices.slot(slice, origin); origin < end; origin++, slot++) {
+                if (partition.isLive(slot)) {
+                    action.accept(partition.get(slot, categoryNames));
+                }
+            }
+            slice++;
+        }
+    }
+
+    @Override
+    public Spliterator<Expense> trySplit() {
+        int middle = (origin + fence) >>> 1;
+        if (middle - origin < MIN_SPLIT_SIZE) {
+            return null;
+        }
+        ExpenseSpliterator prefix = new ExpenseSpliterator(slices, categoryNames, origin, middle);
+        origin = middle;
+        slice = slices.sliceAt(middle);
+        return prefix;
+    }
+
+    /**
+    Gets the number of slots left, which counts deleted rows not yet compacted away.
+    @return An upper bound on the rows left.
+    */
+    @Override
+    public long estimateSize() {
+        return fence - origin;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,1430 @@
+/**
+  Description: The ExpenseStore class keeps expense data partitioned by month. Each month's rows
+			  live in a columnar ExpensePartition, and the partitions are kept in a NavigableMap
+			  ordered by YearMonth so month lookups only touch that month's rows. Expense objects
+			  are only created when a row is read. Rows are ordered by date, so a date range maps
+			  to whole partitions plus a binary-searched slice of the first and last month.
+			  A RangeSumTree keeps per-category totals by day alongside the partitions, so the
+			  total of any date range is read in logarithmic time, and DailyTotals keeps daily
+			  buckets with prefix sums so trailing windows are read in constant time. Both are
+			  indexed by day, so dates are limited to MIN_DATE through MAX_DATE to bound them.
+*/
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+public class ExpenseStore {
+    public static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1); // Earliest date an expense can have
+    public static final LocalDate MAX_DATE = LocalDate.of(2199, 12, 31); // Latest date an expense can have
+    private static final int MIN_PARALLEL_LEAF = 4096; // Smallest range a fork/join task sums on its own
+
+    private final NavigableMap<YearMonth, ExpensePartition> partitions; // Month to that month's rows
+    private final CategoryRegistry categories; // Shared category name to dense id registry
+    private final List<String> pinnedNames; // In a snapshot, the category names when it was taken; null otherwise
+    private final ExpenseIdIndex idIndex; // Expense id to the partition slot holding it
+    private final DescriptionIndex descriptionIndex; // Description token to the ids containing it
+    private final BitmapIndex bitmapIndex; // Category ids and tags to bitmaps of the ids having them
+    private final FingerprintIndex fingerprints; // Fingerprint of date, category, amount and description to row count
+    private final RangeSumTree rangeSums; // Per-category totals by epoch day; null in a snapshot
+    private final DailyTotals dailyTotals; // Per-category daily buckets with prefix sums; null in a snapshot
+    private long nextId; // Next id to hand out; ids start at 1
+    private int size; // Number of live rows across all partitions
+    private long modifications; // Counts writes, so a position hint from before one is never used
+    private volatile PositionHint positionHint; // Where the last read by position landed
+
+    /**
+    Constructs an empty ExpenseStore that keys categories through the given registry.
+    @param categories The registry assigning dense ids to category names.
+    */
+    public ExpenseStore(CategoryRegistry categories) {
+        this.partitions = new TreeMap<>();
+        this.idIndex = new ExpenseIdIndex();
+        this.descriptionIndex = new DescriptionIndex();
+        this.bitmapIndex = new BitmapIndex();
+        this.fingerprints = new FingerprintIndex();
+        this.rangeSums = new RangeSumTree();
+        this.dailyTotals = new DailyTotals();
+        this.nextId = 1L;
+        this.categories = categories;
+        this.pinnedNames = null;
+    }
+
+    /**
+    Constructs a read-only store over some of another store's partitions, which must be frozen.
+    */
+    private ExpenseStore(ExpenseStore other, NavigableMap<YearMonth, ExpensePartition> partitions) {
+        this.partitions = partitions;
+        this.idIndex = other.idIndex;
+        this.descriptionIndex = other.descriptionIndex;
+        this.bitmapIndex = other.bitmapIndex;
+        this.fingerprints = other.fingerprints;
+        this.rangeSums = null;
+        this.dailyTotals = null;
+        this.nextId = other.nextId;
+        this.categories = other.categories;
+        this.pinnedNames = other.categories.names();
+        int rows = 0;
+        for (ExpensePartition partition : partitions.values()) {
+            rows += partition.liveCount();
+        }
+        this.size = rows;
+    }
+
+    /**
+    Takes a snapshot of the store in time proportional to the number of months. Every
+    partition is frozen and shared with the snapshot; the next write to a month copies that
+    month's partition first, so the snapshot never sees later changes. Only read methods may
+    be called on the snapshot. Lookups by id, description searches and the day range and
+    trailing totals are not supported on it, so the day totals are never frozen or copied.
+    @return A store holding the current rows that never changes.
+    */
+    public ExpenseStore snapshot() {
+        return pin(partitions);
+    }
+
+    /**
+    Freezes the given months' partitions and takes a snapshot holding only those months.
+    */
+    private ExpenseStore pin(NavigableMap<YearMonth, ExpensePartition> months) {
+        for (ExpensePartition partition : months.values()) {
+            partition.freeze();
+        }
+        return new ExpenseStore(this, new TreeMap<>(months));
+    }
+
+    /**
+    Gets the registered category names indexed by id; for a snapshot, as they were when it was taken.
+    @return A read-only list of category names.
+    */
+    public List<String> categories() {
+        return categoryNames();
+    }
+
+    /**
+    Gets the number of rows in the store.
+    @return The number of stored expenses.
+    */
+    public int size() {
+        return size;
+    }
+
+    /**
+    Adds an expense to the partition of its month and gives it a new stable id.
+    @param expense The expense to store.
+    @return The id assigned to the stored expense.
+    @throws IllegalArgumentException If the expense has no supported date or its category is not registered.
+    */
+    public long add(Expense expense) {
+        validate(expense);
+        long id = nextId++;
+        insert(id, expense);
+        size++;
+        return id;
+    }
+
+    /**
+    Replaces the row at the given position, keeping its id.
+    @param index The position of the row to replace.
+    @param expense The new expense values.
+    @throws IndexOutOfBoundsException If the index is invalid.
+    @throws IllegalArgumentException If the expense has no supported date or its category is not registered.
+    */
+    public void set(int index, Expense expense) {
+        checkIndex(index);
+        validate(expense);
+        replace(locate(index), expense);
+    }
+
+    /**
+    Replaces the row with the given id, keeping the id. If the new date falls in another
+    month, the row moves to that month's partition.
+    @param id The id of the row to replace.
+    @param expense The new expense values.
+    @throws IllegalArgumentException If no row has the id, or the expense has no supported date or its category is not registered.
+    */
+    public void setById(long id, Expense expense) {
+        validate(expense);
+        replace(locateId(id), expense);
+    }
+
+    /**
+    Removes the row at the given position.
+    @param index The position of the row to remove.
+    @throws IndexOutOfBoundsException If the index is invalid.
+    */
+    public void remove(int index) {
+        checkIndex(index);
+        removeAt(locate(index));
+    }
+
+    /**
+    Removes the row with the given id. The row becomes a tombstone, so no other row moves.
+    @param id The id of the row to remove.
+    @throws IllegalArgumentException If no row has the id.
+    */
+    public void removeById(long id) {
+        removeAt(locateId(id));
+    }
+
+    /**
+    Materializes the row at the given position as a new Expense object.
+    @param index The position of the row.
+    @return A new Expense holding the row's values.
+    @throws IndexOutOfBoundsException If the index is invalid.
+    */
+    public Expense get(int index) {
+        checkIndex(index);
+        long location = locate(index);
+        return partitions.get(ExpenseIdIndex.monthOf(location)).get(ExpenseIdIndex.slotOf(location), categoryNames());
+    }
+
+    /**
+    Materializes the row with the given id as a new Expense object.
+    @param id The id of the row.
+    @return A new Expense holding the row's values, or null if no row has the id.
+    */
+    public Expense getById(long id) {
+        long location = idIndex.get(id);
+        if (location < 0) {
+            return null;
+        }
+        return partitions.get(ExpenseIdIndex.monthOf(location)).get(ExpenseIdIndex.slotOf(location), categoryNames());
+    }
+
+    /**
+    Finds the rows whose descriptions contain every term of a query, each term matched as
+    a word prefix and ignoring case.
+    @param query The search terms.
+    @return The matching rows, ordered by date.
+    */
+    public List<Expense> searchDescriptions(String query) {
+        long[] ids = descriptionIndex.search(query);
+        long[] locations = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            locations[i] = idIndex.get(ids[i]);
+        }
+        // Packed locations order by month and then slot, which is date order
+        Arrays.sort(locations);
+        List<Expense> result = new ArrayList<>(locations.length);
+        for (long location : locations) {
+            result.add(partitions.get(ExpenseIdIndex.monthOf(location)).get(ExpenseIdIndex.slotOf(location), categoryNames()));
+        }
+        return result;
+    }
+
+    /**
+    Plans and starts a query. Each index the query can use estimates how many rows it would
+    yield: the description index from its posting lists, the date index from binary searches
+    of the partitions in range, the amount index from binary searches of the amount order of
+    the partitions in range, and the category index from the cardinality of the bitmap the
+    category and tag conditions resolve to. The smallest candidate set is read and every
+    other condition is checked on the columns in the same pass, so a date slice is
+    intersected with that bitmap row by row. The returned cursor reads a snapshot of only the
+    months the query needs: those its matches fall in when an index found them up front, or
+    the months of the date range when the rows are scanned lazily. Writes to other months
+    therefore copy nothing.
+    @param query The query to run.
+    @return A cursor over the matching rows.
+    */
+    public ExpenseCursor select(ExpenseQuery query) {
+        RowFilter filter = new RowFilter(query);
+        NavigableMap<YearMonth, ExpensePartition> months = query.getStart().isAfter(query.getEnd())
+            ? Collections.emptyNavigableMap() : monthsInRange(query.getStart(), query.getEnd());
+        Collection<ExpensePartition> inRange = months.values();
+
+        ExpenseQuery.Plan plan = ExpenseQuery.Plan.FULL_SCAN;
+        long best = size;
+        long[] matchedIds = null;
+        if (filter.terms != null) {
+            matchedIds = descriptionIndex.search(query.getDescriptionTerms());
+            plan = ExpenseQuery.Plan.DESCRIPTION_INDEX;
+            best = matchedIds.length;
+        }
+        if (query.hasDateRange()) {
+            long estimate = 0;
+            for (ExpensePartition partition : inRange) {
+                estimate += partition.countLive(partition.lowerBound(filter.startDay), partition.upperBound(filter.endDay));
+            }
+            if (estimate < best) {
+                plan = ExpenseQuery.Plan.DATE_INDEX;
+                best = estimate;
+            }
+        }
+        if (query.hasAmountRange()) {
+            long estimate = 0;
+            for (ExpensePartition partition : inRange) {
+                estimate += partition.countAmountRange(filter.minimumCents, filter.maximumCents);
+            }
+            if (estimate < best) {
+                plan = ExpenseQuery.Plan.AMOUNT_INDEX;
+                best = estimate;
+            }
+        }
+        if (filter.ids != null && filter.ids.cardinality() < best) {
+            plan = ExpenseQuery.Plan.CATEGORY_INDEX;
+        }
+
+        long[] found = null;
+        if (plan == ExpenseQuery.Plan.DESCRIPTION_INDEX) {
+            found = locate(matchedIds, filter, false);
+        } else if (plan == ExpenseQuery.Plan.CATEGORY_INDEX) {
+            found = locate(filter.ids.toArray(), filter, true);
+        } else if (plan == ExpenseQuery.Plan.AMOUNT_INDEX) {
+            found = byAmountRange(inRange, filter);
+        }
+        ExpenseStore pinned;
+        PrimitiveIterator.OfLong locations;
+        if (found != null) {
+            pinned = pin(monthsAt(found));
+            locations = Arrays.stream(found).iterator();
+        } else {
+            pinned = pin(months);
+            locations = pinned.scan(pinned.partitions.values(), filter);
+        }
+        boolean byAmount = query.getSort() == ExpenseQuery.Sort.AMOUNT_ASCENDING
+            || query.getSort() == ExpenseQuery.Sort.AMOUNT_DESCENDING;
+        if (byAmount && query.getLimit() < size) {
+            locations = Arrays.stream(pinned.topByAmount(locations, query.getLimit(), query.getSort())).iterator();
+        } else if (query.getSort() != ExpenseQuery.Sort.DATE_ASCENDING) {
+            locations = Arrays.stream(pinned.order(drain(locations), query.getSort())).iterator();
+        }
+        return new ExpenseCursor(plan, pinned.rowsAt(locations), query.getLimit());
+    }
+
+    /**
+    Locates the rows of index matches that meet every other condition of a filter, in date order.
+    The months found are pinned afterwards and share these partitions, so the locations hold in both.
+    */
+    private long[] locate(long[] ids, RowFilter filter, boolean checkTerms) {
+        long[] found = new long[ids.length];
+        int count = 0;
+        for (long id : ids) {
+            long location = idIndex.get(id);
+            if (filter.matches(partitions.get(ExpenseIdIndex.monthOf(location)), ExpenseIdIndex.slotOf(location), checkTerms)) {
+                found[count++] = location;
+            }
+        }
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+    Gets the partitions of the months that date-ordered locations fall in.
+    */
+    private NavigableMap<YearMonth, ExpensePartition> monthsAt(long[] locations) {
+        NavigableMap<YearMonth, ExpensePartition> months = new TreeMap<>();
+        YearMonth last = null;
+        for (long location : locations) {
+            YearMonth month = ExpenseIdIndex.monthOf(location);
+            if (!month.equals(last)) {
+                months.put(month, partitions.get(month));
+                last = month;
+            }
+        }
+        return months;
+    }
+
+    /**
+    Locates the rows of the given partitions within a filter's amount range that meet every
+    other condition of the filter, in date order.
+    */
+    private long[] byAmountRange(Collection<ExpensePartition> candidates, RowFilter filter) {
+        long[] found = new long[0];
+        int count = 0;
+        for (ExpensePartition partition : candidates) {
+            int[] slots = partition.slotsInAmountRange(filter.minimumCents, filter.maximumCents);
+            if (count + slots.length > found.length) {
+                found = Arrays.copyOf(found, Math.max(found.length * 2, count + slots.length));
+            }
+            for (int slot : slots) {
+                if (filter.matches(partition, slot, true)) {
+                    found[count++] = ExpenseIdIndex.pack(partition.getMonth(), slot);
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+    Counts the rows within an amount range from the amount order of every partition.
+    @param minimumCents The smallest amount to count, in cents.
+    @param maximumCents The largest amount to count, in cents.
+    @return The number of rows within the range.
+    */
+    public int countInAmountRange(long minimumCents, long maximumCents) {
+        int count = 0;
+        for (ExpensePartition partition : partitions.values()) {
+            count += partition.countAmountRange(minimumCents, maximumCents);
+        }
+        return count;
+    }
+
+    /**
+    Computes the fingerprint of an expense's date, category, amount and normalized description.
+    @param expense The expense to fingerprint.
+    @return The fingerprint, or 0 if the expense's date is missing or not supported or its category is not registered, so no row can match it.
+    */
+    public long fingerprint(Expense expense) {
+        Integer categoryId = categoryId(expense.getCategory());
+        if (categoryId == null || !isSupportedDate(expense.getDate())) {
+            return 0L;
+        }
+        int epochDay = Math.toIntExact(expense.getDate().toEpochDay());
+        return FingerprintIndex.fingerprint(epochDay, categoryId, expense.getAmountCents(), expense.getDescription());
+    }
+
+    /**
+    Counts the rows with a fingerprint through the fingerprint index.
+    @param fingerprint A value returned by fingerprint(Expense).
+    @return The number of rows with the fingerprint.
+    */
+    public int countFingerprint(long fingerprint) {
+        return fingerprint == 0L ? 0 : fingerprints.count(fingerprint);
+    }
+
+    /**
+    Checks whether a row has the given id.
+    @param id The id to look up.
+    @return True if the id belongs to a stored expense.
+    */
+    public boolean containsId(long id) {
+        return idIndex.contains(id);
+    }
+
+    /**
+    Gets a read-only list view of the store. Rows are materialized as they are read.
+    @return A list view over every row in the store.
+    */
+    public List<Expense> asList() {
+        return new RowView();
+    }
+
+    /**
+    Moves the columns of every month before a cutoff off the Java heap. Each month becomes
+    a frozen partition over an ExpenseSegment; reads work as before, and the next write to
+    such a month copies it back onto the heap. Months already off the heap are skipped.
+    @param before The first month to keep on the heap.
+    @param directory The directory to map segment files in, or null to use direct memory.
+    @return The number of months moved.
+    @throws IOException If a segment file cannot be created or mapped. Months moved before the failure stay moved.
+    */
+    public int offload(YearMonth before, Path directory) throws IOException {
+        int moved = 0;
+        for (ExpensePartition partition : new ArrayList<>(partitions.headMap(before, false).values())) {
+            if (partition.isOffHeap()) {
+                continue;
+            }
+            Path file = directory == null ? null
+                : Files.createTempFile(directory, "expenses-" + partition.getMonth() + "-", ".seg");
+            try {
+                partitions.put(partition.getMonth(), partition.offload(file));
+            } catch (IOException | RuntimeException e) {
+                if (file != null) {
+                    Files.deleteIfExists(file); // The month stays on the heap, so its file is never used
+                }
+                throw e;
+            }
+            moved++;
+        }
+        return moved;
+    }
+
+    /**
+    Gets the months that currently hold at least one expense.
+    @return An ordered, read-only set of months.
+    */
+    public NavigableSet<YearMonth> months() {
+        return Collections.unmodifiableNavigableSet(partitions.navigableKeySet());
+    }
+
+    /**
+    Collects the rows of a single month.
+    @param month The month to read.
+    @return A list of that month's expenses.
+    */
+    public List<Expense> getMonth(YearMonth month) {
+        List<Expense> result = new ArrayList<>();
+        ExpensePartition partition = partitions.get(month);
+        if (partition != null) {
+            for (int slot = 0; slot < partition.size(); slot++) {
+                if (partition.isLive(slot)) {
+                    result.add(partition.get(slot, categoryNames()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+    Collects the rows whose category matches the given name, ignoring case.
+    @param category The category to filter by.
+    @return A list of matching expenses.
+    */
+    public List<Expense> filterByCategory(String category) {
+        boolean[] matches = new boolean[categoryNames().size()];
+        boolean any = false;
+        for (int id = 0; id < categoryNames().size(); id++) {
+            if (categoryNames().get(id).equalsIgnoreCase(category)) {
+                matches[id] = true;
+                any = true;
+            }
+        }
+        List<Expense> result = new ArrayList<>();
+        if (!any) {
+            return result;
+        }
+        long[] categoryBits = ZoneMap.bitsOf(matches);
+        for (ExpensePartition partition : partitions.values()) {
+            int size = partition.size();
+            for (int slot = 0; slot < size; slot++) {
+                if ((slot & (ZoneMap.BLOCK_SIZE - 1)) == 0) {
+                    slot = partition.nextCandidate(slot, size, Long.MIN_VALUE, Long.MAX_VALUE,
+                        Long.MIN_VALUE, Long.MAX_VALUE, categoryBits);
+                    if (slot == size) {
+                        break;
+                    }
+                }
+                if (partition.isLive(slot) && matches[partition.categoryId(slot)]) {
+                    result.add(partition.get(slot, categoryNames()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+    Collects the rows whose date falls within the inclusive range. Each overlapping month is
+    resolved to a contiguous slice by binary search, so no row's date is compared.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return A list of matching expenses in date order.
+    */
+    public List<Expense> filterByDateRange(LocalDate start, LocalDate end) {
+        List<Expense> result = new ArrayList<>();
+        if (end.isBefore(start)) {
+            return result;
+        }
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+        for (ExpensePartition partition : partitionsInRange(start, end)) {
+            int to = partition.upperBound(endDay);
+            for (int slot = partition.lowerBound(startDay); slot < to; slot++) {
+                if (partition.isLive(slot)) {
+                    result.add(partition.get(slot, categoryNames()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+    Counts the rows whose date falls within the inclusive range without materializing them.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return The number of matching rows.
+    */
+    public int countInRange(LocalDate start, LocalDate end) {
+        if (end.isBefore(start)) {
+            return 0;
+        }
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+        int count = 0;
+        for (ExpensePartition partition : partitionsInRange(start, end)) {
+            count += partition.countLive(partition.lowerBound(startDay), partition.upperBound(endDay));
+        }
+        return count;
+    }
+
+    /**
+    Sums the rows whose date falls within the inclusive range without materializing them.
+    Months that lie entirely inside the range are read from their aggregate.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return The total in cents.
+    */
+    public long sumCentsInRange(LocalDate start, LocalDate end) {
+        if (end.isBefore(start)) {
+            return 0L;
+        }
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+        long total = 0L;
+        for (ExpensePartition partition : partitionsInRange(start, end)) {
+            int from = partition.lowerBound(startDay);
+            int to = partition.upperBound(endDay);
+            if (from == 0 && to == partition.size()) {
+                total += partition.getAggregate().total();
+            } else {
+                total += partition.sumCents(from, to);
+            }
+        }
+        return total;
+    }
+
+    /**
+    Sums one category's rows whose date falls within the inclusive range from the range sum
+    tree, in time logarithmic in the number of days the store covers.
+    @param category The exact category name.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return The total in cents.
+    */
+    public long rangeTotalCents(String category, LocalDate start, LocalDate end) {
+        Integer id = categoryId(category);
+        if (id == null || end.isBefore(start)) {
+            return 0L;
+        }
+        return rangeSums.sum(id, start.toEpochDay(), end.toEpochDay());
+    }
+
+    /**
+    Sums every row whose date falls within the inclusive range from the range sum tree.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return The total in cents.
+    */
+    public long rangeTotalCents(LocalDate start, LocalDate end) {
+        if (end.isBefore(start)) {
+            return 0L;
+        }
+        return rangeSums.sum(start.toEpochDay(), end.toEpochDay());
+    }
+
+    /**
+    Sums every category's rows whose date falls within the inclusive range from the range sum
+    tree, in one pass so the totals come from a single state of the store.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return A map of category names to totals in cents, in id order.
+    */
+    public Map<String, Long> rangeTotalsCentsByCategory(LocalDate start, LocalDate end) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        List<String> names = categoryNames();
+        for (int id = 0; id < names.size(); id++) {
+            result.put(names.get(id), end.isBefore(start) ? 0L : rangeSums.sum(id, start.toEpochDay(), end.toEpochDay()));
+        }
+        return result;
+    }
+
+    /**
+    Sums the rows of the given number of days ending with a date from the daily buckets,
+    in constant time once their prefix sums are up to date.
+    @param category The exact category name, or null for every category.
+    @param end The last date of the window.
+    @param days The number of days in the window.
+    @return The total in cents.
+    */
+    public long trailingTotalCents(String category, LocalDate end, int days) {
+        if (category != null) {
+            Integer id = categoryId(category);
+            return id == null ? 0L : dailyTotals.trailingSum(id, end.toEpochDay(), days);
+        }
+        long total = 0L;
+        for (int id = 0; id < categoryNames().size(); id++) {
+            total += dailyTotals.trailingSum(id, end.toEpochDay(), days);
+        }
+        return total;
+    }
+
+    /**
+    Merges the monthly amount and merchant sketches of a span of months.
+    @param category The exact category name, or null for every category.
+    @param start The first month.
+    @param end The last month.
+    @return The merged sketch.
+    */
+    public SpendingSketch sketch(String category, YearMonth start, YearMonth end) {
+        TDigest amounts = new TDigest();
+        HyperLogLog merchants = new HyperLogLog();
+        Integer id = category == null ? null : categoryId(category);
+        if ((category == null || id != null) && !end.isBefore(start)) {
+            for (ExpensePartition partition : partitions.subMap(start, true, end, true).values()) {
+                MonthlySketches sketches = partition.getSketches();
+                for (int categoryId = 0; categoryId < categoryNames().size(); categoryId++) {
+                    if (id == null || id == categoryId) {
+                        sketches.mergeAmounts(categoryId, amounts);
+                        sketches.mergeMerchants(categoryId, merchants);
+                    }
+                }
+            }
+        }
+        return new SpendingSketch(category, start, end, amounts, merchants);
+    }
+
+    /**
+    Gets the partitions of every month the inclusive date range overlaps.
+    */
+    private Collection<ExpensePartition> partitionsInRange(LocalDate start, LocalDate end) {
+        return monthsInRange(start, end).values();
+    }
+
+    /**
+    Gets a view of the months the inclusive date range overlaps and their partitions.
+    */
+    private NavigableMap<YearMonth, ExpensePartition> monthsInRange(LocalDate start, LocalDate end) {
+        return partitions.subMap(YearMonth.from(start), true, YearMonth.from(end), true);
+    }
+
+    /**
+    Sums the amounts of one category within a single month from the month's aggregate.
+    @param category The exact category name.
+    @param month The month to sum.
+    @return The total in cents.
+    */
+    public long sumCents(String category, YearMonth month) {
+        Integer id = categoryId(category);
+        ExpensePartition partition = partitions.get(month);
+        if (id == null || partition == null) {
+            return 0L;
+        }
+        return partition.getAggregate().sum(id);
+    }
+
+    /**
+    Sums the amounts of every row within a single month from the month's aggregate.
+    @param month The month to sum.
+    @return The total in cents.
+    */
+    public long sumCents(YearMonth month) {
+        ExpensePartition partition = partitions.get(month);
+        return partition == null ? 0L : partition.getAggregate().total();
+    }
+
+    /**
+    Reads the total of every category within a single month from the month's aggregate.
+    @param month The month to sum.
+    @return A map of category names to totals in cents.
+    */
+    public Map<String, Long> sumCentsByCategory(YearMonth month) {
+        ExpensePartition partition = partitions.get(month);
+        Map<String, Long> result = new HashMap<>();
+        for (int id = 0; id < categoryNames().size(); id++) {
+            result.put(categoryNames().get(id), partition == null ? 0L : partition.getAggregate().sum(id));
+        }
+        return result;
+    }
+
+    /**
+    Builds a summary of one category within a single month from the month's aggregate.
+    @param category The exact category name.
+    @param month The month to summarize.
+    @return The category's count, total, minimum and maximum for the month.
+    */
+    public CategorySummary summarize(String category, YearMonth month) {
+        Integer id = categoryId(category);
+        ExpensePartition partition = partitions.get(month);
+        if (id == null || partition == null || partition.getAggregate().count(id) == 0) {
+            return new CategorySummary(category, month, 0, 0L, 0L, 0L);
+        }
+        MonthlyAggregate aggregate = partition.getAggregate();
+        return new CategorySummary(category, month, aggregate.count(id), aggregate.sum(id),
+            partition.minimumCents(id), partition.maximumCents(id));
+    }
+
+    /**
+    Summarizes one category over an inclusive date range. Months fully inside the range are
+    read from their aggregates; the rows of the first and last month are reduced with the
+    AggregationKernels over just the date slice that falls in the range.
+    @param category The exact category name.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @return The category's count, total, minimum and maximum over the range; the month is set only for a range within one month.
+    */
+    public CategorySummary summarize(String category, LocalDate start, LocalDate end) {
+        YearMonth month = YearMonth.from(start).equals(YearMonth.from(end)) ? YearMonth.from(start) : null;
+        Integer id = categoryId(category);
+        if (id == null || end.isBefore(start)) {
+            return new CategorySummary(category, month, 0, 0L, 0L, 0L);
+        }
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+        int count = 0;
+        long total = 0L;
+        long minimum = Long.MAX_VALUE;
+        long maximum = Long.MIN_VALUE;
+        for (ExpensePartition partition : partitionsInRange(start, end)) {
+            int from = partition.lowerBound(startDay);
+            int to = partition.upperBound(endDay);
+            if (from == 0 && to == partition.size()) {
+                MonthlyAggregate aggregate = partition.getAggregate();
+                if (aggregate.count(id) > 0) {
+                    count += aggregate.count(id);
+                    total += aggregate.sum(id);
+                    minimum = Math.min(minimum, partition.minimumCents(id));
+                    maximum = Math.max(maximum, partition.maximumCents(id));
+                }
+            } else {
+                long[] slice = partition.summarize(id, from, to);
+                if (slice[0] > 0) {
+                    count += (int) slice[0];
+                    total += slice[1];
+                    minimum = Math.min(minimum, slice[2]);
+                    maximum = Math.max(maximum, slice[3]);
+                }
+            }
+        }
+        return count == 0
+            ? new CategorySummary(category, month, 0, 0L, 0L, 0L)
+            : new CategorySummary(category, month, count, total, minimum, maximum);
+    }
+
+    /**
+    Lazily yields the locations of matching rows from the date slices of partitions that
+    hold at least one row of the filter's categories, in date order.
+    */
+    private PrimitiveIterator.OfLong scan(Collection<ExpensePartition> candidates, RowFilter filter) {
+        Iterator<ExpensePartition> partitionIterator = candidates.iterator();
+        return new PrimitiveIterator.OfLong() {
+            private ExpensePartition partition;
+            private int slot;
+            private int to;
+            private int blockEnd; // End of the block slot is in, once the zone map has been asked about it
+            private boolean ready; // True when slot holds the next matching row
+
+            @Override
+            public boolean hasNext() {
+                while (!ready) {
+                    if (partition != null && slot < to) {
+                        if (slot >= blockEnd) {
+                            slot = filter.nextCandidate(partition, slot, to);
+                            blockEnd = (ZoneMap.blockOf(slot) + 1) * ZoneMap.BLOCK_SIZE;
+                            continue;
+                        }
+                        ready = filter.matches(partition, slot, true);
+                        if (!ready) {
+                            slot++;
+                        }
+                    } else if (partitionIterator.hasNext()) {
+                        partition = partitionIterator.next();
+                        boolean skip = filter.categoryMask != null && filter.categoryCount(partition) == 0;
+                        slot = skip ? 0 : partition.lowerBound(filter.startDay);
+                        to = skip ? 0 : partition.upperBound(filter.endDay);
+                        blockEnd = 0;
+                    } else {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                return ExpenseIdIndex.pack(partition.getMonth(), slot++);
+            }
+        };
+    }
+
+    /**
+    Collects the remaining locations of an iterator into an array.
+    */
+    private static long[] drain(PrimitiveIterator.OfLong locations) {
+        long[] result = new long[16];
+        int count = 0;
+        while (locations.hasNext()) {
+            if (count == result.length) {
+                result = Arrays.copyOf(result, count * 2);
+            }
+            result[count++] = locations.nextLong();
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+    Reorders date-ordered locations for a query's sort.
+    */
+    private long[] order(long[] locations, ExpenseQuery.Sort sort) {
+        switch (sort) {
+            case DATE_DESCENDING:
+                for (int i = 0, j = locations.length - 1; i < j; i++, j--) {
+                    long swap = locations[i];
+                    locations[i] = locations[j];
+                    locations[j] = swap;
+                }
+                return locations;
+            case AMOUNT_ASCENDING:
+            case AMOUNT_DESCENDING:
+                Long[] boxed = Arrays.stream(locations).boxed().toArray(Long[]::new);
+                Comparator<Long> byAmount = Comparator.comparingLong(this::amountAt);
+                Arrays.sort(boxed, sort == ExpenseQuery.Sort.AMOUNT_ASCENDING ? byAmount : byAmount.reversed());
+                return Arrays.stream(boxed).mapToLong(Long::longValue).toArray();
+            default:
+                return locations;
+        }
+    }
+
+    /**
+    Keeps the k first locations in amount order with a bounded heap, so only k locations are
+    held at once however many rows match. Ties keep date order.
+    */
+    private long[] topByAmount(PrimitiveIterator.OfLong locations, int k, ExpenseQuery.Sort sort) {
+        Comparator<Long> order = Comparator.comparingLong(this::amountAt);
+        if (sort == ExpenseQuery.Sort.AMOUNT_DESCENDING) {
+            order = order.reversed();
+        }
+        order = order.thenComparing(Comparator.naturalOrder());
+        // The heap's head is the worst location kept so far
+        PriorityQueue<Long> heap = new PriorityQueue<>(Math.max(1, k), order.reversed());
+        while (k > 0 && locations.hasNext()) {
+            long location = locations.nextLong();
+            if (heap.size() < k) {
+                heap.add(location);
+            } else if (order.compare(location, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(location);
+            }
+        }
+        Long[] kept = heap.toArray(new Long[0]);
+        Arrays.sort(kept, order);
+        return Arrays.stream(kept).mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+    Creates a spliterator over every row. Call it on a snapshot, whose partitions never change.
+    @return A spliterator that splits evenly across month boundaries.
+    */
+    public Spliterator<Expense> spliterator() {
+        PartitionSlices slices = new PartitionSlices(partitions.values(), Long.MIN_VALUE, Long.MAX_VALUE);
+        return new ExpenseSpliterator(slices, categoryNames(), 0, slices.size());
+    }
+
+    /**
+    Computes the count, total, minimum and maximum of every category within an inclusive
+    date range by reading the columns. Ranges of at least parallelThreshold rows are split
+    into fork/join tasks on the common pool; smaller ranges are summed on the calling thread.
+    Call it on a snapshot when other threads may write.
+    @param start The first date of the range.
+    @param end The last date of the range.
+    @param parallelThreshold The smallest number of rows summed in parallel.
+    @return A summary for every registered category.
+    */
+    public Map<String, CategorySummary> summarizeByCategory(LocalDate start, LocalDate end, int parallelThreshold) {
+        PartitionSlices slices = end.isBefore(start)
+            ? new PartitionSlices(Collections.emptyList(), 0, 0)
+            : new PartitionSlices(partitionsInRange(start, end), start.toEpochDay(), end.toEpochDay());
+        int rows = slices.size();
+        CategoryTotalsTask.Totals totals;
+        if (rows < parallelThreshold) {
+            totals = new CategoryTotalsTask(slices, categoryNames().size(), 0, rows, rows).invoke();
+        } else {
+            int leafSize = Math.max(MIN_PARALLEL_LEAF, rows / (ForkJoinPool.getCommonPoolParallelism() * 4));
+            totals = ForkJoinPool.commonPool().invoke(new CategoryTotalsTask(slices, categoryNames().size(), 0, rows, leafSize));
+        }
+        // A range inside one month keeps that month on its summaries
+        YearMonth month = YearMonth.from(start).equals(YearMonth.from(end)) ? YearMonth.from(start) : null;
+        Map<String, CategorySummary> summaries = new HashMap<>();
+        List<String> names = categoryNames();
+        for (int id = 0; id < names.size(); id++) {
+            summaries.put(names.get(id), new CategorySummary(names.get(id), month,
+                totals.count(id), totals.sum(id), totals.minimum(id), totals.maximum(id)));
+        }
+        return summaries;
+    }
+
+    /**
+    Computes an exact percentile of the amounts of one category in one month with
+    quickselect over a copy of just that month's amount column.
+    @param category The exact category name, or null for every category.
+    @param month The month to read.
+    @param percentile The percentile between 0 and 100.
+    @return The percentile in cents, or 0 if there are no matching rows.
+    @throws IllegalArgumentException If the percentile is outside 0 to 100.
+    */
+    public double percentileCents(String category, YearMonth month, double percentile) {
+        ExpensePartition partition = partitions.get(month);
+        Integer id = category == null ? null : categoryId(category);
+        if (partition == null || (category != null && id == null)) {
+            return OrderStatistics.percentile(new long[0], 0, percentile);
+        }
+        long[] cents = new long[category == null ? partition.liveCount() : partition.getAggregate().count(id)];
+        int count = 0;
+        long[] categoryBits = id == null ? null : ZoneMap.bitsOf(singleCategory(id));
+        int size = partition.size();
+        for (int slot = 0; slot < size; slot++) {
+            if (categoryBits != null && (slot & (ZoneMap.BLOCK_SIZE - 1)) == 0) {
+                slot = partition.nextCandidate(slot, size, Long.MIN_VALUE, Long.MAX_VALUE,
+                    Long.MIN_VALUE, Long.MAX_VALUE, categoryBits);
+                if (slot == size) {
+                    break;
+                }
+            }
+            if (partition.isLive(slot) && (id == null || partition.categoryId(slot) == id)) {
+                cents[count++] = partition.amountCents(slot);
+            }
+        }
+        return OrderStatistics.percentile(cents, count, percentile);
+    }
+
+    /**
+    Builds a category mask that includes only one id.
+    */
+    private boolean[] singleCategory(int id) {
+        boolean[] mask = new boolean[id + 1];
+        mask[id] = true;
+        return mask;
+    }
+
+    /**
+    Gets the amount in cents of the row at a location.
+    */
+    private long amountAt(long location) {
+        return partitions.get(ExpenseIdIndex.monthOf(location)).amountCents(ExpenseIdIndex.slotOf(location));
+    }
+
+    /**
+    Lazily materializes the rows at the given locations.
+    */
+    private Iterator<Expense> rowsAt(PrimitiveIterator.OfLong locations) {
+        return new Iterator<Expense>() {
+            @Override
+            public boolean hasNext() {
+                return locations.hasNext();
+            }
+
+            @Override
+            public Expense next() {
+                long location = locations.nextLong();
+                return partitions.get(ExpenseIdIndex.monthOf(location)).get(ExpenseIdIndex.slotOf(location), categoryNames());
+            }
+        };
+    }
+
+    /**
+    Writes an expense with the given id into the partition of its month.
+    */
+    private void insert(long id, Expense expense) {
+        LocalDate date = expense.getDate();
+        YearMonth month = YearMonth.from(date);
+        ExpensePartition partition = writable(month);
+        if (partition == null) {
+            partition = new ExpensePartition(month, idIndex);
+            partitions.put(month, partition);
+        }
+        int epochDay = Math.toIntExact(date.toEpochDay());
+        int categoryId = internCategory(expense.getCategory());
+        partition.add(id, epochDay, categoryId, expense.getAmountCents(), expense.getDescription(), joinTags(expense));
+        account(categoryId, epochDay, expense.getAmountCents());
+        descriptionIndex.add(id, expense.getDescription());
+        bitmapIndex.add(id, categoryId, expense.getTags());
+        fingerprints.add(FingerprintIndex.fingerprint(epochDay, categoryId, expense.getAmountCents(), expense.getDescription()));
+    }
+
+    /**
+    Overwrites the row at a location in place, or moves it if its month changes.
+    */
+    private void replace(long location, Expense expense) {
+        LocalDate date = expense.getDate();
+        ExpensePartition partition = writable(ExpenseIdIndex.monthOf(location));
+        int slot = ExpenseIdIndex.slotOf(location);
+        long id = partition.id(slot);
+        descriptionIndex.remove(id, partition.description(slot));
+        bitmapIndex.remove(id, partition.categoryId(slot), tagsAt(partition, slot));
+        fingerprints.remove(fingerprintAt(partition, slot));
+        if (partition.getMonth().equals(YearMonth.from(date))) {
+            int epochDay = Math.toIntExact(date.toEpochDay());
+            int categoryId = internCategory(expense.getCategory());
+            account(partition.categoryId(slot), partition.epochDay(slot), -partition.amountCents(slot));
+            partition.set(slot, epochDay, categoryId, expense.getAmountCents(), expense.getDescription(), joinTags(expense));
+            account(categoryId, epochDay, expense.getAmountCents());
+            descriptionIndex.add(id, expense.getDescription());
+            bitmapIndex.add(id, categoryId, expense.getTags());
+            fingerprints.add(FingerprintIndex.fingerprint(epochDay, categoryId, expense.getAmountCents(), expense.getDescription()));
+        } else {
+            dropSlot(partition, slot);
+            insert(id, expense);
+        }
+    }
+
+    /**
+    Gets a month's partition for writing, first replacing it with a heap copy if a snapshot
+    shares it or its columns are off the heap. The file behind an offloaded month is deleted
+    once the copy replaces it, so offloading the month again does not leave the old file behind.
+    */
+    private ExpensePartition writable(YearMonth month) {
+        modifications++;
+        ExpensePartition partition = partitions.get(month);
+        if (partition != null && partition.isFrozen()) {
+            ExpensePartition copy = partition.copy();
+            partitions.put(month, copy);
+            partition.deleteSegmentFile();
+            partition = copy;
+        }
+        return partition;
+    }
+
+    /**
+    Adds an amount to the day totals of a category.
+    */
+    private void account(int categoryId, int epochDay, long cents) {
+        rangeSums.add(categoryId, epochDay, cents);
+        dailyTotals.add(categoryId, epochDay, cents);
+    }
+
+    /**
+    Removes the row at a location.
+    */
+    private void removeAt(long location) {
+        ExpensePartition partition = writable(ExpenseIdIndex.monthOf(location));
+        int slot = ExpenseIdIndex.slotOf(location);
+        descriptionIndex.remove(partition.id(slot), partition.description(slot));
+        bitmapIndex.remove(partition.id(slot), partition.categoryId(slot), tagsAt(partition, slot));
+        fingerprints.remove(fingerprintAt(partition, slot));
+        dropSlot(partition, slot);
+        size--;
+    }
+
+    /**
+    Joins an expense's tags into the form the partitions store them in.
+    */
+    private static String joinTags(Expense expense) {
+        return String.join(",", expense.getTags());
+    }
+
+    /**
+    Computes the fingerprint of a stored row.
+    */
+    private static long fingerprintAt(ExpensePartition partition, int slot) {
+        return FingerprintIndex.fingerprint(partition.epochDay(slot), partition.categoryId(slot),
+            partition.amountCents(slot), partition.description(slot));
+    }
+
+    /**
+    Splits the stored tags of a row.
+    */
+    private static List<String> tagsAt(ExpensePartition partition, int slot) {
+        String tags = partition.tags(slot);
+        return tags.isEmpty() ? Collections.emptyList() : Arrays.asList(tags.split(","));
+    }
+
+    /**
+    Removes a row from its partition and drops the partition once it has no live rows.
+    */
+    private void dropSlot(ExpensePartition partition, int slot) {
+        account(partition.categoryId(slot), partition.epochDay(slot), -partition.amountCents(slot));
+        partition.remove(slot);
+        if (partition.liveCount() == 0) {
+            partitions.remove(partition.getMonth());
+        }
+    }
+
+    /**
+    Finds the location of the row at the given global position among live rows. The walk
+    starts from the month of the previous lookup unless a write came between them, so reading
+    positions in ascending or descending order skips the months already passed.
+    */
+    private long locate(int index) {
+        PositionHint hint = positionHint;
+        if (hint == null || hint.modifications != modifications) {
+            hint = new PositionHint(modifications, partitions.isEmpty() ? null : partitions.firstKey(), 0, 0, 0);
+        }
+        int offset = hint.offset;
+        if (index < offset) {
+            // Walk back to the month holding the position; its row scan starts over
+            for (ExpensePartition partition : partitions.headMap(hint.month, false).descendingMap().values()) {
+                offset -= partition.liveCount();
+                if (index >= offset) {
+                    return locateIn(partition, index, offset, 0, 0);
+                }
+            }
+        } else if (hint.month != null) {
+            for (ExpensePartition partition : partitions.tailMap(hint.month, true).values()) {
+                int liveCount = partition.liveCount();
+                if (index < offset + liveCount) {
+                    boolean same = partition.getMonth().equals(hint.month) && index - offset >= hint.position;
+                    return locateIn(partition, index, offset, same ? hint.slot : 0, same ? hint.position : 0);
+                }
+                offset += liveCount;
+            }
+        }
+        throw new IndexOutOfBoundsException("Invalid expense index.");
+    }
+
+    /**
+    Finds the location of a position within a partition and remembers it for the next lookup.
+    */
+    private long locateIn(ExpensePartition partition, int index, int offset, int fromSlot, int fromPosition) {
+        int slot = partition.liveSlot(index - offset, fromSlot, fromPosition);
+        positionHint = new PositionHint(modifications, partition.getMonth(), offset, index - offset, slot);
+        return ExpenseIdIndex.pack(partition.getMonth(), slot);
+    }
+
+    /**
+    Finds the location of the row with the given id.
+    */
+    private long locateId(long id) {
+        long location = idIndex.get(id);
+        if (location < 0) {
+            throw new IllegalArgumentException("Invalid expense id.");
+        }
+        return location;
+    }
+
+    /**
+    Gets the dense id of a category that validate has already checked is registered.
+    */
+    private int internCategory(String category) {
+        return categories.idOf(category);
+    }
+
+    /**
+    Gets the category names indexed by id, as of the snapshot for a snapshot store.
+    */
+    private List<String> categoryNames() {
+        return pinnedNames != null ? pinnedNames : categories.names();
+    }
+
+    /**
+    Gets the dense id of an exact category name, or null if it has none.
+    */
+    private Integer categoryId(String category) {
+        int id = pinnedNames != null ? pinnedNames.indexOf(category) : categories.idOf(category);
+        return id < 0 ? null : id;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid expense index.");
+        }
+    }
+
+    /**
+    Checks whether a date is one an expense can have. The day-indexed totals grow with the
+    span of the dates stored, so an outlier far from the rest would cost memory for every
+    day in between.
+    @param date The date to check, may be null.
+    @return True if the date is from MIN_DATE through MAX_DATE.
+    */
+    public static boolean isSupportedDate(LocalDate date) {
+        return date != null && !date.isBefore(MIN_DATE) && !date.isAfter(MAX_DATE);
+    }
+
+    /**
+    Checks that an expense can be stored: it has a date from MIN_DATE through MAX_DATE and its
+    category is registered. New categories are added through the registry, never implicitly by
+    an expense. Nothing has been changed when this fails.
+    @param expense The expense to check.
+    @throws IllegalArgumentException If the expense has no supported date or its category is not registered.
+    */
+    public void validate(Expense expense) {
+        if (expense.getDate() == null) {
+            throw new IllegalArgumentException("Expense date is required.");
+        }
+        if (!isSupportedDate(expense.getDate())) {
+            throw new IllegalArgumentException("Expense date must be from " + MIN_DATE + " to " + MAX_DATE + ": " + expense.getDate());
+        }
+        if (categories.idOf(expense.getCategory()) < 0) {
+            throw new IllegalArgumentException("Unknown category: " + expense.getCategory());
+        }
+    }
+
+    /**
+    The month, offset and slot the last lookup by position landed on. Hints are replaced
+    rather than changed, so readers sharing the read lock can race to set one safely.
+    */
+    private static class PositionHint {
+        private final long modifications; // The store's write count when the hint was made
+        private final YearMonth month; // Month of the row found, or null if the store was empty
+        private final int offset; // Position of the month's first live row
+        private final int position; // Position of the row found within its month
+        private final int slot; // Slot of the row found
+
+        PositionHint(long modifications, YearMonth month, int offset, int position, int slot) {
+            this.modifications = modifications;
+            this.month = month;
+            this.offset = offset;
+            this.position = position;
+            this.slot = slot;
+        }
+    }
+
+    /**
+    Read-only list view that materializes rows from the partitions on access. Iteration walks
+    the partitions in month order without repeating the position lookup for every row.
+    */
+    private class RowView extends AbstractList<Expense> {
+        @Override
+        public Expense get(int index) {
+            return ExpenseStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Expense> iterator() {
+            return new Iterator<Expense>() {
+                private final Iterator<ExpensePartition> partitionIterator = partitions.values().iterator();
+                private ExpensePartition partition;
+                private int slot;
+
+                @Override
+                public boolean hasNext() {
+                    while (true) {
+                        while (partition != null && slot < partition.size()) {
+                            if (partition.isLive(slot)) {
+                                return true;
+                            }
+                            slot++;
+                        }
+                        if (!partitionIterator.hasNext()) {
+                            return false;
+                        }
+                        partition = partitionIterator.next();
+                        slot = 0;
+                    }
+                }
+
+                @Override
+                public Expense next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return partition.get(slot++, categoryNames());
+                }
+            };
+        }
+    }
+
+    /**
+    The conditions of a query, translated to the store's column encodings.
+    */
+    private class RowFilter {
+        private final long startDay; // First epoch day to include
+        private final long endDay; // Last epoch day to include
+        private final boolean[] categoryMask; // Included category ids, or null for all
+        private final long[] categoryBits; // categoryMask as a zone map bitmask, or null for all
+        private final RoaringBitmap ids; // Ids meeting the category and tag conditions, or null if there are none
+        private final long minimumCents; // Smallest amount to include
+        private final long maximumCents; // Largest amount to include
+        private final Set<String> terms; // Description tokens to match, or null for no search
+
+        RowFilter(ExpenseQuery query) {
+            this.startDay = query.getStart().toEpochDay();
+            this.endDay = query.getEnd().toEpochDay();
+            if (query.getCategories() == null && query.getExcludedCategories() == null) {
+                this.categoryMask = null;
+            } else {
+                this.categoryMask = new boolean[categoryNames().size()];
+                if (query.getCategories() == null) {
+                    Arrays.fill(categoryMask, true);
+                } else {
+                    for (String category : query.getCategories()) {
+                        Integer id = categoryId(category);
+                        if (id != null) {
+                            categoryMask[id] = true;
+                        }
+                    }
+                }
+                if (query.getExcludedCategories() != null) {
+                    for (String category : query.getExcludedCategories()) {
+                        Integer id = categoryId(category);
+                        if (id != null) {
+                            categoryMask[id] = false;
+                        }
+                    }
+                }
+            }
+            this.categoryBits = ZoneMap.bitsOf(categoryMask);
+            this.ids = categoryMask == null && !query.hasTagFilter() ? null : resolveBitmap(query);
+            this.minimumCents = query.getMinimumAmount() == null ? Long.MIN_VALUE : Money.toCents(query.getMinimumAmount());
+            this.maximumCents = query.getMaximumAmount() == null ? Long.MAX_VALUE : Money.toCents(query.getMaximumAmount());
+            this.terms = query.getDescriptionTerms() == null ? null : DescriptionIndex.tokenize(query.getDescriptionTerms());
+        }
+
+        /**
+        Resolves the category and tag conditions to one bitmap: the union of the included
+        categories, intersected with every required tag and with the union of the alternative
+        tags, less the union of the excluded tags.
+        */
+        private RoaringBitmap resolveBitmap(ExpenseQuery query) {
+            RoaringBitmap result;
+            if (categoryMask == null) {
+                result = bitmapIndex.all();
+            } else {
+                List<Integer> included = new ArrayList<>();
+                for (int id = 0; id < categoryMask.length; id++) {
+                    if (categoryMask[id]) {
+                        included.add(id);
+                    }
+                }
+                result = bitmapIndex.anyCategory(included);
+            }
+            if (query.getAllTags() != null) {
+                result = RoaringBitmap.and(result, bitmapIndex.allTags(query.getAllTags()));
+            }
+            if (query.getAnyTags() != null) {
+                result = RoaringBitmap.and(result, bitmapIndex.anyTag(query.getAnyTags()));
+            }
+            if (query.getExcludedTags() != null) {
+                result = RoaringBitmap.andNot(result, bitmapIndex.anyTag(query.getExcludedTags()));
+            }
+            return result;
+        }
+
+        /**
+        Counts a partition's live rows in the included categories from its aggregate.
+        */
+        long categoryCount(ExpensePartition partition) {
+            long count = 0;
+            for (int id = 0; id < categoryMask.length; id++) {
+                if (categoryMask[id]) {
+                    count += partition.getAggregate().count(id);
+                }
+            }
+            return count;
+        }
+
+        /**
+        Finds the first slot from the given one whose block the zone map cannot rule out.
+        */
+        int nextCandidate(ExpensePartition partition, int from, int to) {
+            return partition.nextCandidate(from, to, startDay, endDay, minimumCents, maximumCents, categoryBits);
+        }
+
+        /**
+        Checks a row against every condition, optionally skipping the description search.
+        */
+        boolean matches(ExpensePartition partition, int slot, boolean checkTerms) {
+            if (!partition.isLive(slot)) {
+                return false;
+            }
+            int day = partition.epochDay(slot);
+            long cents = partition.amountCents(slot);
+            return day >= startDay && day <= endDay
+                && (categoryMask == null || categoryMask[partition.categoryId(slot)])
+                && (ids == null || ids.contains(partition.id(slot)))
+                && cents >= minimumCents && cents <= maximumCents
+                && (!checkTerms || terms == null || DescriptionIndex.matches(partition.description(slot), terms));
+        }
+    }
+}
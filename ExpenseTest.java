@@ -1,6 +1,7 @@
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import java.time.LocalDate;
+import java.util.Arrays;
 import static org.junit.jupiter.api.Assertions.*;
 
 //Author: Ashish Dev Choudhary
@@ -125,12 +126,43 @@ public class ExpenseTest {
             100000.00  // Large round number
         };
         
-        for (double amount : amounts) {
-            expense.setAmount(amount);
-            assertEquals(amount, expense.getAmount());
+        // Amounts are kept in whole cents and rounded half up
+        double[] expected = {0.01, 1.00, 99999.99, 50.56, 1234567.89, 0.00, 100000.00};
+        
+        for (int i = 0; i < amounts.length; i++) {
+            expense.setAmount(amounts[i]);
+            assertEquals(expected[i], expense.getAmount());
+            assertEquals(Math.round(expected[i] * 100), expense.getAmountCents());
         }
     }
     
+    @Test
+    void testMoneyParseAndFormat() {
+        assertEquals(1234, Money.parse("12.34"));
+        assertEquals(1200, Money.parse(" 12 "));
+        assertEquals(1250, Money.parse("12.5"));
+        assertEquals(5056, Money.parse("50.555"));
+        assertEquals(-305, Money.parse("-3.045"));
+        assertEquals(123456, Money.parse("1,234.56"));
+        assertEquals(100000, Money.parse("1e3"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("twelve"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("-"));
+        
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-1234.50", Money.format(-123450));
+        assertEquals("$1,234,567.89", Money.formatCurrency(123456789));
+        assertEquals("-$3.00", Money.formatCurrency(-300));
+        assertEquals("-$92,233,720,368,547,758.08", Money.formatCurrency(Long.MIN_VALUE));
+        
+        // Cent sums are exact where adding doubles drifts
+        long[] cents = new long[1000];
+        Arrays.fill(cents, 10);
+        assertEquals(10000, Money.sum(cents, 0, cents.length));
+        assertEquals(30, Money.sum(cents, 997, 1000));
+        assertEquals(Money.toCents(0.1 + 0.2), Money.toCents(0.3));
+    }
+    
     @Test
     void testSetDescription() {
         String[] descriptions = {
@@ -151,6 +183,24 @@ public class ExpenseTest {
         }
     }
     
+    @Test
+    void testSetTags() {
+        assertTrue(expense.getTags().isEmpty());
+        
+        expense.setTags(Arrays.asList("  Travel ", "work;REIMBURSABLE", "", "travel, ,client"));
+        assertEquals(Arrays.asList("client", "reimbursable", "travel", "work"), expense.getTags().stream().toList());
+        assertThrows(UnsupportedOperationException.class, () -> expense.getTags().add("other"));
+        
+        Expense same = new Expense(defaultDate, "Food", 50.00, "Grocery shopping");
+        assertNotEquals(same, expense);
+        same.setTags(Arrays.asList("work", "travel", "client", "reimbursable"));
+        assertEquals(same, expense);
+        assertEquals(same.hashCode(), expense.hashCode());
+        
+        expense.setTags(null);
+        assertTrue(expense.getTags().isEmpty());
+    }
+    
     @Test
     void testToStringWithVariousFormats() {
         // Test regular expense
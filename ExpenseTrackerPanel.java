@@ -2,8 +2,8 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
 Authors: Primary Author(Ashish Dev Choudhary)
@@ -16,7 +16,10 @@ public class ExpenseTrackerPanel extends JPanel {
     private ExpenseManager expenseManager; // Manages expense data
     private DefaultTableModel tableModel; // Model for the expense table
     private JTable expenseTable; // Table for displaying expenses
-    private BudgetManagerPanel budgetManagerPanel; // Panel for budget management 
+    private BudgetManagerPanel budgetManagerPanel; // Panel for budget management
+    private final List<Long> displayedIds = new ArrayList<>(); // Expense id of each table row 
+    private final DefaultComboBoxModel<String> categoryBoxModel = new DefaultComboBoxModel<>(); // Categories to add expenses to
+    private final DefaultListModel<String> categoryListModel = new DefaultListModel<>(); // Categories to filter by
 
     /**
     Constructs an ExpenseTrackerPanel with the specified ExpenseManager.
@@ -28,7 +31,7 @@ public class ExpenseTrackerPanel extends JPanel {
         setLayout(new BorderLayout());
 
         // Table for displaying expenses
-        tableModel = new DefaultTableModel(new String[]{"Date", "Category", "Amount", "Description"}, 0) {
+        tableModel = new DefaultTableModel(new String[]{"Date", "Category", "Amount", "Description", "Tags"}, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return false; 
@@ -38,16 +41,19 @@ public class ExpenseTrackerPanel extends JPanel {
         JScrollPane scrollPane = new JScrollPane(expenseTable);
         
         // Form for adding expenses
-        JPanel formPanel = new JPanel(new GridLayout(6, 2, 5, 5));
+        JPanel formPanel = new JPanel(new GridLayout(8, 2, 5, 5));
         formPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         JTextField dateField = new JTextField();
-        JComboBox<String> categoryBox = new JComboBox<>(expenseManager.getPredefinedCategories().toArray(new String[0]));
+        JComboBox<String> categoryBox = new JComboBox<>(categoryBoxModel);
         JTextField amountField = new JTextField();
         JTextField descriptionField = new JTextField();
+        JTextField tagsField = new JTextField();
 
         JButton addButton = createStyledButton("Add Expense", new Color(76, 175, 80));
         JButton deleteButton = createStyledButton("Delete Selected", new Color(211, 47, 47));
+        JButton newCategoryButton = createStyledButton("New Category", new Color(63, 81, 181));
+        JButton renameCategoryButton = createStyledButton("Rename Category", new Color(63, 81, 181));
 
         formPanel.add(new JLabel("Date (YYYY-MM-DD):"));
         formPanel.add(dateField);
@@ -57,10 +63,14 @@ public class ExpenseTrackerPanel extends JPanel {
         formPanel.add(amountField);
         formPanel.add(new JLabel("Description:"));
         formPanel.add(descriptionField);
+        formPanel.add(new JLabel("Tags (comma separated):"));
+        formPanel.add(tagsField);
         formPanel.add(new JLabel());
         formPanel.add(addButton);
         formPanel.add(new JLabel());
         formPanel.add(deleteButton);
+        formPanel.add(newCategoryButton);
+        formPanel.add(renameCategoryButton);
 
         // Filter panel for filtering expenses
         JPanel filterPanel = new JPanel(new GridBagLayout());
@@ -70,10 +80,18 @@ public class ExpenseTrackerPanel extends JPanel {
 
         JTextField startDateField = new JTextField(10);
         JTextField endDateField = new JTextField(10);
-        JList<String> categoryList = new JList<>(expenseManager.getPredefinedCategories().toArray(new String[0]));
+        JList<String> categoryList = new JList<>(categoryListModel);
+        refreshCategories();
         categoryList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         JScrollPane categoryScrollPane = new JScrollPane(categoryList);
         categoryScrollPane.setPreferredSize(new Dimension(200, 100));
+        JTextField searchField = new JTextField(20);
+        JCheckBox excludeCategoriesBox = new JCheckBox("Exclude selected categories");
+        JTextField allTagsField = new JTextField(20);
+        JTextField anyTagField = new JTextField(20);
+        JTextField excludedTagsField = new JTextField(20);
+        JTextField minimumAmountField = new JTextField(10);
+        JTextField maximumAmountField = new JTextField(10);
 
         JButton filterButton = createStyledButton("Filter", new Color(63, 81, 181));
         JButton resetButton = createStyledButton("Reset", new Color(158, 158, 158));
@@ -99,10 +117,60 @@ public class ExpenseTrackerPanel extends JPanel {
         gbc.gridwidth = 4;
         filterPanel.add(new JLabel("Categories:"), gbc);
 
-        gbc.gridy = 2;
+        gbc.gridx = 4;
+        gbc.gridwidth = 1;
+        filterPanel.add(excludeCategoriesBox, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 2;
+        gbc.gridwidth = 4;
         filterPanel.add(categoryScrollPane, gbc);
 
         gbc.gridy = 3;
+        gbc.gridwidth = 1;
+        filterPanel.add(new JLabel("Search Description:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.gridwidth = 3;
+        filterPanel.add(searchField, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 4;
+        gbc.gridwidth = 1;
+        filterPanel.add(new JLabel("All Tags:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.gridwidth = 3;
+        filterPanel.add(allTagsField, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 5;
+        gbc.gridwidth = 1;
+        filterPanel.add(new JLabel("Any Tag:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.gridwidth = 3;
+        filterPanel.add(anyTagField, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 6;
+        gbc.gridwidth = 1;
+        filterPanel.add(new JLabel("Exclude Tags:"), gbc);
+
+        gbc.gridx = 1;
+        gbc.gridwidth = 3;
+        filterPanel.add(excludedTagsField, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 7;
+        gbc.gridwidth = 1;
+        filterPanel.add(new JLabel("Min Amount:"), gbc);
+
+        gbc.gridx = 1;
+        filterPanel.add(minimumAmountField, gbc);
+
+        gbc.gridx = 2;
+        filterPanel.add(new JLabel("Max Amount:"), gbc);
+
+        gbc.gridx = 3;
+        filterPanel.add(maximumAmountField, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 8;
         gbc.gridwidth = 2;
         filterPanel.add(filterButton, gbc);
 
@@ -118,14 +186,15 @@ public class ExpenseTrackerPanel extends JPanel {
             try {
                 LocalDate date = LocalDate.parse(dateField.getText());
                 String category = (String) categoryBox.getSelectedItem();
-                double amount = Double.parseDouble(amountField.getText());
+                long amountCents = Money.parse(amountField.getText());
                 String description = descriptionField.getText();
 
-                if (amount <= 0) {
+                if (amountCents <= 0) {
                     throw new IllegalArgumentException("Amount must be positive");
                 }
 
-                Expense expense = new Expense(date, category, amount, description);
+                Expense expense = Expense.ofCents(date, category, amountCents, description);
+                expense.setTags(Expense.parseTags(tagsField.getText()));
                 expenseManager.addExpense(expense);
 
                 refreshExpenseTable(); // Refresh's the table after adding
@@ -135,6 +204,7 @@ public class ExpenseTrackerPanel extends JPanel {
                 categoryBox.setSelectedIndex(0);
                 amountField.setText("");
                 descriptionField.setText("");
+                tagsField.setText("");
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this, 
                     "Invalid amount format", "Error", JOptionPane.ERROR_MESSAGE);
@@ -147,7 +217,7 @@ public class ExpenseTrackerPanel extends JPanel {
         deleteButton.addActionListener(e -> {
             int selectedRow = expenseTable.getSelectedRow();
             if (selectedRow != -1) {
-                expenseManager.deleteExpense(selectedRow);
+                expenseManager.deleteExpenseById(displayedIds.get(selectedRow));
                 refreshExpenseTable(); // Refresh the table after deleting
             } else {
                 JOptionPane.showMessageDialog(this, 
@@ -163,18 +233,31 @@ public class ExpenseTrackerPanel extends JPanel {
                     null : LocalDate.parse(endDateField.getText());
                 List<String> selectedCategories = categoryList.getSelectedValuesList();
 
-                List<Expense> filteredExpenses = expenseManager.getAllExpenses();
-
+                // One query; category and tag filters resolve to one bitmap of ids, and the
+                // planner picks the most selective index for the given filters
+                ExpenseQuery query = expenseManager.query()
+                        .withAllTags(Expense.parseTags(allTagsField.getText()))
+                        .withAnyTag(Expense.parseTags(anyTagField.getText()))
+                        .withoutTags(Expense.parseTags(excludedTagsField.getText()))
+                        .withDescription(searchField.getText());
+                if (excludeCategoriesBox.isSelected()) {
+                    query.excludingCategories(selectedCategories);
+                } else {
+                    query.inCategories(selectedCategories);
+                }
                 if (startDate != null && endDate != null) {
-                    filteredExpenses = expenseManager.filterByDateRange(startDate, endDate);
+                    query.between(startDate, endDate);
                 }
-
-                if (!selectedCategories.isEmpty()) {
-                    filteredExpenses = filteredExpenses.stream()
-                            .filter(expense -> selectedCategories.contains(expense.getCategory()))
-                            .collect(Collectors.toList());
+                if (!minimumAmountField.getText().isBlank()) {
+                    query.amountAtLeast(Money.toAmount(Money.parse(minimumAmountField.getText())));
+                }
+                if (!maximumAmountField.getText().isBlank()) {
+                    query.amountAtMost(Money.toAmount(Money.parse(maximumAmountField.getText())));
                 }
 
+                List<Expense> filteredExpenses = new ArrayList<>();
+                query.execute().forEachRemaining(filteredExpenses::add);
+
                 updateTableWithExpenses(filteredExpenses);
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, 
@@ -185,15 +268,68 @@ public class ExpenseTrackerPanel extends JPanel {
         resetButton.addActionListener(e -> {
             startDateField.setText("");
             endDateField.setText("");
+            searchField.setText("");
+            allTagsField.setText("");
+            anyTagField.setText("");
+            excludedTagsField.setText("");
+            minimumAmountField.setText("");
+            maximumAmountField.setText("");
+            excludeCategoriesBox.setSelected(false);
             categoryList.clearSelection();
             refreshExpenseTable();
         });
 
         refreshButton.addActionListener(e -> refreshExpenseTable());
 
+        newCategoryButton.addActionListener(e -> {
+            String name = JOptionPane.showInputDialog(this, "New category name:", "New Category",
+                JOptionPane.PLAIN_MESSAGE);
+            if (name != null) {
+                try {
+                    expenseManager.addCategory(name);
+                    refreshCategories();
+                    categoryBox.setSelectedItem(name.trim());
+                } catch (IllegalArgumentException | IllegalStateException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+
+        renameCategoryButton.addActionListener(e -> {
+            String category = (String) categoryBox.getSelectedItem();
+            String name = JOptionPane.showInputDialog(this, "Rename " + category + " to:", category);
+            if (category != null && name != null && !name.trim().equals(category)) {
+                try {
+                    expenseManager.renameCategory(category, name);
+                    refreshCategories();
+                    refreshExpenseTable();
+                } catch (IllegalArgumentException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+
         refreshExpenseTable();
     }
 
+    /**
+    Reloads the category choices from the ExpenseManager, keeping the current selections
+    where the category still exists.
+    */
+    public void refreshCategories() {
+        List<String> categories = expenseManager.getCategories();
+        Object selected = categoryBoxModel.getSelectedItem();
+        categoryBoxModel.removeAllElements();
+        categoryListModel.clear();
+        for (String category : categories) {
+            categoryBoxModel.addElement(category);
+            categoryListModel.addElement(category);
+        }
+        if (selected != null && categories.contains(selected)) {
+            categoryBoxModel.setSelectedItem(selected);
+        }
+    }
+
     /**
     Refreshes the expense table with all expenses.
     */
@@ -207,12 +343,15 @@ public class ExpenseTrackerPanel extends JPanel {
     */
     private void updateTableWithExpenses(List<Expense> expenses) {
         tableModel.setRowCount(0); // Clear existing rows
+        displayedIds.clear();
         for (Expense expense : expenses) {
+            displayedIds.add(expense.getId());
             tableModel.addRow(new Object[]{
                 expense.getDate(),
                 expense.getCategory(),
-                String.format("$%.2f", expense.getAmount()),
-                expense.getDescription()
+                "$" + Money.format(expense.getAmountCents()),
+                expense.getDescription(),
+                String.join(", ", expense.getTags())
             });
         }
     }
@@ -6,6 +6,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Primary Author: Everyone
@@ -15,6 +16,7 @@ import java.nio.file.Paths;
  *              It provides a GUI and integrates data persistence and user account management.
  */
 public class FinanceApp {
+    private static final long UPDATE_COALESCING_MILLIS = 150; // Window for collapsing bursts of changes
     private User currentUser;
     private ExpenseManager expenseManager;
     private DataPersistenceManager dataPersistenceManager;
@@ -61,8 +63,15 @@ public class FinanceApp {
      */
     private void loadUserData() {
         try {
-            dataPersistenceManager.loadUserData(currentUser, expenseManager);
+            int skipped = dataPersistenceManager.loadUserData(currentUser, expenseManager);
             System.out.println("Successfully loaded user data for: " + currentUser.getUsername());
+            if (skipped > 0) {
+                JOptionPane.showMessageDialog(null,
+                    skipped + " malformed lines in your data file could not be loaded.\n"
+                        + "The original file was kept with a .backup extension.",
+                    "Data Load Warning",
+                    JOptionPane.WARNING_MESSAGE);
+            }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(null,
                 "Error loading user data: " + e.getMessage(),
@@ -89,16 +98,16 @@ public class FinanceApp {
     }
 
     /**
-     * Sets up a callback to update the GUI and save data whenever
-     * changes occur in the expense manager.
+     * Subscribes to expense and budget change events so the GUI refreshes only the
+     * affected month and categories and data is saved once per burst of changes.
      */
     private void setupUpdateCallback() {
-        expenseManager.setGuiUpdateCallback(() -> {
+        expenseManager.getEventBus().subscribe(events -> {
             SwingUtilities.invokeLater(() -> {
-                updateAllComponents();
+                applyChanges(events);
                 saveCurrentData();
             });
-        });
+        }, UPDATE_COALESCING_MILLIS);
     }
 
     /**
@@ -229,6 +238,24 @@ public class FinanceApp {
         }
     }
 
+    /**
+     * Refreshes only the components affected by the given change events.
+     *
+     * @param events The coalesced change events to apply.
+     */
+    private void applyChanges(List<ExpenseChangeEvent> events) {
+        if (dashboardPanel != null && events.stream().anyMatch(dashboardPanel::isAffectedBy)) {
+            dashboardPanel.updateFinancialSummary();
+        }
+        if (budgetManagerPanel != null) {
+            budgetManagerPanel.applyChanges(events);
+        }
+        if (expenseTrackerPanel != null
+                && events.stream().anyMatch(event -> event.getType() == ExpenseChangeEvent.Type.CATEGORY_CHANGED)) {
+            expenseTrackerPanel.refreshCategories();
+        }
+    }
+
     /**
      * Saves the current user's data to persistent storage.
      * Displays an error message if the save operation fails.
@@ -262,6 +289,7 @@ public class FinanceApp {
 
     /**
      * Opens a file chooser to import transaction data.
+     * The file is read on a background thread so the GUI stays responsive during large imports.
      * Displays success, warning, or error messages based on the outcome of the import.
      */
     private void importTransactions() {
@@ -269,25 +297,50 @@ public class FinanceApp {
         fileChooser.setDialogTitle("Import Transactions");
         
         if (fileChooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
-            try {
-                TransactionFileHandler fileHandler = new TransactionFileHandler(expenseManager);
-                fileHandler.importTransactions(fileChooser.getSelectedFile());
-                JOptionPane.showMessageDialog(frame,
-                    "Transactions imported successfully!",
-                    "Import Success",
-                    JOptionPane.INFORMATION_MESSAGE);
-                updateAllComponents();
-            } catch (TransactionFileHandler.TransactionImportException e) {
-                JOptionPane.showMessageDialog(frame,
-                    e.getMessage(),
-                    e.isPartialSuccess() ? "Import Completed with Warnings" : "Import Failed",
-                    e.isPartialSuccess() ? JOptionPane.WARNING_MESSAGE : JOptionPane.ERROR_MESSAGE);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(frame,
-                    "Error reading file: " + e.getMessage(),
-                    "Import Error",
-                    JOptionPane.ERROR_MESSAGE);
-            }
+            File file = fileChooser.getSelectedFile();
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() throws Exception {
+                    TransactionFileHandler fileHandler = new TransactionFileHandler(expenseManager);
+                    fileHandler.importTransactions(file);
+                    return null;
+                }
+
+                @Override
+                protected void done() {
+                    try {
+                        get();
+                        JOptionPane.showMessageDialog(frame,
+                            "Transactions imported successfully!",
+                            "Import Success",
+                            JOptionPane.INFORMATION_MESSAGE);
+                        updateAllComponents();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException e) {
+                        showImportError(e.getCause());
+                    }
+                }
+            }.execute();
+        }
+    }
+
+    /**
+     * Shows the outcome of an import that did not complete cleanly.
+     * @param cause The exception thrown by the import.
+     */
+    private void showImportError(Throwable cause) {
+        if (cause instanceof TransactionFileHandler.TransactionImportException) {
+            TransactionFileHandler.TransactionImportException e = (TransactionFileHandler.TransactionImportException) cause;
+            JOptionPane.showMessageDialog(frame,
+                e.getMessage(),
+                e.isPartialSuccess() ? "Import Completed with Warnings" : "Import Failed",
+                e.isPartialSuccess() ? JOptionPane.WARNING_MESSAGE : JOptionPane.ERROR_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(frame,
+                (cause instanceof IOException ? "Error reading file: " : "Import error: ") + cause.getMessage(),
+                "Import Error",
+                JOptionPane.ERROR_MESSAGE);
         }
     }
 
@@ -0,0 +1,164 @@
+/**
+  Description: The FingerprintIndex class counts the stored expenses by fingerprint: a 64-bit hash
+			  of the date, category id, amount in cents and normalized description of an
+			  expense. It is an open-addressing hash table from fingerprint to count, updated as
+			  expenses are added, edited and removed, so an import can tell in constant time
+			  whether a transaction is already stored. Counts rather than a set let a day with
+			  two identical purchases match a statement listing both. Zero marks an empty
+			  bucket, so no fingerprint is ever zero.
+*/
+
+public class FingerprintIndex {
+    private static final int INITIAL_CAPACITY = 64; // Must be a power of two
+    private static final long EMPTY = 0L;
+
+    private long[] keys; // Fingerprints, EMPTY for a free bucket
+    private int[] counts; // Number of stored expenses with each fingerprint
+    private int size; // Number of distinct fingerprints in the index
+
+    /**
+    Constructs an empty index.
+    */
+    public FingerprintIndex() {
+        this.keys = new long[INITIAL_CAPACITY];
+        this.counts = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+    Computes the fingerprint of an expense. The description is trimmed, lower-cased and has
+    its runs of whitespace collapsed, and semicolons count as commas, since exported files
+    write commas in descriptions as semicolons.
+    @param epochDay The date as LocalDate.toEpochDay().
+    @param categoryId The dense category id.
+    @param cents The amount in cents.
+    @param description The description, may be null.
+    @return A non-zero fingerprint.
+    */
+    public static long fingerprint(int epochDay, int categoryId, long cents, String description) {
+        // FNV-1a over the fields and the normalized characters, then a finalizer that spreads every bit
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ epochDay) * 0x100000001b3L;
+        hash = (hash ^ categoryId) * 0x100000001b3L;
+        hash = (hash ^ cents) * 0x100000001b3L;
+        hash = (hash ^ (cents >>> 32)) * 0x100000001b3L;
+        if (description != null) {
+            String text = description.trim();
+            boolean space = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    space = true;
+                    continue;
+                }
+                if (space) {
+                    hash = (hash ^ ' ') * 0x100000001b3L;
+                    space = false;
+                }
+                hash = (hash ^ (c == ';' ? ',' : Character.toLowerCase(c))) * 0x100000001b3L;
+            }
+        }
+        long mixed = mix(hash);
+        return mixed == EMPTY ? 1L : mixed;
+    }
+
+    /**
+    Gets the number of distinct fingerprints in the index.
+    @return The number of distinct fingerprints.
+    */
+    public int size() {
+        return size;
+    }
+
+    /**
+    Counts the stored expenses with a fingerprint.
+    @param fingerprint A value returned by fingerprint.
+    @return The number of stored expenses with the fingerprint.
+    */
+    public int count(long fingerprint) {
+        int bucket = find(fingerprint);
+        return keys[bucket] == fingerprint ? counts[bucket] : 0;
+    }
+
+    /**
+    Records a stored expense.
+    @param fingerprint A value returned by fingerprint.
+    */
+    public void add(long fingerprint) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int bucket = find(fingerprint);
+        if (keys[bucket] == EMPTY) {
+            keys[bucket] = fingerprint;
+            size++;
+        }
+        counts[bucket]++;
+    }
+
+    /**
+    Forgets a stored expense. The fingerprint leaves the index with its last expense; later
+    entries of the same probe run are then shifted back so lookups never need tombstones.
+    @param fingerprint A value returned by fingerprint.
+    */
+    public void remove(long fingerprint) {
+        int mask = keys.length - 1;
+        int bucket = find(fingerprint);
+        if (keys[bucket] != fingerprint) {
+            return;
+        }
+        if (--counts[bucket] > 0) {
+            return;
+        }
+        keys[bucket] = EMPTY;
+        size--;
+        int next = (bucket + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = (int) keys[next] & mask;
+            boolean movable = bucket <= next ? (home <= bucket || home > next) : (home <= bucket && home > next);
+            if (movable) {
+                keys[bucket] = keys[next];
+                counts[bucket] = counts[next];
+                keys[next] = EMPTY;
+                counts[next] = 0;
+                bucket = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    /**
+    Finds the bucket holding a fingerprint, or the empty bucket where it would go. Fingerprints
+    are already well mixed, so their low bits pick the home bucket.
+    */
+    private int find(long fingerprint) {
+        int mask = keys.length - 1;
+        int bucket = (int) fingerprint & mask;
+        while (keys[bucket] != EMPTY && keys[bucket] != fingerprint) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int bucket = find(oldKeys[i]);
+                keys[bucket] = oldKeys[i];
+                counts[bucket] = oldCounts[i];
+            }
+        }
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,108 @@
+/**
+  Description: The HyperLogLog class estimates how many distinct values, such as merchants, a
+			  stream has seen, in a fixed 4 KB of registers however long the stream is. Each
+			  value is hashed; the hash picks a register and the register keeps the longest run
+			  of leading zeros seen in the rest of the hash. The estimate is within about 2% of
+			  the true count. Two sketches merge by taking the larger of each register, so
+			  monthly sketches combine cheaply into quarters and years. Values can be added
+			  but not removed.
+*/
+
+public class HyperLogLog {
+    private static final int PRECISION = 12; // log2 of the number of registers
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS); // Bias correction for this many registers
+
+    private final byte[] registers; // Longest run of leading zeros plus one seen per register
+
+    /**
+    Constructs an empty sketch.
+    */
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    /**
+    Constructs an independent copy of another sketch.
+    @param other The sketch to copy.
+    */
+    public HyperLogLog(HyperLogLog other) {
+        this.registers = other.registers.clone();
+    }
+
+    /**
+    Adds a value. Values that are equal ignoring case and surrounding whitespace count once.
+    @param value The value to add; null is ignored.
+    */
+    public void add(String value) {
+        if (value == null) {
+            return;
+        }
+        String key = value.trim();
+        if (key.isEmpty()) {
+            return;
+        }
+        // FNV-1a over the lower-cased characters, then a finalizer that spreads every bit
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= Character.toLowerCase(key.charAt(i));
+            hash *= 0x100000001b3L;
+        }
+        addHash(mix(hash));
+    }
+
+    /**
+    Adds an already well-mixed 64-bit hash.
+    @param hash The hash of the value.
+    */
+    public void addHash(long hash) {
+        int register = (int) (hash >>> (Long.SIZE - PRECISION));
+        // The guard bit keeps the run finite when the remaining bits are all zero
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+
+    /**
+    Adds every value another sketch has seen to this one. The other sketch is not changed.
+    @param other The sketch to merge in.
+    */
+    public void add(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+    Estimates the number of distinct values added.
+    @return The estimated count.
+    */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            // Linear counting is more accurate while many registers are still empty
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,173 @@
+/**
+  Description: The Money class converts, sums and formats amounts held as a whole number of cents
+			  in a long. Sums of cents are exact integer adds, so a total does not depend on the
+			  order it was summed in, and a plain loop over a long array is one the JIT can
+			  unroll and vectorize. Text is parsed and formatted digit by digit without going
+			  through double or String.format. Amounts given as double are rounded half up to
+			  the nearest cent, the way the decimal text of the amount would be.
+*/
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class Money {
+    private static final int MAX_TEXT_LENGTH = 27; // Sign, dollar sign, 17 digits, 5 separators, point and 2 decimals
+
+    private Money() {
+    }
+
+    /**
+    Converts an amount to cents, rounding half up.
+    @param amount The amount in dollars.
+    @return The amount in cents.
+    @throws IllegalArgumentException If the amount is not finite.
+    */
+    public static long toCents(double amount) {
+        if (!Double.isFinite(amount)) {
+            throw new IllegalArgumentException("Amount must be a finite number.");
+        }
+        double scaled = amount * 100;
+        long cents = Math.round(scaled);
+        // amount * 100 can land just off a half cent that the amount's decimal text has exactly, as with 50.555
+        if (Math.abs(Math.abs(scaled - cents) - 0.5) < 1e-6) {
+            return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        }
+        return cents;
+    }
+
+    /**
+    Converts cents to an amount in dollars.
+    @param cents The amount in cents.
+    @return The amount in dollars.
+    */
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+    Sums a range of amounts.
+    @param cents The amounts in cents.
+    @param from The first index to add.
+    @param to One past the last index to add.
+    @return The total in cents.
+    */
+    public static long sum(long[] cents, int from, int to) {
+        long total = 0L;
+        for (int i = from; i < to; i++) {
+            total += cents[i];
+        }
+        return total;
+    }
+
+    /**
+    Parses a decimal amount such as "12", "-3.5" or "1,234.56" to cents, rounding half up
+    after the second decimal. Text in any other form, such as "1e3", is parsed as a double.
+    @param text The amount text; surrounding whitespace is ignored.
+    @return The amount in cents.
+    @throws NumberFormatException If the text is not a number.
+    */
+    public static long parse(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        boolean negative = start < end && text.charAt(start) == '-';
+        int i = start < end && (text.charAt(start) == '-' || text.charAt(start) == '+') ? start + 1 : start;
+        long dollars = 0L;
+        long cents = 0L;
+        int decimals = 0;
+        boolean point = false;
+        boolean digits = false;
+        boolean roundUp = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (!point) {
+                    if (dollars > (Long.MAX_VALUE / 100 - 9) / 10) {
+                        return fallback(text, start, end);
+                    }
+                    dollars = dollars * 10 + (c - '0');
+                } else if (decimals < 2) {
+                    cents = cents * 10 + (c - '0');
+                    decimals++;
+                } else if (decimals++ == 2) {
+                    roundUp = c >= '5';
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else if (c == ',' && !point && digits) {
+                continue;
+            } else {
+                return fallback(text, start, end);
+            }
+        }
+        if (!digits) {
+            throw new NumberFormatException("Not an amount: \"" + text + "\"");
+        }
+        cents = dollars * 100 + (decimals == 1 ? cents * 10 : cents) + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    /**
+    Parses text the fast path does not handle through Double.parseDouble.
+    */
+    private static long fallback(CharSequence text, int start, int end) {
+        try {
+            return toCents(Double.parseDouble(text.subSequence(start, end).toString()));
+        } catch (IllegalArgumentException e) {
+            throw new NumberFormatException("Not an amount: \"" + text + "\"");
+        }
+    }
+
+    /**
+    Formats cents as a plain decimal with two decimals, such as "-1234.50". This is the
+    form the data files use.
+    @param cents The amount in cents.
+    @return The formatted amount.
+    */
+    public static String format(long cents) {
+        return format(cents, false);
+    }
+
+    /**
+    Formats cents as US dollars with thousands separators, such as "$1,234.50" or "-$3.00".
+    @param cents The amount in cents.
+    @return The formatted amount.
+    */
+    public static String formatCurrency(long cents) {
+        return format(cents, true);
+    }
+
+    private static String format(long cents, boolean currency) {
+        char[] text = new char[MAX_TEXT_LENGTH];
+        int position = text.length;
+        // Works on the negative magnitude, which unlike the positive one always fits, even for Long.MIN_VALUE
+        long rest = cents < 0 ? cents : -cents;
+        text[--position] = (char) ('0' - rest % 10);
+        rest /= 10;
+        text[--position] = (char) ('0' - rest % 10);
+        rest /= 10;
+        text[--position] = '.';
+        int digits = 0;
+        do {
+            if (currency && digits > 0 && digits % 3 == 0) {
+                text[--position] = ',';
+            }
+            text[--position] = (char) ('0' - rest % 10);
+            rest /= 10;
+            digits++;
+        } while (rest != 0);
+        if (currency) {
+            text[--position] = '$';
+        }
+        if (cents < 0) {
+            text[--position] = '-';
+        }
+        return new String(text, position, text.length - position);
+    }
+}
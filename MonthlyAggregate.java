@@ -0,0 +1,162 @@
+/**
+  Description: The MonthlyAggregate class keeps running totals for one month of expenses:
+			  the sum, count, minimum and maximum amount in cents for every category id.
+			  It is updated in constant time whenever a row of the month is added, changed or
+			  removed. Removing the current minimum or maximum marks that category's extremes
+			  as stale so the owning partition can recompute them on the next read.
+*/
+
+import java.util.Arrays;
+
+public class MonthlyAggregate {
+    private static final int INITIAL_CATEGORIES = 8;
+
+    private long[] sums; // Total cents per category id
+    private int[] counts; // Number of rows per category id
+    private long[] minimums; // Smallest amount in cents per category id
+    private long[] maximums; // Largest amount in cents per category id
+    private boolean[] staleExtremes; // True when a category's min/max must be recomputed
+
+    /**
+    Constructs an empty aggregate.
+    */
+    public MonthlyAggregate() {
+        this.sums = new long[INITIAL_CATEGORIES];
+        this.counts = new int[INITIAL_CATEGORIES];
+        this.minimums = new long[INITIAL_CATEGORIES];
+        this.maximums = new long[INITIAL_CATEGORIES];
+        this.staleExtremes = new boolean[INITIAL_CATEGORIES];
+    }
+
+    /**
+    Constructs an independent copy of another aggregate.
+    @param other The aggregate to copy.
+    */
+    public MonthlyAggregate(MonthlyAggregate other) {
+        this.sums = other.sums.clone();
+        this.counts = other.counts.clone();
+        this.minimums = other.minimums.clone();
+        this.maximums = other.maximums.clone();
+        this.staleExtremes = other.staleExtremes.clone();
+    }
+
+    /**
+    Records a new row.
+    @param categoryId The dense category id of the row.
+    @param cents The amount of the row in cents.
+    */
+    public void add(int categoryId, long cents) {
+        ensureCategory(categoryId);
+        if (counts[categoryId] == 0) {
+            minimums[categoryId] = cents;
+            maximums[categoryId] = cents;
+            staleExtremes[categoryId] = false;
+        } else if (!staleExtremes[categoryId]) {
+            minimums[categoryId] = Math.min(minimums[categoryId], cents);
+            maximums[categoryId] = Math.max(maximums[categoryId], cents);
+        }
+        sums[categoryId] += cents;
+        counts[categoryId]++;
+    }
+
+    /**
+    Removes a previously recorded row.
+    @param categoryId The dense category id of the row.
+    @param cents The amount of the row in cents.
+    */
+    public void remove(int categoryId, long cents) {
+        sums[categoryId] -= cents;
+        counts[categoryId]--;
+        if (counts[categoryId] == 0) {
+            minimums[categoryId] = 0L;
+            maximums[categoryId] = 0L;
+            staleExtremes[categoryId] = false;
+        } else if (cents == minimums[categoryId] || cents == maximums[categoryId]) {
+            staleExtremes[categoryId] = true;
+        }
+    }
+
+    /**
+    Gets the total amount of a category.
+    @param categoryId The dense category id.
+    @return The total in cents.
+    */
+    public long sum(int categoryId) {
+        return categoryId < sums.length ? sums[categoryId] : 0L;
+    }
+
+    /**
+    Gets the total amount across every category.
+    @return The total in cents.
+    */
+    public long total() {
+        long total = 0L;
+        for (long sum : sums) {
+            total += sum;
+        }
+        return total;
+    }
+
+    /**
+    Gets the number of rows of a category.
+    @param categoryId The dense category id.
+    @return The number of rows.
+    */
+    public int count(int categoryId) {
+        return categoryId < counts.length ? counts[categoryId] : 0;
+    }
+
+    /**
+    Gets the smallest amount of a category. Only valid while the extremes are not stale.
+    @param categoryId The dense category id.
+    @return The minimum in cents, or 0 if the category has no rows.
+    */
+    public long minimum(int categoryId) {
+        return categoryId < minimums.length ? minimums[categoryId] : 0L;
+    }
+
+    /**
+    Gets the largest amount of a category. Only valid while the extremes are not stale.
+    @param categoryId The dense category id.
+    @return The maximum in cents, or 0 if the category has no rows.
+    */
+    public long maximum(int categoryId) {
+        return categoryId < maximums.length ? maximums[categoryId] : 0L;
+    }
+
+    /**
+    Checks whether a category's minimum and maximum must be recomputed.
+    @param categoryId The dense category id.
+    @return True if the extremes are stale.
+    */
+    public boolean hasStaleExtremes(int categoryId) {
+        return categoryId < staleExtremes.length && staleExtremes[categoryId];
+    }
+
+    /**
+    Stores recomputed extremes for a category.
+    @param categoryId The dense category id.
+    @param minimum The smallest amount in cents.
+    @param maximum The largest amount in cents.
+    */
+    public void setExtremes(int categoryId, long minimum, long maximum) {
+        minimums[categoryId] = minimum;
+        maximums[categoryId] = maximum;
+        staleExtremes[categoryId] = false;
+    }
+
+    /**
+    Grows the per-category arrays so they can hold the given id.
+    */
+    private void ensureCategory(int categoryId) {
+        if (categoryId < sums.length) {
+            return;
+        }
+        int newLength = Math.max(categoryId + 1, sums.length * 2);
+        sums = Arrays.copyOf(sums, newLength);
+        counts = Arrays.copyOf(counts, newLength);
+        minimums = Arrays.copyOf(minimums, newLength);
+        maximums = Arrays.copyOf(maximums, newLength);
+        staleExtremes = Arrays.copyOf(staleExtremes, newLength);
+    }
+}
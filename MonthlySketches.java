@@ -0,0 +1,105 @@
+/**
+  Description: The MonthlySketches class keeps, for every category id of one month, a TDigest of
+			  the amounts and a HyperLogLog of the merchants, taken from the descriptions. Both
+			  are updated in constant time as rows are added. Neither sketch can forget a value,
+			  so changing or removing a row marks the month's sketches as stale and the owning
+			  partition rebuilds them from its rows on the next read.
+*/
+
+import java.util.Arrays;
+
+public class MonthlySketches {
+    private TDigest[] amounts; // Digest of the amounts in cents per category id, or null if unused
+    private HyperLogLog[] merchants; // Distinct merchants per category id, or null if unused
+    private boolean stale; // True when a change or removal made the sketches overcount
+
+    /**
+    Constructs empty sketches.
+    */
+    public MonthlySketches() {
+        this.amounts = new TDigest[0];
+        this.merchants = new HyperLogLog[0];
+    }
+
+    /**
+    Constructs an independent copy of other sketches.
+    @param other The sketches to copy.
+    */
+    public MonthlySketches(MonthlySketches other) {
+        this.amounts = new TDigest[other.amounts.length];
+        this.merchants = new HyperLogLog[other.merchants.length];
+        for (int id = 0; id < amounts.length; id++) {
+            amounts[id] = other.amounts[id] == null ? null : new TDigest(other.amounts[id]);
+            merchants[id] = other.merchants[id] == null ? null : new HyperLogLog(other.merchants[id]);
+        }
+        this.stale = other.stale;
+    }
+
+    /**
+    Records a new row. Does nothing while the sketches are stale, since they will be rebuilt.
+    @param categoryId The dense category id of the row.
+    @param cents The amount of the row in cents.
+    @param description The description of the row, used as its merchant; may be null.
+    */
+    public void add(int categoryId, long cents, String description) {
+        if (stale) {
+            return;
+        }
+        if (categoryId >= amounts.length) {
+            amounts = Arrays.copyOf(amounts, categoryId + 1);
+            merchants = Arrays.copyOf(merchants, categoryId + 1);
+        }
+        if (amounts[categoryId] == null) {
+            amounts[categoryId] = new TDigest();
+            merchants[categoryId] = new HyperLogLog();
+        }
+        amounts[categoryId].add(cents);
+        merchants[categoryId].add(description);
+    }
+
+    /**
+    Marks the sketches as stale after a row was changed or removed.
+    */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+    Checks whether the sketches must be rebuilt before they are read.
+    @return True if a row was changed or removed since the last rebuild.
+    */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+    Empties the sketches so they can be rebuilt from the month's rows.
+    */
+    public void reset() {
+        amounts = new TDigest[0];
+        merchants = new HyperLogLog[0];
+        stale = false;
+    }
+
+    /**
+    Merges one category's amount digest into another digest.
+    @param categoryId The dense category id.
+    @param target The digest to add this month's amounts to.
+    */
+    public void mergeAmounts(int categoryId, TDigest target) {
+        if (categoryId < amounts.length && amounts[categoryId] != null) {
+            target.add(amounts[categoryId]);
+        }
+    }
+
+    /**
+    Merges one category's merchant sketch into another sketch.
+    @param categoryId The dense category id.
+    @param target The sketch to add this month's merchants to.
+    */
+    public void mergeMerchants(int categoryId, HyperLogLog target) {
+        if (categoryId < merchants.length && merchants[categoryId] != null) {
+            target.add(merchants[categoryId]);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+  Description: The OrderStatistics class finds exact order statistics of amounts in cents without
+			  sorting. Quickselect partitions the array in place around a median-of-three pivot
+			  until the requested rank is in position, which takes linear time on average.
+			  Percentiles interpolate linearly between the two closest ranks.
+*/
+
+public final class OrderStatistics {
+
+    private OrderStatistics() {
+    }
+
+    /**
+    Computes an exact percentile of the first count values. The values are reordered.
+    @param values The values, in cents.
+    @param count How many leading values to use.
+    @param percentile The percentile between 0 and 100; 50 is the median.
+    @return The percentile in cents, or 0 if count is zero.
+    @throws IllegalArgumentException If the percentile is outside 0 to 100.
+    */
+    public static double percentile(long[] values, int count, double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        double rank = percentile / 100.0 * (count - 1);
+        int lower = (int) Math.floor(rank);
+        long lowerValue = select(values, 0, count, lower);
+        if (lower == count - 1 || rank == lower) {
+            return lowerValue;
+        }
+        // After selecting, every value right of lower is at least lowerValue, so the next rank is their minimum
+        long upperValue = Long.MAX_VALUE;
+        for (int i = lower + 1; i < count; i++) {
+            upperValue = Math.min(upperValue, values[i]);
+        }
+        return lowerValue + (upperValue - lowerValue) * (rank - lower);
+    }
+
+    /**
+    Moves the value of the given rank within a range into its sorted position. Smaller or
+    equal values end up to its left and larger or equal values to its right.
+    @param values The values to reorder.
+    @param from The first index of the range.
+    @param to One past the last index of the range.
+    @param rank The zero-based rank to select, between from and to.
+    @return The value of that rank.
+    */
+    public static long select(long[] values, int from, int to, int rank) {
+        int low = from;
+        int high = to - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            // Median of three keeps already sorted months from degrading to quadratic time
+            if (values[middle] < values[low]) {
+                swap(values, middle, low);
+            }
+            if (values[high] < values[low]) {
+                swap(values, high, low);
+            }
+            if (values[high] < values[middle]) {
+                swap(values, high, middle);
+            }
+            long pivot = values[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(values, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (rank <= j) {
+                high = j;
+            } else if (rank >= i) {
+                low = i;
+            } else {
+                break;
+            }
+        }
+        return values[rank];
+    }
+
+    private static void swap(long[] values, int a, int b) {
+        long swap = values[a];
+        values[a] = values[b];
+        values[b] = swap;
+    }
+}
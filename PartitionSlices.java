@@ -0,0 +1,91 @@
+/**
+  Description: The PartitionSlices class lays a run of contiguous slot ranges, one per month
+			  partition, end to end as a single sequence of positions. Parallel readers split
+			  that sequence evenly by position without caring where one month ends and the
+			  next begins, then map each position back to a partition and slot. Positions
+			  count slots, so deleted rows that have not been compacted yet are included and
+			  must be skipped by the reader.
+*/
+
+import java.util.Arrays;
+import java.util.Collection;
+
+public class PartitionSlices {
+    private final ExpensePartition[] partitions; // The partition of each slice
+    private final int[] firstSlots; // The first slot of each slice within its partition
+    private final int[] starts; // Position of each slice's first slot; the last entry is the total
+
+    /**
+    Builds the slices of the given partitions that fall within an inclusive day range.
+    @param candidates Partitions in month order.
+    @param startDay The first epoch day to include.
+    @param endDay The last epoch day to include.
+    */
+    public PartitionSlices(Collection<ExpensePartition> candidates, long startDay, long endDay) {
+        int count = candidates.size();
+        ExpensePartition[] sliced = new ExpensePartition[count];
+        int[] from = new int[count];
+        int[] positions = new int[count + 1];
+        int slices = 0;
+        for (ExpensePartition partition : candidates) {
+            int first = partition.lowerBound(startDay);
+            int last = partition.upperBound(endDay);
+            if (first < last) {
+                sliced[slices] = partition;
+                from[slices] = first;
+                positions[slices + 1] = positions[slices] + (last - first);
+                slices++;
+            }
+        }
+        this.partitions = Arrays.copyOf(sliced, slices);
+        this.firstSlots = Arrays.copyOf(from, slices);
+        this.starts = Arrays.copyOf(positions, slices + 1);
+    }
+
+    /**
+    Gets the number of positions across every slice.
+    @return The total slot count.
+    */
+    public int size() {
+        return starts[partitions.length];
+    }
+
+    /**
+    Finds the slice holding a position.
+    @param position A position between 0 and size() - 1.
+    @return The slice index.
+    */
+    public int sliceAt(int position) {
+        // Empty slices are never kept, so slice starts are strictly increasing
+        int slice = Arrays.binarySearch(starts, 0, partitions.length, position);
+        return slice >= 0 ? slice : -slice - 2;
+    }
+
+    /**
+    Gets the partition of a slice.
+    @param slice The slice index.
+    @return The partition.
+    */
+    public ExpensePartition partition(int slice) {
+        return partitions[slice];
+    }
+
+    /**
+    Gets the position one past the end of a slice.
+    @param slice The slice index.
+    @return The end position.
+    */
+    public int end(int slice) {
+        return starts[slice + 1];
+    }
+
+    /**
+    Maps a position inside a slice to its partition slot.
+    @param slice The slice index.
+    @param position A position inside the slice.
+    @return The slot within the slice's partition.
+    */
+    public int slot(int slice, int position) {
+        return firstSlots[slice] + position - starts[slice];
+    }
+}
@@ -0,0 +1,146 @@
+/**
+  Description: The RangeSumTree class keeps one Binary Indexed (Fenwick) tree of cent totals per
+			  category, indexed by epoch day. Adding or removing an amount and summing any
+			  inclusive range of days both take O(log n) in the number of days covered, so
+			  totals over arbitrary periods, such as rolling budgets or "spent since payday",
+			  need no scan of the rows. The covered days start around the first date added and
+			  double whenever a date falls outside them, up to MAX_SPAN days; the store only
+			  accepts dates within a window well inside that, so each tree stays a few megabytes.
+			  Only the live store keeps a tree; snapshots never read it, so it is updated in place
+			  and never copied.
+*/
+
+import java.util.Arrays;
+
+public class RangeSumTree {
+    public static final int MAX_SPAN = 1 << 20; // Most days a tree may cover, about 2,870 years
+    private static final int INITIAL_SPAN = 512; // Days covered before the first growth
+
+    private long[][] trees; // Fenwick array per dense category id, 1-based, or null if unused
+    private int originDay; // Epoch day of the first covered day
+    private int span; // Number of covered days, a power of two
+
+    /**
+    Constructs an empty tree that covers no days yet.
+    */
+    public RangeSumTree() {
+        this.trees = new long[0][];
+    }
+
+    /**
+    Adds an amount to a category's total for a day. Pass a negative amount to take one away.
+    @param categoryId The dense category id.
+    @param epochDay The day as an epoch day.
+    @param cents The amount in cents.
+    @throws IllegalArgumentException If covering the day would take more than MAX_SPAN days. Nothing is changed then.
+    */
+    public void add(int categoryId, int epochDay, long cents) {
+        cover(epochDay);
+        if (categoryId >= trees.length) {
+            trees = Arrays.copyOf(trees, categoryId + 1);
+        }
+        if (trees[categoryId] == null) {
+            trees[categoryId] = new long[span + 1];
+        }
+        long[] tree = trees[categoryId];
+        for (int i = epochDay - originDay + 1; i <= span; i += i & -i) {
+            tree[i] += cents;
+        }
+    }
+
+    /**
+    Sums a category's amounts over an inclusive range of days.
+    @param categoryId The dense category id.
+    @param startDay The first epoch day.
+    @param endDay The last epoch day.
+    @return The total in cents.
+    */
+    public long sum(int categoryId, long startDay, long endDay) {
+        if (categoryId >= trees.length || trees[categoryId] == null) {
+            return 0L;
+        }
+        long from = Math.max(startDay, originDay);
+        long to = Math.min(endDay, (long) originDay + span - 1);
+        if (from > to) {
+            return 0L;
+        }
+        long[] tree = trees[categoryId];
+        return prefix(tree, (int) (to - originDay + 1)) - prefix(tree, (int) (from - originDay));
+    }
+
+    /**
+    Sums every category's amounts over an inclusive range of days.
+    @param startDay The first epoch day.
+    @param endDay The last epoch day.
+    @return The total in cents.
+    */
+    public long sum(long startDay, long endDay) {
+        long total = 0L;
+        for (int id = 0; id < trees.length; id++) {
+            total += sum(id, startDay, endDay);
+        }
+        return total;
+    }
+
+    /**
+    Sums the first count covered days of one tree.
+    */
+    private static long prefix(long[] tree, int count) {
+        long total = 0L;
+        for (int i = count; i > 0; i -= i & -i) {
+            total += tree[i];
+        }
+        return total;
+    }
+
+    /**
+    Widens the covered days to include the given day, rebuilding every tree in linear time.
+    Fails before changing anything if the wider span would exceed MAX_SPAN.
+    */
+    private void cover(int epochDay) {
+        if (span == 0) {
+            span = INITIAL_SPAN;
+            originDay = epochDay - INITIAL_SPAN / 4; // Expenses mostly arrive in date order, so most room is left ahead
+            return;
+        }
+        if (epochDay >= originDay && epochDay - originDay < span) {
+            return;
+        }
+        long low = Math.min(originDay, epochDay);
+        long high = Math.max((long) originDay + span, (long) epochDay + 1);
+        if (high - low > MAX_SPAN) {
+            throw new IllegalArgumentException("Dates span more than " + MAX_SPAN + " days.");
+        }
+        int newSpan = span;
+        while (newSpan < high - low) {
+            newSpan *= 2;
+        }
+        newSpan = Math.min(newSpan * 2, MAX_SPAN); // Leaves as much room again, so growing stays rare
+        int newOrigin = epochDay < originDay ? (int) (high - newSpan) : originDay;
+        int shift = originDay - newOrigin;
+        for (int id = 0; id < trees.length; id++) {
+            long[] tree = trees[id];
+            if (tree == null) {
+                continue;
+            }
+            // Undoes the tree into per-day amounts, then builds the wider tree from them
+            for (int i = span; i > 0; i--) {
+                int parent = i + (i & -i);
+                if (parent <= span) {
+                    tree[parent] -= tree[i];
+                }
+            }
+            long[] widened = new long[newSpan + 1];
+            System.arraycopy(tree, 1, widened, shift + 1, span);
+            for (int i = 1; i <= newSpan; i++) {
+                int parent = i + (i & -i);
+                if (parent <= newSpan) {
+                    widened[parent] += widened[i];
+                }
+            }
+            trees[id] = widened;
+        }
+        originDay = newOrigin;
+        span = newSpan;
+    }
+}
@@ -1,3 +1,4 @@
+import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -32,12 +33,13 @@ public class ReportManager {
     
     public String generateMonthlySummaryReport(YearMonth month) {
 
-        // Filters expenses to include only those from the specified month
-        List<Expense> monthlyExpenses = expenseManager.getAllExpenses().stream()
-            .filter(expense -> YearMonth.from(expense.getDate()).equals(month))
-            .collect(Collectors.toList());
+        // Pins one snapshot so every line and total comes from the same state, even during imports
+        ExpenseSnapshot snapshot = expenseManager.snapshot();
+
+        // Reads only the expenses stored for the specified month
+        List<Expense> monthlyExpenses = snapshot.getExpensesForMonth(month);
             
-        List<String> categories = expenseManager.getPredefinedCategories();
+        List<String> categories = snapshot.getCategories();
         StringBuilder report = new StringBuilder();
         
         report.append("Monthly Report for ").append(month.toString()).append("\n\n");
@@ -51,8 +53,8 @@ public class ReportManager {
             
             categoryExpenses.forEach(expense -> report.append(expense.toString()).append("\n"));
             
-            double categoryBudget = budgetManager.getBudget(category, month);
-            double categorySpent = budgetManager.calculateTotalExpensesByCategory(category, month);
+            double categoryBudget = snapshot.getBudget(category, month);
+            double categorySpent = snapshot.calculateMonthlyExpensesByCategory(category, month);
 
         // Adds budget and spending information for the category
             
@@ -62,8 +64,8 @@ public class ReportManager {
                   .append(" Expenses: ").append(categorySpent).append("\n\n");
         });
         
-        report.append("Total Budget: ").append(getTotalBudget(month))
-              .append(" | Total Expenses: ").append(getTotalExpenses(month));
+        report.append("Total Budget: ").append(snapshot.getTotalBudget(month))
+              .append(" | Total Expenses: ").append(snapshot.calculateMonthlyTotal(month));
         
         return report.toString();
     }
@@ -78,11 +80,38 @@ public class ReportManager {
     
     public double getTotalExpenses(YearMonth month) {
 
-        // Sums the amounts of all expenses in the specified month
-        return expenseManager.getAllExpenses().stream()
-            .filter(expense -> YearMonth.from(expense.getDate()).equals(month))
-            .mapToDouble(Expense::getAmount)
-            .sum();
+        // Reads the exact cent total of the specified month
+        return Money.toAmount(expenseManager.calculateMonthlyTotalCents(month));
+    }
+
+    
+
+    /**
+     * Calculates the total expenses for a custom period, such as a pay period or a rolling window.
+     * @param start The first date of the period.
+     * @param end The last date of the period.
+     * @return The total expenses within the period.
+     */
+    
+    public double getTotalExpenses(LocalDate start, LocalDate end) {
+
+        // Reads the period's total from the per-day range sums instead of filtering expenses
+        return expenseManager.sumByDateRange(start, end);
+    }
+
+    
+
+    /**
+     * Calculates each category's total expenses for a custom period.
+     * @param start The first date of the period.
+     * @param end The last date of the period.
+     * @return A map of categories to their total spending within the period.
+     */
+    
+    public Map<String, Double> getCategoryTotals(LocalDate start, LocalDate end) {
+
+        // Every category's total is one logarithmic range query, all read under the same lock
+        return expenseManager.rangeTotalsByCategory(start, end);
     }
 
     
@@ -95,9 +124,8 @@ public class ReportManager {
     
     public double getTotalBudget(YearMonth month) {
 
-        // Sums all category budgets for the specified month
-        Map<String, Double> budgets = budgetManager.getAllBudgets(month);
-        return budgets.values().stream().mapToDouble(Double::doubleValue).sum();
+        // Sums all category budgets for the specified month as exact cents
+        return Money.toAmount(budgetManager.getTotalBudgetCents(month));
     }
 
     
@@ -109,14 +137,54 @@ public class ReportManager {
      */
     
     public Map<String, Double> getCategoryWiseSpending(YearMonth month) {
-        Map<String, Double> spendingByCategory = new HashMap<>();
-        List<String> categories = expenseManager.getPredefinedCategories();
-    // Loops through each category to calculate spending
-        for (String category : categories) {
-            double totalSpent = budgetManager.calculateTotalExpensesByCategory(category, month);
-            spendingByCategory.put(category, totalSpent);
+        // Reads every category's total from the running monthly aggregate
+        return expenseManager.getMonthlyTotalsByCategory(month);
+    }
+
+    
+
+    /**
+     * Estimates expense-size percentiles, such as p50, p90 and p99, and the number of distinct
+     * merchants for a category over a span of months.
+     * @param category The category to sketch, or null for every category.
+     * @param start The first month of the span.
+     * @param end The last month of the span.
+     * @return The approximate spending sketch.
+     */
+    
+    public SpendingSketch getSpendingSketch(String category, YearMonth start, YearMonth end) {
+        // Merges the per-month sketches instead of sorting every expense in the span
+        return expenseManager.getSpendingSketch(category, start, end);
+    }
+
+    
+
+    /**
+     * Estimates spending percentiles and distinct merchants for every category in one month.
+     * @param month The month to sketch.
+     * @return A map of categories to their spending sketches.
+     */
+    
+    public Map<String, SpendingSketch> getMonthlySpendingSketches(YearMonth month) {
+        Map<String, SpendingSketch> sketches = new LinkedHashMap<>();
+        for (String category : expenseManager.getCategories()) {
+            sketches.put(category, expenseManager.getSpendingSketch(category, month, month));
         }
+        return sketches;
+    }
 
-        return spendingByCategory;
+    
+
+    /**
+     * Summarizes spending per category over any date range, such as a quarter or a year.
+     * Large ranges are summed in parallel; see ExpenseManager.setParallelThreshold.
+     * @param start The first date of the range.
+     * @param end The last date of the range.
+     * @return A map of categories to their count, total, minimum and maximum.
+     */
+    
+    public Map<String, CategorySummary> getCategorySummaries(LocalDate start, LocalDate end) {
+        // Aggregates the amount and category columns directly instead of streaming expenses
+        return expenseManager.summarizeByCategory(start, end);
     }
 }
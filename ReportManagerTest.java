@@ -80,6 +80,45 @@ public class ReportManagerTest {
         assertEquals(0, spendingByCategory.get("Miscellaneous"), 0.001);
     }
 
+    @Test
+    void testGetCategorySummaries() {
+      
+        Map<String, CategorySummary> summaries =
+            reportManager.getCategorySummaries(LocalDate.of(2024, 1, 6), LocalDate.of(2024, 1, 31));
+
+        assertEquals(1, summaries.get("Food").getCount());
+        assertEquals(20, summaries.get("Food").getTotal(), 0.001);
+        assertEquals(100, summaries.get("Utilities").getMaximum(), 0.001);
+        assertEquals(0, summaries.get("Entertainment").getCount());
+        assertEquals(YearMonth.of(2024, 1), summaries.get("Food").getMonth());
+    }
+
+    @Test
+    void testCustomPeriodTotals() {
+      
+        LocalDate start = LocalDate.of(2024, 1, 6);
+        LocalDate end = LocalDate.of(2024, 1, 24);
+
+        assertEquals(50, reportManager.getTotalExpenses(start, end), 0.001);
+        Map<String, Double> totals = reportManager.getCategoryTotals(start, end);
+        assertEquals(20, totals.get("Food"), 0.001);
+        assertEquals(30, totals.get("Transportation"), 0.001);
+        assertEquals(0, totals.get("Utilities"), 0.001);
+    }
+
+    @Test
+    void testSpendingSketches() {
+      
+        SpendingSketch food = reportManager.getSpendingSketch("Food", YearMonth.of(2024, 1), YearMonth.of(2024, 3));
+
+        assertEquals(2, food.getCount());
+        assertEquals(2, food.getDistinctMerchants());
+        assertEquals(50, food.getPercentile(100), 0.001);
+        Map<String, SpendingSketch> monthly = reportManager.getMonthlySpendingSketches(YearMonth.of(2024, 1));
+        assertEquals(1, monthly.get("Utilities").getCount());
+        assertEquals(0, monthly.get("Entertainment").getCount());
+    }
+
     @Test
     void testGenerateEmptyReport() {
       
@@ -0,0 +1,441 @@
+/**
+  Description: The RoaringBitmap class is a compressed set of expense ids in the style of Roaring
+			  bitmaps. Ids are split into a high key and their low 16 bits; each key's low bits
+			  live in a container that is a sorted array while it holds at most 4096 values and
+			  a 65536-bit bitmap beyond that, so sparse and dense id ranges both stay small.
+			  AND, OR and AND NOT walk the two sets of keys together and combine containers
+			  pairwise, merging sorted arrays or combining bitmap words, so filters over
+			  categories and tags resolve by set algebra instead of testing every row.
+*/
+
+import java.util.Arrays;
+
+public class RoaringBitmap {
+    private static final int ARRAY_LIMIT = 4096; // Largest array container; bigger ones are bitmaps
+    private static final int WORDS = 1 << 16 >>> 6; // Longs in a bitmap container
+
+    private long[] keys; // High bits of the ids in each container, ascending
+    private char[][] arrays; // Sorted low bits of an array container, or null for a bitmap container
+    private long[][] bitmaps; // Bits of a bitmap container, or null for an array container
+    private int[] cardinalities; // Number of ids in each container
+    private int size; // Number of containers in use
+
+    /**
+    Constructs an empty bitmap.
+    */
+    public RoaringBitmap() {
+        this.keys = new long[4];
+        this.arrays = new char[4][];
+        this.bitmaps = new long[4][];
+        this.cardinalities = new int[4];
+    }
+
+    /**
+    Constructs an independent copy of another bitmap.
+    @param other The bitmap to copy.
+    */
+    public RoaringBitmap(RoaringBitmap other) {
+        this.keys = Arrays.copyOf(other.keys, Math.max(4, other.size));
+        this.arrays = new char[keys.length][];
+        this.bitmaps = new long[keys.length][];
+        this.cardinalities = Arrays.copyOf(other.cardinalities, keys.length);
+        this.size = other.size;
+        for (int i = 0; i < size; i++) {
+            arrays[i] = other.arrays[i] == null ? null : Arrays.copyOf(other.arrays[i], other.cardinalities[i]);
+            bitmaps[i] = other.bitmaps[i] == null ? null : other.bitmaps[i].clone();
+        }
+    }
+
+    /**
+    Adds an id.
+    @param id The id to add.
+    */
+    public void add(long id) {
+        int index = find(id >>> 16);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, id >>> 16);
+        }
+        char low = (char) id;
+        if (bitmaps[index] != null) {
+            long[] words = bitmaps[index];
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                cardinalities[index]++;
+            }
+            return;
+        }
+        char[] values = arrays[index];
+        int cardinality = cardinalities[index];
+        int position = Arrays.binarySearch(values, 0, cardinality, low);
+        if (position >= 0) {
+            return;
+        }
+        if (cardinality == ARRAY_LIMIT) {
+            bitmaps[index] = toWords(values, cardinality);
+            arrays[index] = null;
+            bitmaps[index][low >>> 6] |= 1L << low;
+            cardinalities[index]++;
+            return;
+        }
+        position = -position - 1;
+        if (cardinality == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, cardinality * 2)));
+            arrays[index] = values;
+        }
+        System.arraycopy(values, position, values, position + 1, cardinality - position);
+        values[position] = low;
+        cardinalities[index]++;
+    }
+
+    /**
+    Removes an id if it is present.
+    @param id The id to remove.
+    */
+    public void remove(long id) {
+        int index = find(id >>> 16);
+        if (index < 0) {
+            return;
+        }
+        char low = (char) id;
+        if (bitmaps[index] != null) {
+            long[] words = bitmaps[index];
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                return;
+            }
+            words[low >>> 6] &= ~bit;
+            if (--cardinalities[index] <= ARRAY_LIMIT) {
+                arrays[index] = toValues(words, cardinalities[index]);
+                bitmaps[index] = null;
+            }
+        } else {
+            int position = Arrays.binarySearch(arrays[index], 0, cardinalities[index], low);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(arrays[index], position + 1, arrays[index], position, cardinalities[index] - position - 1);
+            cardinalities[index]--;
+        }
+        if (cardinalities[index] == 0) {
+            removeContainer(index);
+        }
+    }
+
+    /**
+    Checks whether an id is present.
+    @param id The id to look for.
+    @return True if the bitmap holds the id.
+    */
+    public boolean contains(long id) {
+        int index = find(id >>> 16);
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) id;
+        if (bitmaps[index] != null) {
+            return (bitmaps[index][low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch(arrays[index], 0, cardinalities[index], low) >= 0;
+    }
+
+    /**
+    Counts the ids in the bitmap.
+    @return The number of ids.
+    */
+    public long cardinality() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    /**
+    Checks whether the bitmap holds no ids.
+    @return True if the bitmap is empty.
+    */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+    Lists the ids in ascending order.
+    @return A new array of the ids.
+    */
+    public long[] toArray() {
+        long[] result = new long[Math.toIntExact(cardinality())];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            long high = keys[i] << 16;
+            if (bitmaps[i] != null) {
+                long[] words = bitmaps[i];
+                for (int word = 0; word < WORDS; word++) {
+                    for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                        result[count++] = high | (word << 6) | Long.numberOfTrailingZeros(bits);
+                    }
+                }
+            } else {
+                for (int j = 0; j < cardinalities[i]; j++) {
+                    result[count++] = high | arrays[i][j];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+    Intersects two bitmaps.
+    @param a The first bitmap.
+    @param b The second bitmap.
+    @return A new bitmap of the ids in both.
+    */
+    public static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                if (a.bitmaps[i] == null && b.bitmaps[j] == null) {
+                    char[] values = new char[Math.min(a.cardinalities[i], b.cardinalities[j])];
+                    int count = intersect(a.arrays[i], a.cardinalities[i], b.arrays[j], b.cardinalities[j], values);
+                    result.appendArray(a.keys[i], values, count);
+                } else {
+                    long[] words = a.words(i);
+                    long[] other = b.words(j);
+                    for (int w = 0; w < WORDS; w++) {
+                        words[w] &= other[w];
+                    }
+                    result.appendWords(a.keys[i], words);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+    Unites two bitmaps.
+    @param a The first bitmap.
+    @param b The second bitmap.
+    @return A new bitmap of the ids in either.
+    */
+    public static RoaringBitmap or(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.appendCopy(a, i++);
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.appendCopy(b, j++);
+            } else {
+                if (a.bitmaps[i] == null && b.bitmaps[j] == null
+                        && a.cardinalities[i] + b.cardinalities[j] <= ARRAY_LIMIT) {
+                    char[] values = new char[a.cardinalities[i] + b.cardinalities[j]];
+                    int count = unite(a.arrays[i], a.cardinalities[i], b.arrays[j], b.cardinalities[j], values);
+                    result.appendArray(a.keys[i], values, count);
+                } else {
+                    long[] words = a.words(i);
+                    long[] other = b.words(j);
+                    for (int w = 0; w < WORDS; w++) {
+                        words[w] |= other[w];
+                    }
+                    result.appendWords(a.keys[i], words);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+    Subtracts one bitmap from another.
+    @param a The bitmap to subtract from.
+    @param b The bitmap of ids to leave out.
+    @return A new bitmap of the ids in a but not in b.
+    */
+    public static RoaringBitmap andNot(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            while (j < b.size && b.keys[j] < a.keys[i]) {
+                j++;
+            }
+            if (j == b.size || b.keys[j] != a.keys[i]) {
+                result.appendCopy(a, i);
+            } else if (a.bitmaps[i] == null && b.bitmaps[j] == null) {
+                char[] values = new char[a.cardinalities[i]];
+                int count = subtract(a.arrays[i], a.cardinalities[i], b.arrays[j], b.cardinalities[j], values);
+                result.appendArray(a.keys[i], values, count);
+            } else {
+                long[] words = a.words(i);
+                long[] other = b.words(j);
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] &= ~other[w];
+                }
+                result.appendWords(a.keys[i], words);
+            }
+        }
+        return result;
+    }
+
+    private static int intersect(char[] a, int aCount, char[] b, int bCount, char[] target) {
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < aCount && j < bCount) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                target[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static int unite(char[] a, int aCount, char[] b, int bCount, char[] target) {
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < aCount || j < bCount) {
+            if (j == bCount || (i < aCount && a[i] < b[j])) {
+                target[count++] = a[i++];
+            } else if (i == aCount || a[i] > b[j]) {
+                target[count++] = b[j++];
+            } else {
+                target[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static int subtract(char[] a, int aCount, char[] b, int bCount, char[] target) {
+        int j = 0;
+        int count = 0;
+        for (int i = 0; i < aCount; i++) {
+            while (j < bCount && b[j] < a[i]) {
+                j++;
+            }
+            if (j == bCount || b[j] != a[i]) {
+                target[count++] = a[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+    Gets a container's bits as a new word array.
+    */
+    private long[] words(int index) {
+        return bitmaps[index] != null ? bitmaps[index].clone() : toWords(arrays[index], cardinalities[index]);
+    }
+
+    private static long[] toWords(char[] values, int count) {
+        long[] words = new long[WORDS];
+        for (int i = 0; i < count; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private static char[] toValues(long[] words, int count) {
+        char[] values = new char[count];
+        int position = 0;
+        for (int word = 0; word < WORDS; word++) {
+            for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                values[position++] = (char) ((word << 6) | Long.numberOfTrailingZeros(bits));
+            }
+        }
+        return values;
+    }
+
+    /**
+    Appends a copy of another bitmap's container. Keys must be appended in ascending order.
+    */
+    private void appendCopy(RoaringBitmap other, int index) {
+        if (other.bitmaps[index] != null) {
+            appendContainer(other.keys[index], null, other.bitmaps[index].clone(), other.cardinalities[index]);
+        } else {
+            appendArray(other.keys[index], Arrays.copyOf(other.arrays[index], other.cardinalities[index]),
+                other.cardinalities[index]);
+        }
+    }
+
+    private void appendArray(long key, char[] values, int count) {
+        if (count > 0) {
+            appendContainer(key, values, null, count);
+        }
+    }
+
+    private void appendWords(long key, long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        if (count > ARRAY_LIMIT) {
+            appendContainer(key, null, words, count);
+        } else if (count > 0) {
+            appendContainer(key, toValues(words, count), null, count);
+        }
+    }
+
+    private void appendContainer(long key, char[] values, long[] words, int count) {
+        insertContainer(size, key);
+        arrays[size - 1] = values;
+        bitmaps[size - 1] = words;
+        cardinalities[size - 1] = count;
+    }
+
+    /**
+    Finds a container by key.
+    @return The container's index, or -(insertion point) - 1 if there is none.
+    */
+    private int find(long key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, long key) {
+        if (size == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            arrays = Arrays.copyOf(arrays, capacity);
+            bitmaps = Arrays.copyOf(bitmaps, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        int tail = size - index;
+        System.arraycopy(keys, index, keys, index + 1, tail);
+        System.arraycopy(arrays, index, arrays, index + 1, tail);
+        System.arraycopy(bitmaps, index, bitmaps, index + 1, tail);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, tail);
+        keys[index] = key;
+        arrays[index] = new char[4];
+        bitmaps[index] = null;
+        cardinalities[index] = 0;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        int tail = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, tail);
+        System.arraycopy(arrays, index + 1, arrays, index, tail);
+        System.arraycopy(bitmaps, index + 1, bitmaps, index, tail);
+        System.arraycopy(cardinalities, index + 1, cardinalities, index, tail);
+        size--;
+        arrays[size] = null;
+        bitmaps[size] = null;
+    }
+}
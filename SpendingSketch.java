@@ -0,0 +1,110 @@
+/**
+  Description: The SpendingSketch class answers approximate questions about the expenses of one
+			  category, or of every category, over a span of months: quantiles of the expense
+			  sizes, such as p50, p90 and p99, and the number of distinct merchants, taken from
+			  the descriptions. It merges the per-month sketches the store keeps, so it never
+			  holds or sorts the expenses themselves. Sketches of different spans merge into a
+			  sketch of both.
+*/
+
+import java.time.YearMonth;
+
+public class SpendingSketch {
+    private final String category; // The category sketched, or null for every category
+    private final YearMonth start; // The first month sketched
+    private final YearMonth end; // The last month sketched
+    private final TDigest amounts; // Digest of the amounts in cents
+    private final HyperLogLog merchants; // Distinct merchants
+
+    /**
+    Constructs a SpendingSketch that takes ownership of the given sketches, which must not be
+    changed afterwards.
+    @param category The category sketched, or null for every category.
+    @param start The first month sketched.
+    @param end The last month sketched.
+    @param amounts The merged digest of the amounts in cents.
+    @param merchants The merged merchant sketch.
+    */
+    SpendingSketch(String category, YearMonth start, YearMonth end, TDigest amounts, HyperLogLog merchants) {
+        this.category = category;
+        this.start = start;
+        this.end = end;
+        this.amounts = amounts;
+        this.merchants = merchants;
+        amounts.compress(); // Later reads then write nothing, so the sketch can be shared
+    }
+
+    /**
+    Gets the category sketched.
+    @return The category name, or null for every category.
+    */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+    Gets the first month sketched.
+    @return The first month.
+    */
+    public YearMonth getStart() {
+        return start;
+    }
+
+    /**
+    Gets the last month sketched.
+    @return The last month.
+    */
+    public YearMonth getEnd() {
+        return end;
+    }
+
+    /**
+    Gets the number of expenses sketched.
+    @return The exact number of expenses.
+    */
+    public long getCount() {
+        return amounts.count();
+    }
+
+    /**
+    Estimates a percentile of the expense sizes.
+    @param percentile The percentile between 0 and 100, such as 90 for p90.
+    @return The estimated amount, or 0 if there are no expenses.
+    @throws IllegalArgumentException If the percentile is outside 0 to 100.
+    */
+    public double getPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        if (amounts.count() == 0) {
+            return 0.0;
+        }
+        return Money.toAmount(Math.round(amounts.quantile(percentile / 100)));
+    }
+
+    /**
+    Estimates the number of distinct merchants.
+    @return The estimated count.
+    */
+    public long getDistinctMerchants() {
+        return merchants.estimate();
+    }
+
+    /**
+    Merges this sketch with another, such as two quarters into a half year. Neither sketch
+    is changed. The result spans from the earlier start to the later end, and has no category
+    unless both sketches are of the same one.
+    @param other The sketch to merge with.
+    @return A new sketch of both.
+    */
+    public SpendingSketch merge(SpendingSketch other) {
+        TDigest mergedAmounts = new TDigest(amounts);
+        HyperLogLog mergedMerchants = new HyperLogLog(merchants);
+        mergedAmounts.add(other.amounts);
+        mergedMerchants.add(other.merchants);
+        String mergedCategory = category != null && category.equals(other.category) ? category : null;
+        YearMonth mergedStart = start.isBefore(other.start) ? start : other.start;
+        YearMonth mergedEnd = end.isAfter(other.end) ? end : other.end;
+        return new SpendingSketch(mergedCategory, mergedStart, mergedEnd, mergedAmounts, mergedMerchants);
+    }
+}
@@ -0,0 +1,350 @@
+/**
+  Description: The StatementParseTask class parses a range of chunks of a transaction file, each a
+			  newline-aligned byte range, into expenses. It is a fork/join task: a range of
+			  several chunks is split in half and the halves' results are merged in file order,
+			  so a large statement is parsed on every core of the pool. Each chunk is read with
+			  one positional read and parsed straight from its bytes; commas and newlines are
+			  ASCII and never occur inside a multi-byte UTF-8 character, so fields are found
+			  without decoding whole lines. Line numbers are counted per chunk and shifted when
+			  results merge, and only a sample of the errors is kept next to their counts.
+*/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+public class StatementParseTask extends RecursiveTask<StatementParseTask.Chunk> {
+    private static final long serialVersionUID = 1L;
+    public static final int MAX_ERROR_SAMPLES = 100; // Errors kept word for word; the rest are only counted
+    private static final int SCAN_BYTES = 4096; // Bytes read at a time while looking for a chunk's end
+
+    private final FileChannel channel; // The file, read with positional reads only
+    private final long[] boundaries; // Start of every chunk, then the file size
+    private final int origin; // First chunk of this task's range
+    private final int fence; // One past the last chunk of this task's range
+    private final List<String> categoryNames; // Registered category names, matched ignoring case
+
+    /**
+    Constructs a task over a range of chunks.
+    @param channel The open file.
+    @param boundaries The chunk starts followed by the file size, as returned by split.
+    @param origin The first chunk to parse.
+    @param fence One past the last chunk to parse.
+    @param categoryNames The registered category names.
+    */
+    public StatementParseTask(FileChannel channel, long[] boundaries, int origin, int fence, List<String> categoryNames) {
+        this.channel = channel;
+        this.boundaries = boundaries;
+        this.origin = origin;
+        this.fence = fence;
+        this.categoryNames = categoryNames;
+    }
+
+    /**
+    Splits a file into chunks of about the given size, each ending just after a newline or at
+    the end of the file.
+    @param channel The open file.
+    @param chunkBytes The target size of a chunk.
+    @return The start of every chunk, followed by the file size.
+    @throws IOException If the file cannot be read.
+    */
+    public static long[] split(FileChannel channel, long chunkBytes) throws IOException {
+        long size = channel.size();
+        List<Long> starts = new ArrayList<>();
+        starts.add(0L);
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BYTES);
+        long start = 0L;
+        while (size - start > chunkBytes) {
+            long next = nextLineStart(channel, start + chunkBytes - 1, size, scan);
+            if (next >= size) {
+                break;
+            }
+            starts.add(next);
+            start = next;
+        }
+        long[] boundaries = new long[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++) {
+            boundaries[i] = starts.get(i);
+        }
+        boundaries[starts.size()] = size;
+        return boundaries;
+    }
+
+    /**
+    Finds the position just after the first newline at or after a position.
+    */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer scan) throws IOException {
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    @Override
+    protected Chunk compute() {
+        if (fence - origin <= 1) {
+            return origin < fence ? parse(boundaries[origin], boundaries[origin + 1]) : new Chunk();
+        }
+        int middle = (origin + fence) >>> 1;
+        StatementParseTask left = new StatementParseTask(channel, boundaries, origin, middle, categoryNames);
+        StatementParseTask right = new StatementParseTask(channel, boundaries, middle, fence, categoryNames);
+        right.fork();
+        Chunk chunk = left.compute();
+        chunk.append(right.join());
+        return chunk;
+    }
+
+    /**
+    Reads and parses one chunk.
+    */
+    private Chunk parse(long from, long to) {
+        byte[] bytes = new byte[Math.toIntExact(to - from)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    throw new IOException("File ended while reading it.");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Chunk chunk = new Chunk();
+        int lineStart = 0;
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            chunk.lines++;
+            parseLine(bytes, lineStart, lineEnd, chunk);
+            lineStart = next;
+        }
+        return chunk;
+    }
+
+    /**
+    Parses one line, without its line break, into an expense or an error.
+    */
+    private void parseLine(byte[] bytes, int from, int to, Chunk chunk) {
+        try {
+            if (isBlank(bytes, from, to)) {
+                return;
+            }
+            // Matches String.split, which drops trailing empty fields
+            while (to > from && bytes[to - 1] == ',') {
+                to--;
+            }
+            int[] commas = new int[3];
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (bytes[i] == ',') {
+                    if (count == commas.length) {
+                        count++;
+                        break;
+                    }
+                    commas[count++] = i;
+                }
+            }
+            if (count != 3) {
+                chunk.error("Invalid number of fields", "Invalid number of fields");
+                return;
+            }
+
+            LocalDate date;
+            try {
+                date = parseDate(bytes, from, commas[0]);
+            } catch (DateTimeException e) {
+                chunk.error("Invalid date format", "Invalid date format");
+                return;
+            }
+            if (!ExpenseStore.isSupportedDate(date)) {
+                chunk.error("Date out of range", "Date out of range - " + date);
+                return;
+            }
+            // Matches the registered categories ignoring case and stores the registered spelling
+            String categoryText = text(bytes, commas[0] + 1, commas[1]);
+            String category = registeredName(categoryText);
+            if (category == null) {
+                chunk.error("Invalid category", "Invalid category - " + categoryText);
+                return;
+            }
+
+            long amountCents;
+            try {
+                amountCents = Money.parse(text(bytes, commas[1] + 1, commas[2]));
+                if (amountCents <= 0) {
+                    throw new NumberFormatException("Amount must be positive");
+                }
+            } catch (NumberFormatException e) {
+                chunk.error("Invalid amount", "Invalid amount");
+                return;
+            }
+
+            String description = text(bytes, commas[2] + 1, to);
+            chunk.expenses.add(Expense.ofCents(date, category, amountCents, description));
+        } catch (RuntimeException e) {
+            chunk.error("Other", e.getMessage());
+        }
+    }
+
+    /**
+    Parses a date field. Plain yyyy-MM-dd dates are read from their digits; anything else goes
+    through LocalDate.parse.
+    */
+    private static LocalDate parseDate(byte[] bytes, int from, int to) {
+        while (from < to && bytes[from] <= ' ') {
+            from++;
+        }
+        while (to > from && bytes[to - 1] <= ' ') {
+            to--;
+        }
+        if (to - from == 10 && bytes[from + 4] == '-' && bytes[from + 7] == '-') {
+            int year = digits(bytes, from, from + 4);
+            int month = digits(bytes, from + 5, from + 7);
+            int day = digits(bytes, from + 8, from + 10);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+    }
+
+    /**
+    Reads a run of ASCII digits.
+    @return The value, or -1 if a byte is not a digit.
+    */
+    private static int digits(byte[] bytes, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+    Finds the registered spelling of a category name, ignoring case.
+    */
+    private String registeredName(String name) {
+        for (String registered : categoryNames) {
+            if (registered.equalsIgnoreCase(name)) {
+                return registered;
+            }
+        }
+        return null;
+    }
+
+    private static String text(byte[] bytes, int from, int to) {
+        return new String(bytes, from, to - from, StandardCharsets.UTF_8).trim();
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+    The expenses and errors of a run of consecutive chunks, in file order.
+    */
+    public static class Chunk {
+        private final List<Expense> expenses = new ArrayList<>();
+        private int lines; // Lines read, including blank and invalid ones
+        private int errors; // Lines rejected
+        private final List<Integer> sampleLines = new ArrayList<>(); // Line numbers of the sampled errors
+        private final List<String> sampleMessages = new ArrayList<>(); // Messages of the sampled errors
+        private final Map<String, Integer> errorCounts = new LinkedHashMap<>(); // Rejected lines per reason
+
+        /**
+        Records an error on the line just read.
+        */
+        void error(String reason, String message) {
+            errors++;
+            errorCounts.merge(reason, 1, Integer::sum);
+            if (sampleLines.size() < MAX_ERROR_SAMPLES) {
+                sampleLines.add(lines);
+                sampleMessages.add(message);
+            }
+        }
+
+        /**
+        Appends the results of the chunks that follow this one in the file.
+        */
+        void append(Chunk next) {
+            expenses.addAll(next.expenses);
+            for (int i = 0; i < next.sampleLines.size() && sampleLines.size() < MAX_ERROR_SAMPLES; i++) {
+                sampleLines.add(lines + next.sampleLines.get(i));
+                sampleMessages.add(next.sampleMessages.get(i));
+            }
+            next.errorCounts.forEach((reason, count) -> errorCounts.merge(reason, count, Integer::sum));
+            errors += next.errors;
+            lines += next.lines;
+        }
+
+        /**
+        Gets the parsed expenses.
+        @return The expenses in file order.
+        */
+        public List<Expense> getExpenses() {
+            return expenses;
+        }
+
+        /**
+        Gets the number of lines rejected.
+        @return The error count.
+        */
+        public int getErrorCount() {
+            return errors;
+        }
+
+        /**
+        Gets the first errors of the file, at most MAX_ERROR_SAMPLES of them.
+        @return Messages such as "Line 7: Invalid amount", in file order.
+        */
+        public List<String> getErrorSample() {
+            List<String> sample = new ArrayList<>();
+            for (int i = 0; i < sampleLines.size(); i++) {
+                sample.add("Line " + sampleLines.get(i) + ": " + sampleMessages.get(i));
+            }
+            return sample;
+        }
+
+        /**
+        Gets the number of lines rejected for each reason.
+        @return Reason to count, in order of first occurrence.
+        */
+        public Map<String, Integer> getErrorCounts() {
+            return errorCounts;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/**
+  Description: The TDigest class is a merging t-digest: a small, mergeable summary of a stream of
+			  amounts that answers quantile queries, such as the median or the 99th percentile,
+			  approximately and without keeping or sorting the amounts. Values are buffered and
+			  periodically merged into centroids, weighted means whose allowed size shrinks
+			  toward the tails, so extreme quantiles stay accurate. Two digests merge by
+			  feeding one's centroids into the other, so monthly digests combine cheaply into
+			  quarters and years.
+*/
+
+import java.util.Arrays;
+
+public class TDigest {
+    public static final double DEFAULT_COMPRESSION = 100; // Bounds the number of centroids to a few times this
+    private static final int INITIAL_BUFFER = 16; // Small, since most month and category digests stay small
+
+    private final double compression; // Larger values keep more centroids and give more accurate quantiles
+    private double[] means; // Centroid means, ascending after a merge
+    private long[] weights; // Number of values in each centroid
+    private int centroids; // Number of centroids in use
+    private double[] bufferMeans; // Values and centroids not merged yet
+    private long[] bufferWeights; // Weights of the buffered entries
+    private int buffered; // Number of buffered entries
+    private final int maximumBuffer; // Buffer size at which the buffer is merged instead of grown
+    private long count; // Number of values summarized
+    private double minimum; // Smallest value summarized
+    private double maximum; // Largest value summarized
+
+    /**
+    Constructs an empty digest with the default compression.
+    */
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+    Constructs an empty digest.
+    @param compression The compression; larger values trade memory for accuracy.
+    @throws IllegalArgumentException If the compression is below 10.
+    */
+    public TDigest(double compression) {
+        if (!(compression >= 10)) {
+            throw new IllegalArgumentException("Compression must be at least 10.");
+        }
+        this.compression = compression;
+        this.maximumBuffer = (int) Math.ceil(compression) * 8;
+        this.means = new double[0];
+        this.weights = new long[0];
+        this.bufferMeans = new double[INITIAL_BUFFER];
+        this.bufferWeights = new long[INITIAL_BUFFER];
+        this.minimum = Double.POSITIVE_INFINITY;
+        this.maximum = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+    Constructs an independent copy of another digest.
+    @param other The digest to copy.
+    */
+    public TDigest(TDigest other) {
+        this.compression = other.compression;
+        this.means = other.means.clone();
+        this.weights = other.weights.clone();
+        this.centroids = other.centroids;
+        this.bufferMeans = other.bufferMeans.clone();
+        this.bufferWeights = other.bufferWeights.clone();
+        this.buffered = other.buffered;
+        this.maximumBuffer = other.maximumBuffer;
+        this.count = other.count;
+        this.minimum = other.minimum;
+        this.maximum = other.maximum;
+    }
+
+    /**
+    Adds a value.
+    @param value The value to add.
+    */
+    public void add(double value) {
+        add(value, 1L);
+    }
+
+    /**
+    Adds the values of another digest to this one. The other digest is not changed.
+    @param other The digest to merge in.
+    */
+    public void add(TDigest other) {
+        if (other.count == 0) {
+            return;
+        }
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        for (int i = 0; i < other.buffered; i++) {
+            add(other.bufferMeans[i], other.bufferWeights[i]);
+        }
+        minimum = Math.min(minimum, other.minimum);
+        maximum = Math.max(maximum, other.maximum);
+    }
+
+    private void add(double mean, long weight) {
+        if (buffered == bufferMeans.length) {
+            if (bufferMeans.length < maximumBuffer) {
+                bufferMeans = Arrays.copyOf(bufferMeans, bufferMeans.length * 2);
+                bufferWeights = Arrays.copyOf(bufferWeights, bufferWeights.length * 2);
+            } else {
+                compress();
+            }
+        }
+        bufferMeans[buffered] = mean;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        count += weight;
+        minimum = Math.min(minimum, mean);
+        maximum = Math.max(maximum, mean);
+    }
+
+    /**
+    Gets the number of values summarized.
+    @return The number of values.
+    */
+    public long count() {
+        return count;
+    }
+
+    /**
+    Estimates a quantile of the values summarized.
+    @param quantile The quantile between 0 and 1, such as 0.5 for the median.
+    @return The estimated value, or NaN if the digest is empty.
+    @throws IllegalArgumentException If the quantile is outside 0 to 1.
+    */
+    public double quantile(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1.");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        compress();
+        if (centroids == 1) {
+            return means[0];
+        }
+        // Each centroid's mean sits at the middle of the ranks it covers; ranks in between are interpolated
+        double rank = quantile * count;
+        double center = weights[0] / 2.0;
+        if (rank <= center) {
+            return interpolate(rank, 0, minimum, center, means[0]);
+        }
+        for (int i = 1; i < centroids; i++) {
+            double next = center + (weights[i - 1] + weights[i]) / 2.0;
+            if (rank <= next) {
+                return interpolate(rank, center, means[i - 1], next, means[i]);
+            }
+            center = next;
+        }
+        return interpolate(rank, center, means[centroids - 1], count, maximum);
+    }
+
+    private static double interpolate(double x, double x0, double y0, double x1, double y1) {
+        return x1 <= x0 ? y1 : y0 + (y1 - y0) * (x - x0) / (x1 - x0);
+    }
+
+    /**
+    Folds the buffered values into the centroids. Neighbours are combined while the combined
+    centroid stays within the size limit at its quantile, which is smallest near 0 and 1.
+    Quantile queries do this first anyway; once it is done they write nothing, so a
+    compressed digest that is no longer added to can be read from several threads.
+    */
+    public void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        int total = centroids + buffered;
+        double[] allMeans = Arrays.copyOf(means, total);
+        long[] allWeights = Arrays.copyOf(weights, allMeans.length);
+        System.arraycopy(bufferMeans, 0, allMeans, centroids, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, centroids, buffered);
+        sortByMean(allMeans, allWeights, total);
+
+        int merged = 0;
+        double seen = 0;
+        double currentMean = allMeans[0];
+        long currentWeight = allWeights[0];
+        for (int i = 1; i < total; i++) {
+            long proposed = currentWeight + allWeights[i];
+            double q0 = seen / count;
+            double q2 = (seen + proposed) / count;
+            double limit = count * 4 * Math.min(q0 * (1 - q0), q2 * (1 - q2)) / compression;
+            if (proposed <= limit) {
+                currentMean += (allMeans[i] - currentMean) * allWeights[i] / proposed;
+                currentWeight = proposed;
+            } else {
+                seen += currentWeight;
+                allMeans[merged] = currentMean;
+                allWeights[merged] = currentWeight;
+                merged++;
+                currentMean = allMeans[i];
+                currentWeight = allWeights[i];
+            }
+        }
+        allMeans[merged] = currentMean;
+        allWeights[merged] = currentWeight;
+        merged++;
+        means = Arrays.copyOf(allMeans, merged);
+        weights = Arrays.copyOf(allWeights, merged);
+        centroids = merged;
+        buffered = 0;
+    }
+
+    /**
+    Sorts the first n entries by mean, keeping each weight with its mean.
+    */
+    private static void sortByMean(double[] means, long[] weights, int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(means[a], means[b]));
+        double[] sortedMeans = new double[n];
+        long[] sortedWeights = new long[n];
+        for (int i = 0; i < n; i++) {
+            sortedMeans[i] = means[order[i]];
+            sortedWeights[i] = weights[order[i]];
+        }
+        System.arraycopy(sortedMeans, 0, means, 0, n);
+        System.arraycopy(sortedWeights, 0, weights, 0, n);
+    }
+}
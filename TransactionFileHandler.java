@@ -1,8 +1,8 @@
 import java.io.*;
-import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Primary Author: Advik Bargoti
@@ -11,7 +11,10 @@ import java.util.List;
  *              managing data integrity and formatting.
  */
 public class TransactionFileHandler {
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024; // Large enough to amortize a task, small enough to balance cores
+    
     private ExpenseManager expenseManager;
+    private int chunkSize = DEFAULT_CHUNK_SIZE; // Target size of the byte ranges parsed in parallel
     
     /**
      * Constructs a TransactionFileHandler with a reference to an ExpenseManager to manage expenses.
@@ -21,93 +24,90 @@ public class TransactionFileHandler {
         this.expenseManager = expenseManager;
     }
     
+    /**
+     * Sets the target size of the byte ranges a file is split into for parsing.
+     * A file no larger than one chunk is parsed on the calling thread.
+     * @param bytes The chunk size in bytes.
+     * @throws IllegalArgumentException If bytes is less than 1.
+     */
+    public void setChunkSize(int bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1.");
+        }
+        this.chunkSize = bytes;
+    }
+    
+    /**
+     * Gets the target size of the byte ranges a file is split into for parsing.
+     * @return The chunk size in bytes.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+    
     /**
      * Imports transactions from a specified file into the ExpenseManager.
-     * This method reads a file line by line, parsing and validating each transaction before adding it to the manager.
+     * The file is split into newline-aligned byte ranges of about getChunkSize() bytes, which are
+     * parsed and validated in parallel on the fork/join common pool. The results are merged in
+     * file order and all valid transactions are added in one batch, so budgets, the GUI and the
+     * data file are refreshed once per import.
+     * Transactions already stored, such as those of an overlapping statement imported before, are
+     * skipped through the store's fingerprint index and counted in the summary. The summary lists
+     * at most the first StatementParseTask.MAX_ERROR_SAMPLES errors, followed by a count per reason.
      * 
      * @param file The file from which transactions are to be imported.
      * @throws IOException If an I/O error occurs reading from the file.
      * @throws TransactionImportException If any error occurs during the import process, including data validation errors.
      */
     public void importTransactions(File file) throws IOException, TransactionImportException {
-        List<String> errorLines = new ArrayList<>();
-        int lineNumber = 0;
-        int successfulImports = 0;
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                try {
-                    if (line.trim().isEmpty()) continue;
-                    
-                    String[] parts = line.split(",");
-                    if (parts.length != 4) {
-                        errorLines.add("Line " + lineNumber + ": Invalid number of fields");
-                        continue;
-                    }
-                    
-                    LocalDate date = LocalDate.parse(parts[0].trim());
-                    String category = parts[1].trim();
-                    if (!ExpenseManager.predefinedCategories.contains(category)) {
-                        errorLines.add("Line " + lineNumber + ": Invalid category - " + category);
-                        continue;
-                    }
-                    
-                    double amount;
-                    try {
-                        amount = Double.parseDouble(parts[2].trim());
-                        if (amount <= 0) {
-                            throw new NumberFormatException("Amount must be positive");
-                        }
-                    } catch (NumberFormatException e) {
-                        errorLines.add("Line " + lineNumber + ": Invalid amount");
-                        continue;
-                    }
-                    
-                    String description = parts[3].trim();
-                    Expense expense = new Expense(date, category, amount, description);
-                    expenseManager.addExpense(expense);
-                    successfulImports++;
-                    
-                } catch (DateTimeParseException e) {
-                    errorLines.add("Line " + lineNumber + ": Invalid date format");
-                } catch (Exception e) {
-                    errorLines.add("Line " + lineNumber + ": " + e.getMessage());
-                }
-            }
+        StatementParseTask.Chunk parsed;
+        List<String> categoryNames = expenseManager.getCategoryRegistry().names();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] boundaries = StatementParseTask.split(channel, chunkSize);
+            StatementParseTask task = new StatementParseTask(channel, boundaries, 0, boundaries.length - 1, categoryNames);
+            parsed = boundaries.length <= 2 ? task.invoke() : ForkJoinPool.commonPool().invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+        List<Expense> importedExpenses = parsed.getExpenses();
+        
+        int successfulImports = expenseManager.addExpensesSkippingDuplicates(importedExpenses).size();
+        int duplicates = importedExpenses.size() - successfulImports;
         
         StringBuilder summary = new StringBuilder();
         summary.append(String.format("Successfully imported %d transactions\n", successfulImports));
-        if (!errorLines.isEmpty()) {
-            summary.append("\nErrors encountered:\n");
-            errorLines.forEach(error -> summary.append(error).append("\n"));
+        if (duplicates > 0) {
+            summary.append(String.format("Skipped %d duplicate transactions\n", duplicates));
         }
-        
-        if (expenseManager.getGuiUpdateCallback() != null) {
-            expenseManager.getGuiUpdateCallback().run();
+        if (parsed.getErrorCount() > 0) {
+            summary.append("\nErrors encountered:\n");
+            parsed.getErrorSample().forEach(error -> summary.append(error).append("\n"));
+            if (parsed.getErrorCount() > parsed.getErrorSample().size()) {
+                summary.append(String.format("...and %d more\n", parsed.getErrorCount() - parsed.getErrorSample().size()));
+                summary.append("\nErrors by reason:\n");
+                parsed.getErrorCounts().forEach((reason, count) -> summary.append(reason).append(": ").append(count).append("\n"));
+            }
         }
         
-        throw new TransactionImportException(summary.toString(), successfulImports > 0);
+        // Rows already stored count as handled, so re-importing a statement is not a failure
+        throw new TransactionImportException(summary.toString(), successfulImports + duplicates > 0);
     }
     
     /**
      * Exports all transactions managed by the ExpenseManager to a specified file.
      * Each transaction is written in a CSV format with the date, category, amount, and description.
+     * The transactions come from one snapshot, so concurrent changes never produce a mixed file.
      * 
      * @param file The file to which transactions are to be exported.
      * @throws IOException If an I/O error occurs writing to the file.
      */
     public void exportTransactions(File file) throws IOException {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (Expense expense : expenseManager.getAllExpenses()) {
-                String line = String.format("%s,%s,%.2f,%s\n",
-                    expense.getDate(),
-                    expense.getCategory(),
-                    expense.getAmount(),
-                    expense.getDescription().replace(",", ";")  // Handle commas in descriptions
-                );
+            for (Expense expense : expenseManager.snapshot().getAllExpenses()) {
+                String line = expense.getDate() + "," +
+                    expense.getCategory() + "," +
+                    Money.format(expense.getAmountCents()) + "," +
+                    expense.getDescription().replace(",", ";") + "\n";  // Handle commas in descriptions
                 writer.write(line);
             }
         }
@@ -123,7 +123,7 @@ public class TransactionFileHandler {
         /**
          * Constructs a TransactionImportException with a message and a success flag.
          * @param message Detailed message about the errors encountered during import.
-         * @param partialSuccess True if some transactions were successfully imported despite errors.
+         * @param partialSuccess True if some transactions were successfully imported, or found already stored, despite errors.
          */
         public TransactionImportException(String message, boolean partialSuccess) {
             super(message);
@@ -131,8 +131,8 @@ public class TransactionFileHandler {
         }
         
         /**
-         * Indicates whether any transactions were successfully imported.
-         * @return True if some transactions were successfully imported, false otherwise.
+         * Indicates whether any transactions were successfully imported or found already stored.
+         * @return True if some transactions were successfully imported or skipped as duplicates, false otherwise.
          */
         public boolean isPartialSuccess() {
             return partialSuccess;
@@ -0,0 +1,174 @@
+/**
+  Description: The ZoneMap class keeps summary metadata for fixed-size blocks of a partition's
+			  slots: the smallest and largest date and amount of each block's live rows and a
+			  bitmask of the category ids they use. A scan asks for the next block that could
+			  hold a match and skips every block whose ranges or categories rule it out, without
+			  reading those rows. For an offloaded partition backed by a mapped file, the pages
+			  of skipped blocks are never touched, so they need not be loaded at all.
+			  The bounds only have to be conservative: an update widens its block, a deleted row
+			  leaves the bounds as they were, and an insert that shifts rows discards the blocks
+			  from the insert on. Discarded blocks are rebuilt the next time a scan needs them.
+*/
+
+import java.util.Arrays;
+
+public class ZoneMap {
+    public static final int BLOCK_SIZE = 256; // Slots per block
+    private static final int BLOCK_SHIFT = 8; // log2 of BLOCK_SIZE
+    private static final int MASK_WORDS = CategoryRegistry.MAX_CATEGORIES / Long.SIZE; // Longs per category bitmask
+
+    private int[] minimumDays; // Earliest epoch day of each block
+    private int[] maximumDays; // Latest epoch day of each block
+    private long[] minimumCents; // Smallest amount of each block
+    private long[] maximumCents; // Largest amount of each block
+    private long[] categoryBits; // MASK_WORDS longs per block, one bit per category id present
+    private int validBlocks; // Blocks before this one describe their rows
+
+    /**
+    Constructs a zone map with no blocks built yet.
+    */
+    public ZoneMap() {
+        this.minimumDays = new int[4];
+        this.maximumDays = new int[4];
+        this.minimumCents = new long[4];
+        this.maximumCents = new long[4];
+        this.categoryBits = new long[4 * MASK_WORDS];
+    }
+
+    /**
+    Constructs a copy of another zone map.
+    @param other The zone map to copy.
+    */
+    public ZoneMap(ZoneMap other) {
+        synchronized (other) {
+            this.minimumDays = other.minimumDays.clone();
+            this.maximumDays = other.maximumDays.clone();
+            this.minimumCents = other.minimumCents.clone();
+            this.maximumCents = other.maximumCents.clone();
+            this.categoryBits = other.categoryBits.clone();
+            this.validBlocks = other.validBlocks;
+        }
+    }
+
+    /**
+    Builds a category bitmask for findCandidate from included category ids.
+    @param categoryMask The included ids, or null for every category.
+    @return The bitmask, or null for every category.
+    */
+    public static long[] bitsOf(boolean[] categoryMask) {
+        if (categoryMask == null) {
+            return null;
+        }
+        long[] bits = new long[MASK_WORDS];
+        for (int id = 0; id < categoryMask.length; id++) {
+            if (categoryMask[id]) {
+                bits[id >>> 6] |= 1L << id;
+            }
+        }
+        return bits;
+    }
+
+    /**
+    Gets the block a slot belongs to.
+    @param slot The slot.
+    @return The block index.
+    */
+    public static int blockOf(int slot) {
+        return slot >>> BLOCK_SHIFT;
+    }
+
+    /**
+    Widens the bounds of a slot's block to cover a row written there.
+    @param slot The slot written.
+    @param epochDay The row's epoch day.
+    @param categoryId The row's category id.
+    @param cents The row's amount in cents.
+    */
+    public synchronized void widen(int slot, int epochDay, int categoryId, long cents) {
+        int block = blockOf(slot);
+        if (block < validBlocks) {
+            include(block, epochDay, categoryId, cents);
+        }
+    }
+
+    /**
+    Discards the blocks from the one holding a slot on, after rows have moved.
+    @param slot The first slot whose row moved.
+    */
+    public synchronized void invalidateFrom(int slot) {
+        validBlocks = Math.min(validBlocks, blockOf(slot));
+    }
+
+    /**
+    Finds the first slot at or after from whose block may hold a live row matching every bound.
+    @param partition The partition the zone map describes.
+    @param from The first slot to consider.
+    @param to One past the last slot to consider.
+    @param startDay The first epoch day to include.
+    @param endDay The last epoch day to include.
+    @param lowCents The smallest amount to include.
+    @param highCents The largest amount to include.
+    @param categories The category bitmask from bitsOf, or null for every category.
+    @return The first candidate slot, or to if no remaining block can match.
+    */
+    public synchronized int findCandidate(ExpensePartition partition, int from, int to, long startDay, long endDay,
+                                          long lowCents, long highCents, long[] categories) {
+        for (int block = blockOf(from); (long) block << BLOCK_SHIFT < to; block++) {
+            if (block >= validBlocks) {
+                build(partition, block);
+            }
+            if (maximumDays[block] >= startDay && minimumDays[block] <= endDay
+                    && maximumCents[block] >= lowCents && minimumCents[block] <= highCents
+                    && (categories == null || intersects(block, categories))) {
+                return Math.max(from, block << BLOCK_SHIFT);
+            }
+        }
+        return to;
+    }
+
+    /**
+    Rebuilds every block from the first invalid one up to and including the given block.
+    */
+    private void build(ExpensePartition partition, int upTo) {
+        if (upTo >= minimumDays.length) {
+            int capacity = Math.max(upTo + 1, minimumDays.length * 2);
+            minimumDays = Arrays.copyOf(minimumDays, capacity);
+            maximumDays = Arrays.copyOf(maximumDays, capacity);
+            minimumCents = Arrays.copyOf(minimumCents, capacity);
+            maximumCents = Arrays.copyOf(maximumCents, capacity);
+            categoryBits = Arrays.copyOf(categoryBits, capacity * MASK_WORDS);
+        }
+        for (int block = validBlocks; block <= upTo; block++) {
+            // An empty block has inverted bounds, so nothing matches it until a row widens it
+            minimumDays[block] = Integer.MAX_VALUE;
+            maximumDays[block] = Integer.MIN_VALUE;
+            minimumCents[block] = Long.MAX_VALUE;
+            maximumCents[block] = Long.MIN_VALUE;
+            Arrays.fill(categoryBits, block * MASK_WORDS, (block + 1) * MASK_WORDS, 0L);
+            int end = Math.min(partition.size(), (block + 1) << BLOCK_SHIFT);
+            for (int slot = block << BLOCK_SHIFT; slot < end; slot++) {
+                if (partition.isLive(slot)) {
+                    include(block, partition.epochDay(slot), partition.categoryId(slot), partition.amountCents(slot));
+                }
+            }
+        }
+        validBlocks = upTo + 1;
+    }
+
+    private void include(int block, int epochDay, int categoryId, long cents) {
+        minimumDays[block] = Math.min(minimumDays[block], epochDay);
+        maximumDays[block] = Math.max(maximumDays[block], epochDay);
+        minimumCents[block] = Math.min(minimumCents[block], cents);
+        maximumCents[block] = Math.max(maximumCents[block], cents);
+        categoryBits[block * MASK_WORDS + (categoryId >>> 6)] |= 1L << categoryId;
+    }
+
+    private boolean intersects(int block, long[] categories) {
+        for (int word = 0; word < MASK_WORDS; word++) {
+            if ((categoryBits[block * MASK_WORDS + word] & categories[word]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}